@@ -0,0 +1,40 @@
+package com.cafepos.app;
+
+import com.cafepos.common.Cents;
+import com.cafepos.common.Money;
+import com.cafepos.common.MoneyAccumulator;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderRepository;
+
+/** Totals across a day's orders; one accumulator per call, not one Money per order. */
+public final class EndOfDayTotals {
+
+  public Money subtotal(Iterable<Order> orders) {
+    MoneyAccumulator acc = new MoneyAccumulator();
+    for (Order o : orders) {
+      acc.add(o.subtotal());
+    }
+    return acc.toMoney();
+  }
+
+  /** Sums every stored order, in parallel over the repository's stream. */
+  public Money subtotal(OrderRepository orders) {
+    return Money.ofCents(orders.stream().parallel()
+        .mapToLong(o -> o.subtotal().cents())
+        .reduce(0L, Cents::add));
+  }
+
+  public Money totalWithTax(OrderRepository orders, int taxPercent) {
+    return Money.ofCents(orders.stream().parallel()
+        .mapToLong(o -> o.totalWithTax(taxPercent).cents())
+        .reduce(0L, Cents::add));
+  }
+
+  public Money totalWithTax(Iterable<Order> orders, int taxPercent) {
+    MoneyAccumulator acc = new MoneyAccumulator();
+    for (Order o : orders) {
+      acc.add(o.totalWithTax(taxPercent));
+    }
+    return acc.toMoney();
+  }
+}
@@ -1,6 +1,6 @@
 package com.cafepos.app;
 
-import com.cafepos.common.Money;
+import com.cafepos.common.MoneyAccumulator;
 import com.cafepos.domain.LineItem;
 import com.cafepos.pricing.PricingResult;
 import java.util.List;
@@ -8,13 +8,15 @@ import java.util.List;
 public final class ReceiptFormatter {
   public String format(long id, List<LineItem> items, PricingResult pr, int taxPercent) {
     StringBuilder sb = new StringBuilder();
+    MoneyAccumulator line = new MoneyAccumulator();
     sb.append("Order #").append(id).append("\n");
     for (LineItem li : items) {
       sb.append(" - ").append(li.product().name()).append(" x").append(li.quantity())
-         .append(" = ").append(li.lineTotal()).append("\n");
+         .append(" = ");
+      line.reset().addTimes(li.unitPrice(), li.quantity()).appendTo(sb).append("\n");
     }
     sb.append("Subtotal: ").append(pr.subtotal()).append("\n");
-    if (pr.discount().asBigDecimal().signum() > 0) {
+    if (pr.discount().cents() > 0) {
       sb.append("Discount: -").append(pr.discount()).append("\n");
     }
     sb.append("Tax (").append(taxPercent).append("%): ").append(pr.tax()).append("\n");
@@ -0,0 +1,63 @@
+package com.cafepos.app.events;
+
+import com.cafepos.common.Cents;
+import com.cafepos.common.Money;
+import com.cafepos.domain.OrderStatus;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/** Lines, status and subtotal of every journaled order. */
+public final class CurrentOrdersView implements OrderProjection {
+
+  public record OrderView(long orderId, OrderStatus status, List<ItemAdded> lines, Money subtotal) {}
+
+  private static final class Entry {
+    OrderStatus status = OrderStatus.OPEN;
+    final ArrayList<ItemAdded> lines = new ArrayList<>(4);
+    long subtotalCents;
+  }
+
+  private final Map<Long, Entry> orders = new HashMap<>();
+
+  @Override
+  public void apply(OrderEvent event) {
+    switch (event) {
+      case OrderCreated e -> entry(e.orderId());
+      case ItemAdded e -> {
+        Entry en = entry(e.orderId());
+        en.subtotalCents = Cents.add(en.subtotalCents, Cents.multiply(e.unitCents(), e.quantity()));
+        en.lines.add(e);
+      }
+      case ItemRemoved e -> {
+        Entry en = orders.get(e.orderId());
+        if (en != null && !en.lines.isEmpty()) {
+          ItemAdded last = en.lines.get(en.lines.size() - 1);
+          en.subtotalCents = Cents.subtract(en.subtotalCents, Cents.multiply(last.unitCents(), last.quantity()));
+          en.lines.remove(en.lines.size() - 1);
+        }
+      }
+      case OrderPaid e -> entry(e.orderId()).status = OrderStatus.PAID;
+      case OrderReady e -> entry(e.orderId()).status = OrderStatus.READY;
+      case OrderDelivered e -> entry(e.orderId()).status = OrderStatus.DELIVERED;
+    }
+  }
+
+  public Optional<OrderView> find(long orderId) {
+    Entry en = orders.get(orderId);
+    if (en == null) {
+      return Optional.empty();
+    }
+    return Optional.of(new OrderView(orderId, en.status, List.copyOf(en.lines), Money.ofCents(en.subtotalCents)));
+  }
+
+  public int size() {
+    return orders.size();
+  }
+
+  private Entry entry(long orderId) {
+    return orders.computeIfAbsent(orderId, k -> new Entry());
+  }
+}
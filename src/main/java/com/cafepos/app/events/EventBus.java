@@ -1,18 +1,268 @@
 package com.cafepos.app.events;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
-public final class EventBus {
-  private final Map<Class<?>, List<Consumer<?>>> handlers = new HashMap<>();
+/**
+ * Type-keyed publish/subscribe. A handler registered for a type receives events
+ * of that type and of its subtypes, so {@code on(OrderEvent.class, ...)} sees
+ * every order event. Handlers run in subscription order.
+ *
+ * <p>The registry is copy-on-write: {@code on} builds a new immutable
+ * {@link Registry}, and {@code emit} reads the current one without locking. Each
+ * registry caches, per concrete event class, the array of every handler for
+ * that class, its superclasses and its interfaces, so after the first emit of
+ * a class dispatch is one map lookup and an array walk.
+ *
+ * <p>{@code new EventBus()} runs handlers on the emitting thread, in
+ * subscription order, and a throwing handler propagates to the emitter.
+ * {@link #async()} and {@link #async(Executor)} give every subscriber its own
+ * mailbox instead: {@code emit} only enqueues, each subscriber sees its events
+ * in emit order (one at a time), subscribers run independently of each other,
+ * and a throwing handler is reported to {@link #onError} without affecting the
+ * rest. {@link #flush()} waits for everything emitted so far and
+ * {@link #close()} drains and stops the bus. If the executor rejects a drain,
+ * that subscriber's queued events are reported as failed and dropped and the
+ * rejection propagates to the emitter; an {@link Error} from a handler
+ * propagates on the executor's thread, and the mailbox carries on with the
+ * next event.
+ */
+public final class EventBus implements AutoCloseable {
 
+  private static final int DRAIN_BATCH = 64;
+
+  private static final Subscriber[] NONE = new Subscriber[0];
+
+  private volatile Registry registry = new Registry(Map.of());
+  private final Executor executor;
+  private final ExecutorService owned;
+  private final AtomicLong pending = new AtomicLong();
+  private final Object idle = new Object();
+  private volatile BiConsumer<Object, RuntimeException> errorHandler = EventBus::logFailure;
+  private volatile boolean closed;
+
+  /** Synchronous bus: handlers run on the emitting thread. */
+  public EventBus() {
+    this(null, null);
+  }
+
+  private EventBus(Executor executor, ExecutorService owned) {
+    this.executor = executor;
+    this.owned = owned;
+  }
+
+  /** Asynchronous bus on a virtual thread per mailbox drain; {@link #close()} shuts it down. */
+  public static EventBus async() {
+    ExecutorService vt = Executors.newVirtualThreadPerTaskExecutor();
+    return new EventBus(vt, vt);
+  }
+
+  /** Asynchronous bus on the caller's executor, which {@link #close()} leaves running. */
+  public static EventBus async(Executor executor) {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor required");
+    }
+    return new EventBus(executor, null);
+  }
+
+  public boolean isAsync() {
+    return executor != null;
+  }
+
+  /** Safe to call from any thread, including while events are being emitted. */
   public <T> void on(Class<T> type, Consumer<T> h) {
-    handlers.computeIfAbsent(type, k -> new ArrayList<>()).add(h);
+    if (type == null || h == null) {
+      throw new IllegalArgumentException("type and handler required");
+    }
+    synchronized (this) {
+      Map<Class<?>, Subscriber[]> direct = new HashMap<>(registry.direct);
+      Subscriber[] old = direct.getOrDefault(type, NONE);
+      Subscriber[] grown = Arrays.copyOf(old, old.length + 1);
+      grown[old.length] = new Subscriber(h, registry.subscribers);
+      direct.put(type, grown);
+      registry = new Registry(direct);
+    }
+  }
+
+  /** Receives async handler failures with the event; the default prints to stderr. */
+  public void onError(BiConsumer<Object, RuntimeException> handler) {
+    if (handler == null) {
+      throw new IllegalArgumentException("handler required");
+    }
+    errorHandler = handler;
   }
 
-  @SuppressWarnings("unchecked")
   public <T> void emit(T event) {
-    var list = handlers.getOrDefault(event.getClass(), List.of());
-    for (var h : list) ((Consumer<T>) h).accept(event);
+    if (closed) {
+      throw new IllegalStateException("event bus is closed");
+    }
+    Subscriber[] subs = registry.dispatch(event.getClass());
+    if (executor == null) {
+      for (Subscriber s : subs) {
+        s.handler.accept(event);
+      }
+    } else {
+      for (Subscriber s : subs) {
+        s.enqueue(event);
+      }
+    }
+  }
+
+  /** Waits until every event emitted so far has been handled. Do not call from a handler. */
+  public void flush() {
+    synchronized (idle) {
+      while (pending.get() != 0) {
+        try {
+          idle.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("interrupted while flushing event bus", e);
+        }
+      }
+    }
+  }
+
+  /** Rejects further emits, waits for queued events, then stops an owned executor. */
+  @Override
+  public void close() {
+    closed = true;
+    flush();
+    if (owned != null) {
+      owned.shutdown();
+    }
+  }
+
+  private void handled() {
+    if (pending.decrementAndGet() == 0) {
+      synchronized (idle) {
+        idle.notifyAll();
+      }
+    }
+  }
+
+  private static void logFailure(Object event, RuntimeException e) {
+    System.err.println("[EventBus] handler failed for " + event + ": " + e);
+  }
+
+  /** Immutable handler table plus its per-class dispatch cache; replaced on every {@code on}. */
+  private static final class Registry {
+    final Map<Class<?>, Subscriber[]> direct;
+    final int subscribers;
+    private final Map<Class<?>, Subscriber[]> dispatch = new ConcurrentHashMap<>();
+
+    Registry(Map<Class<?>, Subscriber[]> direct) {
+      this.direct = direct;
+      int n = 0;
+      for (Subscriber[] s : direct.values()) {
+        n += s.length;
+      }
+      this.subscribers = n;
+    }
+
+    Subscriber[] dispatch(Class<?> type) {
+      Subscriber[] cached = dispatch.get(type);
+      return cached != null ? cached : dispatch.computeIfAbsent(type, this::resolve);
+    }
+
+    private Subscriber[] resolve(Class<?> type) {
+      List<Subscriber> all = new ArrayList<>();
+      Set<Class<?>> seen = new HashSet<>();
+      Deque<Class<?>> todo = new ArrayDeque<>();
+      todo.add(type);
+      while (!todo.isEmpty()) {
+        Class<?> c = todo.poll();
+        if (!seen.add(c)) {
+          continue;
+        }
+        all.addAll(Arrays.asList(direct.getOrDefault(c, NONE)));
+        if (c.getSuperclass() != null) {
+          todo.add(c.getSuperclass());
+        }
+        todo.addAll(Arrays.asList(c.getInterfaces()));
+      }
+      all.sort(Comparator.comparingInt(s -> s.order));
+      return all.toArray(NONE);
+    }
+  }
+
+  /** One handler; in async mode also its FIFO mailbox, drained by at most one task at a time. */
+  private final class Subscriber {
+    private final Consumer<Object> handler;
+    private final int order;
+    private final Queue<Object> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    @SuppressWarnings("unchecked")
+    Subscriber(Consumer<?> handler, int order) {
+      this.handler = (Consumer<Object>) handler;
+      this.order = order;
+    }
+
+    void enqueue(Object event) {
+      pending.incrementAndGet();
+      mailbox.add(event);
+      schedule();
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+          // nothing will drain the mailbox, so fail what is queued rather than stall flush()
+          scheduled.set(false);
+          for (Object event; (event = mailbox.poll()) != null; ) {
+            report(event, e);
+            handled();
+          }
+          throw e;
+        }
+      }
+    }
+
+    /** Handles up to a batch, then yields the thread so one busy mailbox cannot hog a pool. */
+    private void drain() {
+      try {
+        for (int n = 0; n < DRAIN_BATCH; n++) {
+          Object event = mailbox.poll();
+          if (event == null) {
+            break;
+          }
+          try {
+            handler.accept(event);
+          } catch (RuntimeException e) {
+            report(event, e);
+          } finally {
+            handled();
+          }
+        }
+      } finally {
+        scheduled.set(false);
+        if (!mailbox.isEmpty()) {
+          try {
+            schedule();
+          } catch (RejectedExecutionException ignored) {
+            // schedule() already reported and dropped the queued events
+          }
+        }
+      }
+    }
+
+    private void report(Object event, RuntimeException e) {
+      try {
+        errorHandler.accept(event, e);
+      } catch (RuntimeException ignored) {
+        // a failing error handler must not stall the mailbox
+      }
+    }
   }
 }
@@ -0,0 +1,4 @@
+package com.cafepos.app.events;
+
+/** {@code unitCents} is the unit price at the time of adding, so projections need no catalog. */
+public record ItemAdded(long orderId, String productId, int quantity, long unitCents) implements OrderEvent {}
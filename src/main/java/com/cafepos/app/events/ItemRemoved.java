@@ -0,0 +1,4 @@
+package com.cafepos.app.events;
+
+/** The order's most recently added line was removed. */
+public record ItemRemoved(long orderId) implements OrderEvent {}
@@ -0,0 +1,29 @@
+package com.cafepos.app.events;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Orders that are paid but not yet ready, oldest payment first. */
+public final class KitchenQueueView implements OrderProjection {
+
+  private final Set<Long> waiting = new LinkedHashSet<>();
+
+  @Override
+  public void apply(OrderEvent event) {
+    switch (event) {
+      case OrderPaid e -> waiting.add(e.orderId());
+      case OrderReady e -> waiting.remove(e.orderId());
+      case OrderDelivered e -> waiting.remove(e.orderId());
+      default -> { }
+    }
+  }
+
+  public List<Long> queue() {
+    return List.copyOf(waiting);
+  }
+
+  public int size() {
+    return waiting.size();
+  }
+}
@@ -0,0 +1,3 @@
+package com.cafepos.app.events;
+
+public record OrderDelivered(long orderId) implements OrderEvent {}
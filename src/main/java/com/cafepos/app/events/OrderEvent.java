@@ -1,3 +1,7 @@
 package com.cafepos.app.events;
 
-public sealed interface OrderEvent permits OrderCreated, OrderPaid {}
+public sealed interface OrderEvent
+    permits OrderCreated, ItemAdded, ItemRemoved, OrderPaid, OrderReady, OrderDelivered {
+
+  long orderId();
+}
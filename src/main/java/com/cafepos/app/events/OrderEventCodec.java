@@ -0,0 +1,87 @@
+package com.cafepos.app.events;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire form of order events for the socket transport.
+ *
+ * <pre>
+ * handshake, sender first: int magic, short version, long streamId
+ * handshake reply:         long lastSequence received on that stream (0 if none)
+ * frame: int length (of the rest), long sequence, byte kind, long orderId, then
+ *   kind ITEM_ADDED only: str productId, int quantity, long unitCents
+ * str = unsigned short byte length + UTF-8 bytes
+ * </pre>
+ */
+final class OrderEventCodec {
+
+  static final int MAGIC = 0x43504556; // "CPEV"
+  static final short VERSION = 1;
+  static final int HELLO_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES;
+  /** Upper bound on a whole frame; product ids are at most 0xFFFF bytes. */
+  static final int MAX_FRAME_BYTES = 1 << 17;
+
+  private static final byte CREATED = 0;
+  private static final byte ITEM_ADDED = 1;
+  private static final byte ITEM_REMOVED = 2;
+  private static final byte PAID = 3;
+  private static final byte READY = 4;
+  private static final byte DELIVERED = 5;
+
+  private OrderEventCodec() {
+  }
+
+  static byte[] encodeFrame(long sequence, OrderEvent event) {
+    byte[] product = null;
+    int body = Long.BYTES + 1 + Long.BYTES;
+    if (event instanceof ItemAdded a) {
+      product = a.productId().getBytes(StandardCharsets.UTF_8);
+      if (product.length > 0xFFFF) {
+        throw new IllegalArgumentException("product id too long to send");
+      }
+      body += 2 + product.length + Integer.BYTES + Long.BYTES;
+    }
+    ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + body);
+    buf.putInt(body).putLong(sequence).put(kind(event)).putLong(event.orderId());
+    if (event instanceof ItemAdded a) {
+      buf.putShort((short) product.length).put(product).putInt(a.quantity()).putLong(a.unitCents());
+    }
+    return buf.array();
+  }
+
+  /** Decodes a frame body, positioned just after its sequence number. */
+  static OrderEvent decode(ByteBuffer buf) {
+    try {
+      byte kind = buf.get();
+      long orderId = buf.getLong();
+      return switch (kind) {
+        case CREATED -> new OrderCreated(orderId);
+        case ITEM_ADDED -> {
+          byte[] product = new byte[buf.getShort() & 0xFFFF];
+          buf.get(product);
+          yield new ItemAdded(orderId, new String(product, StandardCharsets.UTF_8), buf.getInt(), buf.getLong());
+        }
+        case ITEM_REMOVED -> new ItemRemoved(orderId);
+        case PAID -> new OrderPaid(orderId);
+        case READY -> new OrderReady(orderId);
+        case DELIVERED -> new OrderDelivered(orderId);
+        default -> throw new IllegalStateException("corrupt event frame: kind " + kind);
+      };
+    } catch (BufferUnderflowException e) {
+      throw new IllegalStateException("corrupt event frame: truncated", e);
+    }
+  }
+
+  private static byte kind(OrderEvent event) {
+    return switch (event) {
+      case OrderCreated e -> CREATED;
+      case ItemAdded e -> ITEM_ADDED;
+      case ItemRemoved e -> ITEM_REMOVED;
+      case OrderPaid e -> PAID;
+      case OrderReady e -> READY;
+      case OrderDelivered e -> DELIVERED;
+    };
+  }
+}
@@ -0,0 +1,429 @@
+package com.cafepos.app.events;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Flow.Publisher} of order events with a bounded buffer per subscriber.
+ *
+ * <p>{@link #publish} puts the event in every subscriber's buffer. Events leave
+ * a buffer only as fast as that subscriber {@code request}s them, and each
+ * subscriber's {@link SubscriberOptions#overflow() overflow policy} decides
+ * what happens when its buffer is full. {@code BLOCK} makes publishers wait.
+ * {@code DROP_OLDEST} and {@code COALESCE} shed events instead. Signals to one
+ * subscriber are serial and run on the executor, never on the publishing
+ * thread. {@link #lag} reports how far each subscriber is behind.
+ *
+ * <p>To feed it from a bus: {@code bus.on(OrderEvent.class, publisher::publish)}.
+ * A {@code BLOCK} subscriber then slows down the bus's emitters too.
+ * {@link #close()} completes every subscriber once its buffer is drained.
+ */
+public final class OrderEventPublisher implements Flow.Publisher<OrderEvent>, AutoCloseable {
+
+  private static final int DRAIN_BATCH = 64;
+
+  /**
+   * Snapshot of one subscriber's progress.
+   *
+   * @param published          events offered to this subscriber
+   * @param delivered          events handed to {@code onNext}
+   * @param dropped            events discarded by the overflow policy
+   * @param coalesced          events merged into a buffered one for the same order ({@code COALESCE} only)
+   * @param buffered           events waiting for demand
+   * @param demand             requested but not yet delivered
+   * @param oldestPendingNanos age of the oldest buffered event, 0 when empty
+   * @param blockedNanos       time publishers spent waiting for room ({@code BLOCK} only)
+   */
+  public record Lag(long published, long delivered, long dropped, long coalesced, int buffered,
+                    long demand, long oldestPendingNanos, long blockedNanos) {}
+
+  private final Executor executor;
+  private final List<Sub> subscriptions = new CopyOnWriteArrayList<>();
+  private volatile boolean closed;
+
+  /** Delivers on a virtual thread per drain. */
+  public OrderEventPublisher() {
+    this(virtualThreads());
+  }
+
+  public OrderEventPublisher(Executor executor) {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor required");
+    }
+    this.executor = executor;
+  }
+
+  /** Subscribes with {@link SubscriberOptions#defaults()}. */
+  @Override
+  public void subscribe(Flow.Subscriber<? super OrderEvent> subscriber) {
+    subscribe(subscriber, SubscriberOptions.defaults());
+  }
+
+  /** The subscriber sees events published after this call. */
+  public void subscribe(Flow.Subscriber<? super OrderEvent> subscriber, SubscriberOptions options) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber required");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options required");
+    }
+    Sub sub = new Sub(subscriber, options);
+    synchronized (this) {
+      for (Sub s : subscriptions) {
+        if (s.subscriber == subscriber) {
+          sub.error = new IllegalStateException("already subscribed");
+          break;
+        }
+      }
+      if (sub.error == null) {
+        if (closed) {
+          sub.done = true;
+        } else {
+          subscriptions.add(sub);
+        }
+      }
+    }
+    sub.signal();
+  }
+
+  /** Offers {@code event} to every subscriber; may wait if a {@code BLOCK} subscriber is full. */
+  public void publish(OrderEvent event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event required");
+    }
+    if (closed) {
+      throw new IllegalStateException("publisher is closed");
+    }
+    for (Sub s : subscriptions) {
+      s.offer(event);
+    }
+  }
+
+  public Optional<Lag> lag(Flow.Subscriber<?> subscriber) {
+    for (Sub s : subscriptions) {
+      if (s.subscriber == subscriber) {
+        return Optional.of(s.lag());
+      }
+    }
+    return Optional.empty();
+  }
+
+  public int subscriberCount() {
+    return subscriptions.size();
+  }
+
+  /** Stops accepting events; each subscriber completes after its buffer is delivered. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    for (Sub s : subscriptions) {
+      s.complete();
+    }
+  }
+
+  private static Executor virtualThreads() {
+    ThreadFactory threads = Thread.ofVirtual().name("order-flow-", 0).factory();
+    return r -> threads.newThread(r).start();
+  }
+
+  private final class Sub implements Flow.Subscription {
+    final Flow.Subscriber<? super OrderEvent> subscriber;
+    final OverflowPolicy policy;
+    final OrderEvent[] buf;
+    final long[] stamps;
+    final Map<Long, Long> newestByOrder; // seq of each order's newest buffered event (COALESCE only)
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition notFull = lock.newCondition();
+    final AtomicLong requested = new AtomicLong();
+    final AtomicInteger wip = new AtomicInteger();
+
+    // guarded by lock
+    long headSeq;
+    int count;
+    long published;
+    long delivered;
+    long dropped;
+    long coalesced;
+    long blockedNanos;
+
+    // only touched while holding wip: by the drain, or by schedule() on rejection
+    boolean started;
+    boolean terminated;
+
+    volatile boolean cancelled;
+    volatile boolean done;
+    volatile Throwable error;
+
+    Sub(Flow.Subscriber<? super OrderEvent> subscriber, SubscriberOptions options) {
+      this.subscriber = subscriber;
+      this.policy = options.overflow();
+      this.buf = new OrderEvent[options.bufferSize()];
+      this.stamps = new long[options.bufferSize()];
+      this.newestByOrder = policy == OverflowPolicy.COALESCE ? new HashMap<>() : null;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        error = new IllegalArgumentException("request must be > 0, got " + n);
+      } else {
+        requested.accumulateAndGet(n, (r, add) -> r + add < 0 ? Long.MAX_VALUE : r + add);
+      }
+      signal();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+      lock.lock();
+      try {
+        for (int i = 0; i < count; i++) {
+          buf[slot(headSeq + i)] = null;
+        }
+        count = 0;
+        if (newestByOrder != null) {
+          newestByOrder.clear();
+        }
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void offer(OrderEvent e) {
+      lock.lock();
+      try {
+        if (cancelled || done) {
+          return;
+        }
+        published++;
+        if (count == buf.length) {
+          if (policy == OverflowPolicy.BLOCK) {
+            if (!awaitRoom()) {
+              return;
+            }
+          } else if (newestByOrder != null && fold(e)) {
+            coalesced++;
+            return;
+          } else {
+            removeHead();
+            dropped++;
+          }
+        }
+        long seq = headSeq + count;
+        buf[slot(seq)] = e;
+        stamps[slot(seq)] = System.nanoTime();
+        if (newestByOrder != null) {
+          newestByOrder.put(e.orderId(), seq);
+        }
+        count++;
+      } finally {
+        lock.unlock();
+      }
+      signal();
+    }
+
+    /** Waits until there is room; false if the subscriber went away or the wait was interrupted. */
+    private boolean awaitRoom() {
+      long t0 = System.nanoTime();
+      try {
+        while (count == buf.length && !cancelled && !done) {
+          notFull.await();
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        dropped++;
+        return false;
+      } finally {
+        blockedNanos += System.nanoTime() - t0;
+      }
+      return !cancelled && !done;
+    }
+
+    void complete() {
+      lock.lock();
+      try {
+        done = true;
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      signal();
+    }
+
+    Lag lag() {
+      lock.lock();
+      try {
+        long oldest = count == 0 ? 0 : System.nanoTime() - stamps[slot(headSeq)];
+        return new Lag(published, delivered, dropped, coalesced, count, requested.get(), oldest, blockedNanos);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void signal() {
+      if (wip.getAndIncrement() == 0) {
+        schedule();
+      }
+    }
+
+    /** Caller holds the drain (wip > 0). A rejecting executor fails this subscriber instead of stalling it. */
+    private void schedule() {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException ex) {
+        if (!cancelled) {
+          cancel();
+          if (!started) {
+            started = true;
+            subscriber.onSubscribe(this);
+          }
+          terminated = true;
+          subscriber.onError(ex);
+        }
+        wip.set(0);
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      int emitted = 0;
+      while (true) {
+        if (!started) {
+          started = true;
+          subscriber.onSubscribe(this);
+        }
+        while (true) {
+          if (cancelled) {
+            return;
+          }
+          Throwable err = error;
+          if (err != null) {
+            cancel();
+            subscriber.onError(err);
+            return;
+          }
+          if (requested.get() == 0) {
+            break;
+          }
+          OrderEvent e = poll();
+          if (e == null) {
+            break;
+          }
+          if (requested.get() != Long.MAX_VALUE) {
+            requested.decrementAndGet();
+          }
+          try {
+            subscriber.onNext(e);
+          } catch (RuntimeException ex) {
+            cancel();
+            subscriber.onError(ex);
+            return;
+          }
+          if (++emitted == DRAIN_BATCH) {
+            // let other work run; wip stays non-zero so no second drain starts meanwhile
+            schedule();
+            return;
+          }
+        }
+        if (done && !terminated && isEmpty()) {
+          terminated = true;
+          subscriptions.remove(this);
+          subscriber.onComplete();
+          return;
+        }
+        missed = wip.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    private OrderEvent poll() {
+      lock.lock();
+      try {
+        if (count == 0) {
+          return null;
+        }
+        OrderEvent e = removeHead();
+        delivered++;
+        notFull.signal();
+        return e;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private OrderEvent removeHead() {
+      int i = slot(headSeq);
+      OrderEvent e = buf[i];
+      buf[i] = null;
+      if (newestByOrder != null) {
+        newestByOrder.remove(e.orderId(), headSeq);
+      }
+      headSeq++;
+      count--;
+      return e;
+    }
+
+    /**
+     * Merges {@code e} into its order's newest buffered event, in place, when
+     * that is a status event and so is {@code e}, or when both add the same
+     * product at the same price. Returns false if nothing could be merged.
+     */
+    private boolean fold(OrderEvent e) {
+      Long seq = newestByOrder.get(e.orderId());
+      if (seq == null) {
+        return false;
+      }
+      int i = slot(seq);
+      OrderEvent pending = buf[i];
+      if (isStatus(pending) && isStatus(e)) {
+        buf[i] = e;
+        return true;
+      }
+      if (pending instanceof ItemAdded a && e instanceof ItemAdded b
+          && a.productId().equals(b.productId()) && a.unitCents() == b.unitCents()
+          && a.quantity() <= Integer.MAX_VALUE - b.quantity()) {
+        buf[i] = new ItemAdded(a.orderId(), a.productId(), a.quantity() + b.quantity(), a.unitCents());
+        return true;
+      }
+      return false;
+    }
+
+    /** Events that say where the order has got to; a later one supersedes an earlier one. */
+    private static boolean isStatus(OrderEvent e) {
+      return e instanceof OrderPaid || e instanceof OrderReady || e instanceof OrderDelivered;
+    }
+
+    private boolean isEmpty() {
+      lock.lock();
+      try {
+        return count == 0;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private int slot(long seq) {
+      return (int) (seq % buf.length);
+    }
+  }
+}
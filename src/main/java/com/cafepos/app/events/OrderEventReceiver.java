@@ -0,0 +1,194 @@
+package com.cafepos.app.events;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Listens on a Unix domain socket for an {@link OrderEventSender} and re-emits
+ * every event it receives on a local {@link EventBus}, so the kitchen process
+ * subscribes with the usual {@code bus.on(...)}.
+ *
+ * <p>One sender is served at a time, on a dedicated thread. The receiver
+ * remembers the sender's stream id and the last sequence it emitted. When that
+ * sender reconnects, the handshake asks it to resume just after that sequence.
+ * A sender it has not seen before (for example a restarted till) is asked for
+ * everything. Frames it has already emitted are skipped. Whenever it has
+ * emitted all it has read, it acknowledges the last sequence to the sender. A jump in sequence
+ * numbers (the sender's replay buffer had moved on) is counted in
+ * {@link #missed()}. A bus handler that throws is reported on stderr and the
+ * stream carries on.
+ */
+public final class OrderEventReceiver implements AutoCloseable {
+
+  private final Path socket;
+  private final EventBus bus;
+  private final ServerSocketChannel server;
+  private final Thread acceptor;
+
+  private long streamId;
+  private volatile long lastSeq;
+  private volatile long received;
+  private volatile long missed;
+  private volatile long connections;
+  private volatile SocketChannel current;
+  private volatile boolean closed;
+
+  private OrderEventReceiver(Path socket, EventBus bus, ServerSocketChannel server) {
+    this.socket = socket;
+    this.bus = bus;
+    this.server = server;
+    this.acceptor = new Thread(this::run, "order-event-receiver");
+    acceptor.setDaemon(true);
+  }
+
+  /** Binds {@code socket}, replacing a stale socket file left by an earlier run. */
+  public static OrderEventReceiver listen(Path socket, EventBus bus) {
+    if (socket == null || bus == null) {
+      throw new IllegalArgumentException("socket and bus required");
+    }
+    try {
+      Files.deleteIfExists(socket);
+      ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      server.bind(UnixDomainSocketAddress.of(socket));
+      OrderEventReceiver receiver = new OrderEventReceiver(socket, bus, server);
+      receiver.acceptor.start();
+      return receiver;
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot listen on " + socket, e);
+    }
+  }
+
+  /** Sequence number of the last event emitted on the bus. */
+  public long lastSequence() {
+    return lastSeq;
+  }
+
+  public long received() {
+    return received;
+  }
+
+  /** Events the sender could no longer replay. */
+  public long missed() {
+    return missed;
+  }
+
+  public long connections() {
+    return connections;
+  }
+
+  /** Stops listening, drops the current sender and removes the socket file. */
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      server.close();
+    } catch (IOException ignored) {
+      // already unusable
+    }
+    dropConnection();
+    try {
+      acceptor.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      Files.deleteIfExists(socket);
+    } catch (IOException ignored) {
+      // a stale socket file is replaced by the next listen()
+    }
+  }
+
+  /** Closes the current connection as if the link broke; the sender reconnects. */
+  void dropConnection() {
+    SocketChannel ch = current;
+    if (ch != null) {
+      try {
+        ch.close();
+      } catch (IOException ignored) {
+        // the reader sees the closed channel either way
+      }
+    }
+  }
+
+  private void run() {
+    while (!closed) {
+      SocketChannel ch;
+      try {
+        ch = server.accept();
+      } catch (IOException e) {
+        return;
+      }
+      current = ch;
+      connections++;
+      try (ch) {
+        serve(ch);
+      } catch (IOException | IllegalStateException e) {
+        if (!closed && !(e instanceof EOFException)) {
+          System.err.println("[OrderEventReceiver] connection dropped: " + e);
+        }
+      } finally {
+        current = null;
+      }
+    }
+  }
+
+  private void serve(SocketChannel ch) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch), 64 * 1024));
+    if (in.readInt() != OrderEventCodec.MAGIC || in.readShort() != OrderEventCodec.VERSION) {
+      throw new IllegalStateException("not an order event sender");
+    }
+    long stream = in.readLong();
+    if (stream != streamId) {
+      streamId = stream;
+      lastSeq = 0;
+    }
+    ByteBuffer reply = ByteBuffer.allocate(Long.BYTES);
+    writeSequence(ch, reply);
+    byte[] frame = new byte[OrderEventCodec.MAX_FRAME_BYTES];
+    while (true) {
+      int length = in.readInt();
+      if (length < Long.BYTES + 1 + Long.BYTES || length > frame.length) {
+        throw new IllegalStateException("corrupt event frame: length " + length);
+      }
+      in.readFully(frame, 0, length);
+      ByteBuffer body = ByteBuffer.wrap(frame, 0, length);
+      long seq = body.getLong();
+      if (seq <= lastSeq) {
+        continue;
+      }
+      OrderEvent event = OrderEventCodec.decode(body);
+      if (seq > lastSeq + 1) {
+        missed += seq - lastSeq - 1;
+      }
+      lastSeq = seq;
+      received++;
+      try {
+        bus.emit(event);
+      } catch (RuntimeException e) {
+        System.err.println("[OrderEventReceiver] handler failed for " + event + ": " + e);
+      }
+      if (in.available() == 0) {
+        writeSequence(ch, reply);
+      }
+    }
+  }
+
+  /** Handshake reply and acknowledgement: the last sequence emitted. */
+  private void writeSequence(SocketChannel ch, ByteBuffer buf) throws IOException {
+    buf.clear().putLong(lastSeq).flip();
+    while (buf.hasRemaining()) {
+      ch.write(buf);
+    }
+  }
+}
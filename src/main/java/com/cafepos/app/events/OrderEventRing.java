@@ -0,0 +1,381 @@
+package com.cafepos.app.events;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Preallocated ring buffer for {@link OrderEvent}s, in the style of a disruptor.
+ *
+ * <p>Producers claim sequence numbers with a CAS on the cursor and publish by
+ * marking the slot with its lap number, so any number of threads may publish.
+ * Each handler runs on its own thread and tracks its own sequence. It takes
+ * every event that is ready in one go and is told which one ends the batch, so
+ * it can flush I/O once per batch instead of once per event. Handlers in a
+ * {@link Stage} run side by side. A stage added with {@link Stage#then} only sees
+ * an event after every handler of the stage before it has finished with it.
+ * Producers wait when the slowest handler is a full ring behind.
+ *
+ * <p>Events are not copied into the slots (they are immutable records). What
+ * is preallocated is the slot array, so publishing allocates no queue nodes.
+ * Handler failures go to {@link #onError} and the sequence still advances.
+ * Register everything before {@link #start()}. {@link #close()} waits for
+ * producers already inside {@code publish} to finish, then until every handler
+ * has seen every published event; a {@code publish} that loses the race to
+ * {@code close} throws instead of being dropped.
+ */
+public final class OrderEventRing implements AutoCloseable {
+
+  @FunctionalInterface
+  public interface BatchHandler {
+    void onEvent(OrderEvent event, long sequence, boolean endOfBatch);
+  }
+
+  private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+  private static final int SPINS = 200;
+  private static final int YIELDS = 100;
+  private static final long PARK_NANOS = 50_000;
+
+  private final int capacity;
+  private final int mask;
+  private final int shift;
+  private final OrderEvent[] entries;
+  private final int[] available;
+  private final Sequence cursor = new Sequence();
+  private final Sequence gatingCache = new Sequence();
+  private final List<Processor> processors = new ArrayList<>();
+  private final AtomicInteger producers = new AtomicInteger(); // threads between enter() and their last write
+  private Sequence[] gating = new Sequence[0];
+  private volatile BiConsumer<OrderEvent, RuntimeException> errorHandler = OrderEventRing::logFailure;
+  private volatile boolean started;
+  private volatile boolean closed;
+  private volatile boolean running;
+
+  /** @param capacity slots, rounded up to a power of two */
+  public OrderEventRing(int capacity) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+    }
+    int n = 1;
+    while (n < capacity) {
+      n <<= 1;
+    }
+    this.capacity = n;
+    this.mask = n - 1;
+    this.shift = Integer.numberOfTrailingZeros(n);
+    this.entries = new OrderEvent[n];
+    this.available = new int[n];
+    Arrays.fill(available, -1);
+  }
+
+  /** A handler that re-emits every event on {@code bus}, so {@link EventBus#on} subscribers see the ring. */
+  public static BatchHandler toBus(EventBus bus) {
+    if (bus == null) {
+      throw new IllegalArgumentException("bus required");
+    }
+    return (event, sequence, endOfBatch) -> bus.emit(event);
+  }
+
+  /** First stage: these handlers see events as soon as they are published. */
+  public Stage handleEventsWith(BatchHandler... handlers) {
+    return addStage(new Sequence[0], handlers);
+  }
+
+  public void onError(BiConsumer<OrderEvent, RuntimeException> handler) {
+    if (handler == null) {
+      throw new IllegalArgumentException("handler required");
+    }
+    errorHandler = handler;
+  }
+
+  public synchronized void start() {
+    if (started) {
+      throw new IllegalStateException("ring already started");
+    }
+    if (processors.isEmpty()) {
+      throw new IllegalStateException("no handlers registered");
+    }
+    Sequence[] all = new Sequence[processors.size()];
+    for (int i = 0; i < all.length; i++) {
+      all[i] = processors.get(i).sequence;
+    }
+    gating = all;
+    running = true;
+    started = true;
+    for (int i = 0; i < processors.size(); i++) {
+      Thread t = new Thread(processors.get(i), "order-ring-" + i);
+      t.setDaemon(true);
+      processors.get(i).thread = t;
+      t.start();
+    }
+  }
+
+  public long publish(OrderEvent event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event required");
+    }
+    enter();
+    try {
+      long seq = claim(1);
+      write(seq, event);
+      return seq;
+    } finally {
+      producers.decrementAndGet();
+    }
+  }
+
+  /** Claims one contiguous range for the whole batch; returns the last sequence. */
+  public long publishAll(List<? extends OrderEvent> events) {
+    if (events == null || events.contains(null)) {
+      throw new IllegalArgumentException("events required");
+    }
+    if (events.isEmpty()) {
+      return cursor.get();
+    }
+    enter();
+    try {
+      long last = claim(events.size());
+      long first = last - events.size() + 1;
+      for (int i = 0; i < events.size(); i++) {
+        write(first + i, events.get(i));
+      }
+      return last;
+    } finally {
+      producers.decrementAndGet();
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /** Rejects new events, waits for every handler to catch up, then stops the handler threads. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    if (!started) {
+      return;
+    }
+    // handlers still run, so a producer waiting for room gets it and finishes
+    while (producers.get() != 0) {
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+    long end = cursor.get();
+    for (Processor p : processors) {
+      while (p.sequence.get() < end) {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+    }
+    running = false;
+    for (Processor p : processors) {
+      LockSupport.unpark(p.thread);
+      try {
+        p.thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private synchronized Stage addStage(Sequence[] dependsOn, BatchHandler[] handlers) {
+    if (started) {
+      throw new IllegalStateException("add handlers before start()");
+    }
+    if (handlers == null || handlers.length == 0) {
+      throw new IllegalArgumentException("handlers required");
+    }
+    Sequence[] stage = new Sequence[handlers.length];
+    for (int i = 0; i < handlers.length; i++) {
+      if (handlers[i] == null) {
+        throw new IllegalArgumentException("handler required");
+      }
+      Processor p = new Processor(handlers[i], dependsOn);
+      processors.add(p);
+      stage[i] = p.sequence;
+    }
+    return new Stage(stage);
+  }
+
+  /**
+   * Counts the caller as a producer, then checks the ring is open. Registering
+   * before checking means close() either sees the producer or the producer sees
+   * closed, so no claim slips past close().
+   */
+  private void enter() {
+    producers.incrementAndGet();
+    if (!started || closed) {
+      producers.decrementAndGet();
+      throw new IllegalStateException(closed ? "ring is closed" : "ring not started");
+    }
+  }
+
+  private long claim(int n) {
+    if (n > capacity) {
+      throw new IllegalArgumentException("batch larger than the ring");
+    }
+    while (true) {
+      long current = cursor.get();
+      long next = current + n;
+      long wrapPoint = next - capacity;
+      if (wrapPoint > gatingCache.get()) {
+        long min = minimum(gating, current);
+        if (wrapPoint > min) {
+          LockSupport.parkNanos(1_000);
+          continue;
+        }
+        gatingCache.set(min);
+      } else if (cursor.compareAndSet(current, next)) {
+        return next;
+      }
+    }
+  }
+
+  private void write(long seq, OrderEvent event) {
+    int i = (int) seq & mask;
+    entries[i] = event;
+    AVAILABLE.setRelease(available, i, (int) (seq >>> shift));
+  }
+
+  private boolean isPublished(long seq) {
+    return (int) AVAILABLE.getAcquire(available, (int) seq & mask) == (int) (seq >>> shift);
+  }
+
+  private static long minimum(Sequence[] sequences, long fallback) {
+    long min = fallback;
+    for (Sequence s : sequences) {
+      min = Math.min(min, s.get());
+    }
+    return min;
+  }
+
+  private static void logFailure(OrderEvent event, RuntimeException e) {
+    System.err.println("[OrderEventRing] handler failed for " + event + ": " + e);
+  }
+
+  /** Handlers added together; see {@link #then}. */
+  public final class Stage {
+    private final Sequence[] sequences;
+
+    private Stage(Sequence[] sequences) {
+      this.sequences = sequences;
+    }
+
+    /** Handlers that only see an event once every handler of this stage is done with it. */
+    public Stage then(BatchHandler... handlers) {
+      return addStage(sequences, handlers);
+    }
+  }
+
+  private final class Processor implements Runnable {
+    final BatchHandler handler;
+    final Sequence[] dependsOn;
+    final Sequence sequence = new Sequence();
+    Thread thread;
+
+    Processor(BatchHandler handler, Sequence[] dependsOn) {
+      this.handler = handler;
+      this.dependsOn = dependsOn;
+    }
+
+    @Override
+    public void run() {
+      long next = sequence.get() + 1;
+      int idle = 0;
+      while (true) {
+        long last = highestReady(next);
+        if (last < next) {
+          if (!running) {
+            return;
+          }
+          idle = backOff(idle);
+          continue;
+        }
+        idle = 0;
+        for (long s = next; s <= last; s++) {
+          OrderEvent event = entries[(int) s & mask];
+          try {
+            handler.onEvent(event, s, s == last);
+          } catch (RuntimeException e) {
+            report(event, e);
+          }
+        }
+        sequence.set(last);
+        next = last + 1;
+      }
+    }
+
+    /** Highest sequence from {@code next} on that this handler may process, or {@code next - 1}. */
+    private long highestReady(long next) {
+      if (dependsOn.length > 0) {
+        return minimum(dependsOn, Long.MAX_VALUE);
+      }
+      long claimed = cursor.get();
+      long s = next;
+      while (s <= claimed && isPublished(s)) {
+        s++;
+      }
+      return s - 1;
+    }
+
+    private int backOff(int idle) {
+      if (idle < SPINS) {
+        Thread.onSpinWait();
+      } else if (idle < SPINS + YIELDS) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+        return idle;
+      }
+      return idle + 1;
+    }
+
+    private void report(OrderEvent event, RuntimeException e) {
+      try {
+        errorHandler.accept(event, e);
+      } catch (RuntimeException ignored) {
+        // a failing error handler must not stop the consumer
+      }
+    }
+  }
+
+  /** A sequence counter on its own cache line; written by one thread, read by many. */
+  @SuppressWarnings("unused")
+  private static final class Sequence {
+    private static final VarHandle VALUE;
+
+    static {
+      try {
+        VALUE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+      } catch (ReflectiveOperationException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long value = -1;
+    long q1, q2, q3, q4, q5, q6, q7;
+
+    long get() {
+      return (long) VALUE.getAcquire(this);
+    }
+
+    void set(long v) {
+      VALUE.setRelease(this, v);
+    }
+
+    boolean compareAndSet(long expected, long v) {
+      return VALUE.compareAndSet(this, expected, v);
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package com.cafepos.app.events;
+
+import com.cafepos.domain.Order;
+import com.cafepos.observer.OrderEventType;
+import com.cafepos.observer.OrderObserver;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Streams order events to an {@link OrderEventReceiver} in another process over
+ * a Unix domain socket.
+ *
+ * <p>Use it as an observer ({@code order.register(sender)} or on a synchronous
+ * {@code ObserverChannel}) or as a bus handler
+ * ({@code bus.on(OrderEvent.class, sender::send)}). As an observer it builds
+ * the event from the order on the notifying thread, so asynchronous channels
+ * and coalescers refuse it; {@code send} itself never blocks, so there is
+ * nothing to gain from deferring it. {@link #send} only numbers,
+ * encodes and buffers the event. A writer thread connects, gathers whatever
+ * is waiting into one write of up to {@link TransportOptions#maxBatchBytes()},
+ * and reconnects when the receiver goes away. The receiver acknowledges what
+ * it has emitted, which gives {@link #ackedSequence()} and shows a dead
+ * connection even while the till is idle.
+ *
+ * <p>The last {@link TransportOptions#replayCapacity()} events are kept. On
+ * every connect the receiver answers the handshake with the last sequence it
+ * has from this sender, and the writer resumes just after it. After a dropped
+ * connection the receiver gets no duplicates and no gaps, unless it fell
+ * further behind than the replay buffer holds. The same buffer holds events
+ * not yet sent, so a receiver that is down for more than
+ * {@code replayCapacity} events misses the oldest ones. {@code send} never
+ * blocks the till. A receiver that restarts asks for everything still
+ * buffered.
+ */
+public final class OrderEventSender implements OrderObserver, AutoCloseable {
+
+  private static final long CLOSE_WAIT_MILLIS = 5_000;
+
+  private final UnixDomainSocketAddress address;
+  private final TransportOptions options;
+  private final long streamId = ThreadLocalRandom.current().nextLong();
+  private final byte[][] ring;
+  private final ByteBuffer batch;
+  private final Thread writer;
+
+  // guarded by this
+  private long lastSeq;
+  private boolean closing;
+
+  private volatile SocketChannel current;
+  private volatile long sentSeq;
+  private volatile long ackedSeq;
+  private volatile long connections;
+
+  private OrderEventSender(Path socket, TransportOptions options) {
+    this.address = UnixDomainSocketAddress.of(socket);
+    this.options = options;
+    this.ring = new byte[options.replayCapacity()][];
+    // room for at least one frame of any size; batches stop at maxBatchBytes otherwise
+    this.batch = ByteBuffer.allocateDirect(Math.max(options.maxBatchBytes(), OrderEventCodec.MAX_FRAME_BYTES));
+    this.writer = new Thread(this::run, "order-event-sender");
+    writer.setDaemon(true);
+  }
+
+  /** Starts sending to the receiver listening on {@code socket}, whether or not it is up yet. */
+  public static OrderEventSender connect(Path socket) {
+    return connect(socket, TransportOptions.defaults());
+  }
+
+  public static OrderEventSender connect(Path socket, TransportOptions options) {
+    if (socket == null || options == null) {
+      throw new IllegalArgumentException("socket and options required");
+    }
+    OrderEventSender sender = new OrderEventSender(socket, options);
+    sender.writer.start();
+    return sender;
+  }
+
+  /** Queues {@code event}; returns its sequence number (from 1). Never blocks on the socket. */
+  public long send(OrderEvent event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event required");
+    }
+    synchronized (this) {
+      if (closing) {
+        throw new IllegalStateException("sender is closed");
+      }
+      long seq = lastSeq + 1;
+      ring[slot(seq)] = OrderEventCodec.encodeFrame(seq, event);
+      lastSeq = seq;
+      notifyAll();
+      return seq;
+    }
+  }
+
+  @Override
+  public void updated(Order order, OrderEventType type) {
+    send(OrderEvents.from(order, type));
+  }
+
+  @Override
+  public boolean needsNotifyingThread() {
+    return true;
+  }
+
+  public synchronized long lastSequence() {
+    return lastSeq;
+  }
+
+  /** Highest sequence written to the socket so far. */
+  public long sentSequence() {
+    return sentSeq;
+  }
+
+  /** Highest sequence the receiver has confirmed emitting; {@code lastSequence() - ackedSequence()} is its lag. */
+  public long ackedSequence() {
+    return ackedSeq;
+  }
+
+  public boolean isConnected() {
+    return current != null;
+  }
+
+  /** Successful connections, including the first. */
+  public long connections() {
+    return connections;
+  }
+
+  /**
+   * Stops accepting events and, if connected, gives the receiver up to five
+   * seconds to acknowledge what is buffered before closing the socket.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closing) {
+        return;
+      }
+      closing = true;
+      notifyAll();
+    }
+    try {
+      writer.join(CLOSE_WAIT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    closeQuietly(current);
+    writer.interrupt();
+  }
+
+  private void run() {
+    while (true) {
+      SocketChannel ch = null;
+      long next;
+      try {
+        ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+        ch.connect(address);
+        next = handshake(ch) + 1;
+      } catch (IOException e) {
+        closeQuietly(ch);
+        if (!pause()) {
+          return;
+        }
+        continue;
+      }
+      current = ch;
+      connections++;
+      startAckReader(ch);
+      try {
+        while (true) {
+          long last = fillBatch(ch, next);
+          if (last < next) {
+            awaitAcks(ch);
+            return;
+          }
+          while (batch.hasRemaining()) {
+            ch.write(batch);
+          }
+          sentSeq = last;
+          next = last + 1;
+        }
+      } catch (IOException e) {
+        // receiver went away; reconnect and let it say where to resume
+      } finally {
+        current = null;
+        closeQuietly(ch);
+      }
+    }
+  }
+
+  /** Sends our stream id and reads back the last sequence the receiver has from it. */
+  private long handshake(SocketChannel ch) throws IOException {
+    ByteBuffer hello = ByteBuffer.allocate(OrderEventCodec.HELLO_BYTES)
+        .putInt(OrderEventCodec.MAGIC).putShort(OrderEventCodec.VERSION).putLong(streamId).flip();
+    while (hello.hasRemaining()) {
+      ch.write(hello);
+    }
+    ByteBuffer reply = ByteBuffer.allocate(Long.BYTES);
+    while (reply.hasRemaining()) {
+      if (ch.read(reply) < 0) {
+        throw new IOException("receiver closed during handshake");
+      }
+    }
+    return reply.flip().getLong();
+  }
+
+  /**
+   * Reads the receiver's acknowledgements for this connection. When the
+   * receiver goes away this closes the channel and wakes the writer, which
+   * would otherwise sit idle on a dead socket until the next event.
+   */
+  private void startAckReader(SocketChannel ch) {
+    Thread.ofVirtual().name("order-event-acks").start(() -> {
+      ByteBuffer ack = ByteBuffer.allocate(Long.BYTES);
+      try {
+        while (true) {
+          ack.clear();
+          while (ack.hasRemaining()) {
+            if (ch.read(ack) < 0) {
+              return;
+            }
+          }
+          long seq = ack.flip().getLong();
+          synchronized (this) {
+            ackedSeq = Math.max(ackedSeq, seq);
+            notifyAll();
+          }
+        }
+      } catch (IOException e) {
+        // connection is gone either way
+      } finally {
+        closeQuietly(ch);
+        synchronized (this) {
+          notifyAll();
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits for events from {@code next} on and copies as many as fit into
+   * {@link #batch}. Returns the last sequence copied, or {@code next - 1} once
+   * closing with nothing left to send.
+   */
+  private long fillBatch(SocketChannel ch, long next) throws IOException {
+    synchronized (this) {
+      while (lastSeq < next && !closing && ch.isOpen()) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          return next - 1;
+        }
+      }
+      if (!ch.isOpen()) {
+        throw new IOException("receiver went away");
+      }
+      long oldest = Math.max(1, lastSeq - ring.length + 1);
+      long seq = Math.max(next, oldest);
+      batch.clear();
+      while (seq <= lastSeq) {
+        byte[] frame = ring[slot(seq)];
+        if (batch.position() > 0 && batch.position() + frame.length > options.maxBatchBytes()) {
+          break;
+        }
+        batch.put(frame);
+        seq++;
+      }
+      batch.flip();
+      return seq - 1;
+    }
+  }
+
+  /** On close: gives the receiver until the close deadline to acknowledge everything sent. */
+  private synchronized void awaitAcks(SocketChannel ch) {
+    long deadline = System.currentTimeMillis() + CLOSE_WAIT_MILLIS;
+    while (ackedSeq < sentSeq && ch.isOpen()) {
+      long left = deadline - System.currentTimeMillis();
+      if (left <= 0) {
+        return;
+      }
+      try {
+        wait(left);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /** Waits before the next connection attempt; false once closing. */
+  private synchronized boolean pause() {
+    if (closing) {
+      return false;
+    }
+    try {
+      wait(options.reconnectMillis());
+    } catch (InterruptedException e) {
+      return false;
+    }
+    return !closing;
+  }
+
+  private int slot(long seq) {
+    return (int) (seq % ring.length);
+  }
+
+  private static void closeQuietly(SocketChannel ch) {
+    if (ch != null) {
+      try {
+        ch.close();
+      } catch (IOException ignored) {
+        // nothing left to do with a socket that will not close
+      }
+    }
+  }
+}
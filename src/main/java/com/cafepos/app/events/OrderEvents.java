@@ -0,0 +1,30 @@
+package com.cafepos.app.events;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.observer.OrderEventType;
+
+/**
+ * Turns an observer notification into the matching {@link OrderEvent}. Reads
+ * the order's last line for {@code ITEM_ADDED}, so call it on the notifying thread.
+ */
+final class OrderEvents {
+
+  private OrderEvents() {
+  }
+
+  static OrderEvent from(Order order, OrderEventType type) {
+    long id = order.id();
+    return switch (type) {
+      case ITEM_ADDED -> itemAdded(id, order.items().get(order.items().size() - 1));
+      case ITEM_REMOVED -> new ItemRemoved(id);
+      case PAID -> new OrderPaid(id);
+      case READY -> new OrderReady(id);
+      case DELIVERED -> new OrderDelivered(id);
+    };
+  }
+
+  static ItemAdded itemAdded(long orderId, LineItem li) {
+    return new ItemAdded(orderId, li.product().id(), li.quantity(), li.unitPrice().cents());
+  }
+}
@@ -0,0 +1,113 @@
+package com.cafepos.app.events;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.observer.OrderEventType;
+import com.cafepos.observer.OrderObserver;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of {@link OrderEvent}s; positions start at 0.
+ *
+ * <p>Events live in fixed-size chunks, so growing never copies old events.
+ * Appends are serialised. Readers take no lock: an append becomes visible
+ * when the volatile size is written, after its slot. {@link #record} attaches
+ * the journal to an {@link Order} so its changes are appended as they happen.
+ */
+public final class OrderJournal {
+
+  private static final int CHUNK_BITS = 13;
+  private static final int CHUNK = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK - 1;
+
+  private final OrderObserver recorder = new OrderObserver() {
+    @Override
+    public void updated(Order order, OrderEventType type) {
+      append(OrderEvents.from(order, type));
+    }
+
+    @Override
+    public boolean needsNotifyingThread() {
+      return true;
+    }
+  };
+  private OrderEvent[][] chunks = new OrderEvent[16][];
+  private volatile long size;
+
+  public synchronized long append(OrderEvent event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event required");
+    }
+    long pos = size;
+    slot(pos);
+    chunks[(int) (pos >>> CHUNK_BITS)][(int) pos & CHUNK_MASK] = event;
+    size = pos + 1;
+    return pos;
+  }
+
+  /** Appends the batch atomically with respect to readers; returns the position of the last event. */
+  public synchronized long appendAll(List<? extends OrderEvent> events) {
+    if (events == null || events.contains(null)) {
+      throw new IllegalArgumentException("events required");
+    }
+    long pos = size;
+    for (OrderEvent e : events) {
+      slot(pos);
+      chunks[(int) (pos >>> CHUNK_BITS)][(int) pos & CHUNK_MASK] = e;
+      pos++;
+    }
+    size = pos;
+    return pos - 1;
+  }
+
+  /**
+   * Journals {@code order} from now on: appends {@link OrderCreated} and an
+   * {@link ItemAdded} per existing line, then follows its changes as an observer.
+   */
+  public synchronized void record(Order order) {
+    if (order == null) {
+      throw new IllegalArgumentException("order required");
+    }
+    append(new OrderCreated(order.id()));
+    for (LineItem li : order.items()) {
+      append(OrderEvents.itemAdded(order.id(), li));
+    }
+    order.register(recorder);
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /** Hands events {@code [from, size())} to {@code sink} in order; returns the position after the last one. */
+  public long replay(long from, Consumer<? super OrderEvent> sink) {
+    long end = size;
+    if (from < 0 || from > end) {
+      throw new IllegalArgumentException("from out of range: " + from);
+    }
+    OrderEvent[][] cs = chunks;
+    long pos = from;
+    while (pos < end) {
+      OrderEvent[] chunk = cs[(int) (pos >>> CHUNK_BITS)];
+      int i = (int) pos & CHUNK_MASK;
+      int stop = (int) Math.min(CHUNK, i + (end - pos));
+      for (int j = i; j < stop; j++) {
+        sink.accept(chunk[j]);
+      }
+      pos += stop - i;
+    }
+    return end;
+  }
+
+  private void slot(long pos) {
+    int c = (int) (pos >>> CHUNK_BITS);
+    if (c == chunks.length) {
+      chunks = Arrays.copyOf(chunks, c * 2);
+    }
+    if (chunks[c] == null) {
+      chunks[c] = new OrderEvent[CHUNK];
+    }
+  }
+}
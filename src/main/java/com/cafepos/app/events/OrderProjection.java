@@ -0,0 +1,7 @@
+package com.cafepos.app.events;
+
+/** A read model built by folding journal events in order. */
+@FunctionalInterface
+public interface OrderProjection {
+  void apply(OrderEvent event);
+}
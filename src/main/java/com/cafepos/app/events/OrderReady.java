@@ -0,0 +1,3 @@
+package com.cafepos.app.events;
+
+public record OrderReady(long orderId) implements OrderEvent {}
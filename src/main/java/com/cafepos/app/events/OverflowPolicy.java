@@ -0,0 +1,18 @@
+package com.cafepos.app.events;
+
+/** What {@link OrderEventPublisher#publish} does when a subscriber's buffer is full. */
+public enum OverflowPolicy {
+  /** Wait until the subscriber makes room, slowing the producer down. */
+  BLOCK,
+  /** Discard the subscriber's oldest pending event. */
+  DROP_OLDEST,
+  /**
+   * On a full buffer, first try to merge the new event into the newest buffered
+   * event of the same order: a status event ({@link OrderPaid}, {@link OrderReady},
+   * {@link OrderDelivered}) replaces a buffered status event, and an
+   * {@link ItemAdded} for the same product and price adds its quantity to a
+   * buffered one. Only if neither applies is the oldest event discarded, as with
+   * {@code DROP_OLDEST}. Nothing is merged while the buffer has room.
+   */
+  COALESCE
+}
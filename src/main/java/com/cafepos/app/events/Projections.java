@@ -0,0 +1,53 @@
+package com.cafepos.app.events;
+
+/**
+ * Keeps a set of projections up to date with an {@link OrderJournal}.
+ *
+ * <p>Each {@link #catchUp()} applies only the events appended since the last
+ * one, so a rebuild from scratch is just the first call. Projections are
+ * plain single-threaded objects; read them from the thread that calls
+ * {@code catchUp}, or under the same external lock.
+ */
+public final class Projections {
+
+  private final OrderJournal journal;
+  private final OrderProjection[] projections;
+  private long position;
+
+  public Projections(OrderJournal journal, OrderProjection... projections) {
+    if (journal == null) {
+      throw new IllegalArgumentException("journal required");
+    }
+    if (projections == null || projections.length == 0) {
+      throw new IllegalArgumentException("projections required");
+    }
+    for (OrderProjection p : projections) {
+      if (p == null) {
+        throw new IllegalArgumentException("projection required");
+      }
+    }
+    this.journal = journal;
+    this.projections = projections.clone();
+  }
+
+  /** Applies the journal's new events to every projection; returns how many were applied. */
+  public long catchUp() {
+    long from = position;
+    OrderProjection[] ps = projections;
+    if (ps.length == 1) {
+      position = journal.replay(from, ps[0]::apply);
+    } else {
+      position = journal.replay(from, e -> {
+        for (OrderProjection p : ps) {
+          p.apply(e);
+        }
+      });
+    }
+    return position - from;
+  }
+
+  /** Journal position the projections have reached. */
+  public long position() {
+    return position;
+  }
+}
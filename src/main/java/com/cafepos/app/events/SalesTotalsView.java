@@ -0,0 +1,78 @@
+package com.cafepos.app.events;
+
+import com.cafepos.common.Cents;
+import com.cafepos.common.Money;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Revenue (pre-tax subtotals) and units sold over paid orders. Lines are held
+ * only while an order is open; items added after payment are not counted.
+ */
+public final class SalesTotalsView implements OrderProjection {
+
+  private static final List<ItemAdded> CLOSED = List.of();
+
+  private final Map<Long, List<ItemAdded>> open = new HashMap<>();
+  private final Map<String, Long> units = new HashMap<>();
+  private long revenueCents;
+  private long ordersPaid;
+
+  @Override
+  public void apply(OrderEvent event) {
+    switch (event) {
+      case ItemAdded e -> {
+        List<ItemAdded> lines = open.computeIfAbsent(e.orderId(), k -> new ArrayList<>(4));
+        if (lines != CLOSED) {
+          lines.add(e);
+        }
+      }
+      case ItemRemoved e -> {
+        List<ItemAdded> lines = open.get(e.orderId());
+        if (lines != null && lines != CLOSED && !lines.isEmpty()) {
+          lines.remove(lines.size() - 1);
+        }
+      }
+      case OrderPaid e -> {
+        List<ItemAdded> lines = open.get(e.orderId());
+        if (lines == CLOSED) {
+          return;
+        }
+        long orderCents = 0;
+        if (lines != null) {
+          for (ItemAdded li : lines) {
+            orderCents = Cents.add(orderCents, Cents.multiply(li.unitCents(), li.quantity()));
+          }
+        }
+        revenueCents = Cents.add(revenueCents, orderCents);
+        open.put(e.orderId(), CLOSED);
+        ordersPaid++;
+        if (lines != null) {
+          for (ItemAdded li : lines) {
+            units.merge(li.productId(), (long) li.quantity(), Math::addExact);
+          }
+        }
+      }
+      case OrderDelivered e -> open.remove(e.orderId());
+      default -> { }
+    }
+  }
+
+  public Money revenue() {
+    return Money.ofCents(revenueCents);
+  }
+
+  public long ordersPaid() {
+    return ordersPaid;
+  }
+
+  public long unitsSold(String productId) {
+    return units.getOrDefault(productId, 0L);
+  }
+
+  public Map<String, Long> unitsSold() {
+    return Map.copyOf(units);
+  }
+}
@@ -0,0 +1,23 @@
+package com.cafepos.app.events;
+
+/**
+ * Per-subscriber settings for {@link OrderEventPublisher}.
+ *
+ * @param bufferSize events held for the subscriber beyond its current demand
+ * @param overflow   what to do when the buffer is full
+ */
+public record SubscriberOptions(int bufferSize, OverflowPolicy overflow) {
+
+  public SubscriberOptions {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize must be > 0");
+    }
+    if (overflow == null) {
+      throw new IllegalArgumentException("overflow required");
+    }
+  }
+
+  public static SubscriberOptions defaults() {
+    return new SubscriberOptions(256, OverflowPolicy.BLOCK);
+  }
+}
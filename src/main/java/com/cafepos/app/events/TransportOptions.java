@@ -0,0 +1,27 @@
+package com.cafepos.app.events;
+
+/**
+ * Tuning for {@link OrderEventSender}.
+ *
+ * @param replayCapacity  most recent events kept for replay after a reconnect
+ * @param maxBatchBytes   frames gathered into one socket write
+ * @param reconnectMillis wait between connection attempts
+ */
+public record TransportOptions(int replayCapacity, int maxBatchBytes, long reconnectMillis) {
+
+  public TransportOptions {
+    if (replayCapacity < 1) {
+      throw new IllegalArgumentException("replayCapacity must be > 0");
+    }
+    if (maxBatchBytes < 1) {
+      throw new IllegalArgumentException("maxBatchBytes must be > 0");
+    }
+    if (reconnectMillis < 1) {
+      throw new IllegalArgumentException("reconnectMillis must be > 0");
+    }
+  }
+
+  public static TransportOptions defaults() {
+    return new TransportOptions(65_536, 64 * 1024, 200);
+  }
+}
@@ -1,7 +1,5 @@
 package com.cafepos.checkout;
 
-import com.cafepos.catalog.Priced;
-import com.cafepos.catalog.Product;
 import com.cafepos.common.Money;
 import com.cafepos.factory.ProductFactory;
 import com.cafepos.pricing.PricingResult;
@@ -31,10 +29,9 @@ public final class CheckoutService {
   }
 
   public String checkout(String recipe, int qty) {
-    Product product = factory.create(recipe);
+    Money unit = factory.unitPrice(recipe);
     if (qty <= 0) qty = 1;
 
-    Money unit = (product instanceof Priced p) ? p.price() : product.basePrice();
     Money subtotal = unit.multiply(qty);
 
     PricingResult result = pricing.price(subtotal);
@@ -9,7 +9,7 @@ import com.cafepos.payment.PaymentStrategy;
 
 public final class OrderService {
 
-  private final ProductFactory factory = new ProductFactory();
+  private final ProductFactory factory = ProductFactory.shared();
   private final Order order;
 
   public OrderService(Order order) {
@@ -0,0 +1,74 @@
+package com.cafepos.common;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic on a {@code long} count of cents.
+ *
+ * <p>Every operation is overflow-checked ({@link ArithmeticException}) and rounds the
+ * same way the BigDecimal code did: scale 2, {@link RoundingMode#HALF_UP}.
+ */
+public final class Cents {
+
+  private Cents() {
+  }
+
+  public static long add(long a, long b) {
+    return Math.addExact(a, b);
+  }
+
+  public static long subtract(long a, long b) {
+    return Math.subtractExact(a, b);
+  }
+
+  public static long multiply(long cents, int quantity) {
+    return Math.multiplyExact(cents, (long) quantity);
+  }
+
+  /** {@code cents * percent / 100}, rounded HALF_UP to whole cents. */
+  public static long percentOf(long cents, int percent) {
+    return divideHalfUp(Math.multiplyExact(cents, (long) percent), 100);
+  }
+
+  /** Integer division rounding ties away from zero, as {@link RoundingMode#HALF_UP} does. */
+  public static long divideHalfUp(long dividend, long divisor) {
+    if (divisor == 0) {
+      throw new ArithmeticException("division by zero");
+    }
+    long q = dividend / divisor;
+    long r = dividend % divisor;
+    if (r != 0 && Math.abs(r) >= Math.abs(divisor) - Math.abs(r)) {
+      q += ((dividend ^ divisor) < 0) ? -1 : 1;
+    }
+    return q;
+  }
+
+  /** Rounds {@code value} to 2 decimal places (HALF_UP) and returns the unscaled cents. */
+  public static long fromBigDecimal(BigDecimal value) {
+    return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+  }
+
+  public static BigDecimal toBigDecimal(long cents) {
+    return BigDecimal.valueOf(cents, 2);
+  }
+
+  /** Same text as {@code toBigDecimal(cents).toString()}, without the BigDecimal. */
+  public static String format(long cents) {
+    return appendTo(new StringBuilder(24), cents).toString();
+  }
+
+  /** Appends the {@link #format(long)} text straight into {@code sb}. */
+  public static StringBuilder appendTo(StringBuilder sb, long cents) {
+    long whole = cents / 100;
+    int frac = (int) Math.abs(cents % 100);
+    if (cents < 0 && whole == 0) {
+      sb.append('-');
+    }
+    sb.append(whole).append('.');
+    if (frac < 10) {
+      sb.append('0');
+    }
+    return sb.append(frac);
+  }
+}
@@ -1,8 +1,6 @@
 package com.cafepos.common;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Objects;
 
 /*
  *
@@ -16,64 +14,75 @@ import java.util.Objects;
  */
 
 public final class Money implements Comparable<Money> {
-  private final BigDecimal amount;
+  private static final Money ZERO = new Money(0L);
 
-  private Money(BigDecimal a) {
-    if (a == null) {
-      throw new IllegalArgumentException("amount required");
-    }
+  private final long cents;
 
-    if (a.compareTo(BigDecimal.ZERO) < 0) {
+  private Money(long cents) {
+    if (cents < 0) {
       throw new IllegalArgumentException("amount cant be negative");
     }
-
-    this.amount = a.setScale(2, RoundingMode.HALF_UP);
+    this.cents = cents;
   }
 
   public static Money of(double value) {
-    return new Money(BigDecimal.valueOf(value));
+    return of(BigDecimal.valueOf(value));
   }
 
   public static Money zero() {
-    return new Money(BigDecimal.ZERO);
+    return ZERO;
   }
 
   public static Money of(BigDecimal value) {
-    return new Money(value);
+    if (value == null) {
+      throw new IllegalArgumentException("amount required");
+    }
+    if (value.signum() < 0) {
+      throw new IllegalArgumentException("amount cant be negative");
+    }
+    return ofCents(Cents.fromBigDecimal(value));
+  }
+
+  public static Money ofCents(long cents) {
+    return cents == 0 ? ZERO : new Money(cents);
+  }
+
+  public long cents() {
+    return cents;
   }
 
   public BigDecimal asBigDecimal() {
-    return amount;
+    return Cents.toBigDecimal(cents);
   }
 
   public Money add(Money other) {
     if (other == null) {
       throw new IllegalArgumentException("add(Money other) -> other cant be null");
     }
-    return new Money(this.amount.add(other.amount));
+    return ofCents(Cents.add(this.cents, other.cents));
   }
 
   public Money multiply(int quantity) {
     if (quantity < 0) {
       throw new IllegalArgumentException("quantity cant be < 0");
     }
-    return new Money(this.amount.multiply(new BigDecimal(quantity)));
+    return ofCents(Cents.multiply(this.cents, quantity));
   }
 
   public Money subtract(Money other) {
     if (other == null) {
       throw new IllegalArgumentException("subtract(Money other) -> other cant be null");
     }
-    BigDecimal result = this.amount.subtract(other.amount);
-    if (result.compareTo(BigDecimal.ZERO) < 0) {
+    long result = Cents.subtract(this.cents, other.cents);
+    if (result < 0) {
       throw new IllegalArgumentException("result cant be negative");
     }
-    return new Money(result);
+    return ofCents(result);
   }
 
   @Override
   public int compareTo(Money other) {
-    return this.amount.compareTo(other.amount);
+    return Long.compare(this.cents, other.cents);
   }
 
   @Override
@@ -83,16 +92,16 @@ public final class Money implements Comparable<Money> {
     if (o == null || getClass() != o.getClass())
       return false;
     Money money = (Money) o;
-    return amount.equals(money.amount);
+    return cents == money.cents;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(amount);
+    return Long.hashCode(cents);
   }
 
   @Override
   public String toString() {
-    return amount.toString();
+    return Cents.format(cents);
   }
 }
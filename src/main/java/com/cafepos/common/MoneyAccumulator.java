@@ -0,0 +1,62 @@
+package com.cafepos.common;
+
+/**
+ * Mutable running total in cents, for summing many amounts without creating an
+ * intermediate {@link Money} per step. Not thread-safe; use one per calculation.
+ */
+public final class MoneyAccumulator {
+
+  private long cents;
+
+  public MoneyAccumulator add(Money amount) {
+    if (amount == null) {
+      throw new IllegalArgumentException("amount required");
+    }
+    cents = Cents.add(cents, amount.cents());
+    return this;
+  }
+
+  public MoneyAccumulator addTimes(Money unit, int quantity) {
+    if (unit == null) {
+      throw new IllegalArgumentException("unit required");
+    }
+    if (quantity < 0) {
+      throw new IllegalArgumentException("quantity cant be < 0");
+    }
+    cents = Cents.add(cents, Cents.multiply(unit.cents(), quantity));
+    return this;
+  }
+
+  public MoneyAccumulator subtractTimes(Money unit, int quantity) {
+    if (unit == null) {
+      throw new IllegalArgumentException("unit required");
+    }
+    if (quantity < 0) {
+      throw new IllegalArgumentException("quantity cant be < 0");
+    }
+    cents = Cents.subtract(cents, Cents.multiply(unit.cents(), quantity));
+    return this;
+  }
+
+  public MoneyAccumulator reset() {
+    cents = 0;
+    return this;
+  }
+
+  public long cents() {
+    return cents;
+  }
+
+  public Money toMoney() {
+    return Money.ofCents(cents);
+  }
+
+  public StringBuilder appendTo(StringBuilder sb) {
+    return Cents.appendTo(sb, cents);
+  }
+
+  @Override
+  public String toString() {
+    return Cents.format(cents);
+  }
+}
@@ -0,0 +1,6 @@
+package com.cafepos.decorator;
+
+import com.cafepos.common.Money;
+
+public record AddOn(String name, Money surcharge) {
+}
@@ -0,0 +1,55 @@
+package com.cafepos.decorator;
+
+import com.cafepos.catalog.Priced;
+import com.cafepos.catalog.Product;
+import com.cafepos.common.Money;
+import java.util.List;
+
+/**
+ * A decorator chain compiled into one immutable product: name and price are
+ * worked out once, so reading them no longer walks the chain.
+ */
+public final class FlattenedProduct implements Product, Priced {
+
+  private final String id;
+  private final String name;
+  private final Money basePrice;
+  private final Money price;
+  private final List<AddOn> addOns;
+
+  public FlattenedProduct(String id, String name, Money basePrice, Money price, List<AddOn> addOns) {
+    if (id == null || name == null || basePrice == null || price == null || addOns == null) {
+      throw new IllegalArgumentException("id, name, prices and addOns required");
+    }
+    this.id = id;
+    this.name = name;
+    this.basePrice = basePrice;
+    this.price = price;
+    this.addOns = List.copyOf(addOns);
+  }
+
+  @Override
+  public String id() {
+    return id;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public Money basePrice() {
+    return basePrice;
+  }
+
+  @Override
+  public Money price() {
+    return price;
+  }
+
+  /** Add-ons in the order they were applied, innermost first. */
+  public List<AddOn> addOns() {
+    return addOns;
+  }
+}
@@ -24,5 +24,13 @@ public abstract class ProductDecorator implements Product, Priced {
     return base.basePrice();
   }
 
-  // Concrete decorators will override name() and provide price() method
+  public Product base() {
+    return base;
+  }
+
+  // Concrete decorators will override name() and provide price() method,
+  // plus the add-on label and surcharge used when the chain is flattened
+  public abstract String addOnName();
+
+  public abstract Money surcharge();
 }
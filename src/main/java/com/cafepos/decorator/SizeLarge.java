@@ -20,4 +20,14 @@ public final class SizeLarge extends ProductDecorator {
   public Money price() {
     return (base instanceof Priced p ? p.price() : base.basePrice()).add(SURCHARGE);
   }
+
+  @Override
+  public String addOnName() {
+    return "Large";
+  }
+
+  @Override
+  public Money surcharge() {
+    return SURCHARGE;
+  }
 }
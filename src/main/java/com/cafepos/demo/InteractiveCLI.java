@@ -18,6 +18,13 @@ public final class InteractiveCLI {
     private static final ProductFactory factory = new ProductFactory();
     private static final TaxPolicy taxPolicy = new FixedRateTaxPolicy(10);
     private static final ReceiptPrinter receiptPrinter = new ReceiptPrinter();
+    private static final ObserverChannel till = new ObserverChannel();
+
+    static {
+        till.register(new KitchenDisplay());
+        till.register(new DeliveryDesk());
+        till.register(new CustomerNotifier());
+    }
 
     public static void main(String[] args) {
 
@@ -31,10 +38,8 @@ public final class InteractiveCLI {
             try {
                 Order order = new Order(OrderIds.next());
 
-                // Register observers
-                order.register(new KitchenDisplay());
-                order.register(new DeliveryDesk());
-                order.register(new CustomerNotifier());
+                // Observers are registered once on the till's channel
+                order.attach(till);
 
                 // Build the order
                 boolean orderingComplete = false;
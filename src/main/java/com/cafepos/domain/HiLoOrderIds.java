@@ -0,0 +1,77 @@
+package com.cafepos.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hi/lo id generator: ids are handed out from blocks reserved in bulk from a
+ * {@link BlockSource}, so the shared source (a file, a database row) is touched
+ * once per block, not once per id.
+ *
+ * <p>Blocks live in lock stripes picked by thread id, so threads on different
+ * cores rarely share a lock or a cache line. A single thread gets consecutive
+ * ids. Ids are unique but only increasing within a stripe; unused ids in a
+ * stripe's block are lost at shutdown.
+ */
+public final class HiLoOrderIds implements OrderIdGenerator {
+
+  /** Reserves {@code size} ids nobody else will ever get and returns the first. */
+  @FunctionalInterface
+  public interface BlockSource {
+    long reserve(int size);
+  }
+
+  private final BlockSource source;
+  private final int blockSize;
+  private final Stripe[] stripes;
+
+  public HiLoOrderIds(BlockSource source, int blockSize) {
+    this(source, blockSize, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  public HiLoOrderIds(BlockSource source, int blockSize, int stripes) {
+    if (source == null) {
+      throw new IllegalArgumentException("source required");
+    }
+    if (blockSize < 1 || stripes < 1) {
+      throw new IllegalArgumentException("blockSize and stripes must be >= 1");
+    }
+    int n = 1;
+    while (n < stripes) {
+      n <<= 1;
+    }
+    this.source = source;
+    this.blockSize = blockSize;
+    this.stripes = new Stripe[n];
+    for (int i = 0; i < n; i++) {
+      this.stripes[i] = new Stripe();
+    }
+  }
+
+  /** A process-local source whose first id is {@code after + 1}. */
+  public static BlockSource inMemory(long after) {
+    AtomicLong watermark = new AtomicLong(after);
+    return size -> watermark.getAndAdd(size) + 1;
+  }
+
+  @Override
+  public long next() {
+    Stripe s = stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+    synchronized (s) {
+      if (s.next == s.end) {
+        long first = source.reserve(blockSize);
+        s.next = first;
+        s.end = first + blockSize;
+      }
+      return s.next++;
+    }
+  }
+
+  /** Padded so neighbouring stripes do not share a cache line. */
+  @SuppressWarnings("unused")
+  private static final class Stripe {
+    long p1, p2, p3, p4, p5, p6, p7;
+    long next;
+    long end;
+    long q1, q2, q3, q4, q5, q6, q7;
+  }
+}
@@ -0,0 +1,22 @@
+package com.cafepos.domain;
+
+import java.util.List;
+
+/**
+ * An {@link OrderRepository} that can also answer queries from secondary indexes
+ * instead of scanning every order. Indexes reflect each order as of its last
+ * {@code save}. Results are ordered by creation time, then id. Time ranges are
+ * half-open: {@code [fromMillis, toMillis)}.
+ */
+public interface IndexedOrderRepository extends OrderRepository {
+  List<Order> findByStatus(OrderStatus status);
+
+  List<Order> findByStatusCreatedBetween(OrderStatus status, long fromMillis, long toMillis);
+
+  List<Order> findCreatedBetween(long fromMillis, long toMillis);
+
+  /** @param productKey a product id such as {@code P-LAT}, or an add-on name such as {@code Oat Milk} */
+  List<Order> findByProduct(String productKey);
+
+  List<Order> findByProductCreatedBetween(String productKey, long fromMillis, long toMillis);
+}
@@ -28,8 +28,11 @@ public final class LineItem {
     return quantity;
   }
 
+  public Money unitPrice() {
+    return (product instanceof Priced p) ? p.price() : product.basePrice();
+  }
+
   public Money lineTotal() {
-    Money unit = (product instanceof Priced p) ? p.price() : product.basePrice();
-    return unit.multiply(quantity);
+    return unitPrice().multiply(quantity);
   }
 }
@@ -1,10 +1,12 @@
 package com.cafepos.domain;
 
+import com.cafepos.common.Cents;
 import com.cafepos.common.Money;
+import com.cafepos.common.MoneyAccumulator;
+import com.cafepos.observer.ObserverChannel;
+import com.cafepos.observer.OrderEventType;
 import com.cafepos.observer.OrderObserver;
 import com.cafepos.payment.PaymentStrategy;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -12,28 +14,71 @@ import java.util.List;
 public final class Order {
 
   private final long id;
+  private final long createdAt;
+  private OrderStatus status = OrderStatus.OPEN;
   private final List<LineItem> items = new ArrayList<>();
-  private final List<OrderObserver> observers = new ArrayList<>();
+  private ObserverChannel channel;
+  // Observers registered on this order alone; null until the first register.
+  private ObserverChannel observers;
+
+  // Running totals, updated by addItem/removeLastItem so queries don't rescan items.
+  private final MoneyAccumulator running = new MoneyAccumulator();
+  private Money subtotal = Money.zero();
+  private int cachedPercent = -1;
+  private Money cachedTax;
+  private Money cachedTotal;
 
   public Order(long id) {
+    this(id, System.currentTimeMillis());
+  }
+
+  public Order(long id, long createdAtMillis) {
     this.id = id;
+    this.createdAt = createdAtMillis;
+  }
+
+  /** Rebuilds a persisted order as it was saved; observers are not notified. */
+  public static Order restore(long id, long createdAtMillis, OrderStatus status, List<LineItem> items) {
+    if (status == null || items == null) {
+      throw new IllegalArgumentException("status and items required");
+    }
+    Order o = new Order(id, createdAtMillis);
+    for (LineItem li : items) {
+      o.addItem(li);
+    }
+    o.status = status;
+    return o;
   }
 
   public long id() {
     return id;
   }
 
+  /** Creation time in epoch milliseconds. */
+  public long createdAt() {
+    return createdAt;
+  }
+
+  public OrderStatus status() {
+    return status;
+  }
+
   public void addItem(LineItem li) {
     if (li == null) {
       throw new IllegalArgumentException("lineItem required");
     }
+    running.addTimes(li.unitPrice(), li.quantity());
     items.add(li);
-    notifyObservers("itemAdded");
+    totalsChanged();
+    notifyObservers(OrderEventType.ITEM_ADDED);
   }
 
   public void removeLastItem() {
     if (!items.isEmpty()) {
-      items.remove(items.size() - 1);
+      LineItem li = items.remove(items.size() - 1);
+      running.subtractTimes(li.unitPrice(), li.quantity());
+      totalsChanged();
+      notifyObservers(OrderEventType.ITEM_REMOVED);
     }
   }
 
@@ -42,24 +87,33 @@ public final class Order {
   }
 
   public Money subtotal() {
-    return items.stream()
-        .map(LineItem::lineTotal)
-        .reduce(Money.zero(), Money::add);
+    return subtotal;
   }
 
   public Money taxAtPercent(int percent) {
+    cacheTotals(percent);
+    return cachedTax;
+  }
+
+  public Money totalWithTax(int percent) {
+    cacheTotals(percent);
+    return cachedTotal;
+  }
+
+  private void cacheTotals(int percent) {
     if (percent < 0) {
       throw new IllegalArgumentException("percent cannot be negative");
     }
-    BigDecimal subtotalAmount = new BigDecimal(subtotal().toString());
-    BigDecimal taxAmount = subtotalAmount
-        .multiply(new BigDecimal(percent))
-        .divide(new BigDecimal(100), 2, RoundingMode.HALF_UP);
-    return Money.of(taxAmount.doubleValue());
+    if (percent != cachedPercent) {
+      cachedTax = Money.ofCents(Cents.percentOf(subtotal.cents(), percent));
+      cachedTotal = subtotal.add(cachedTax);
+      cachedPercent = percent;
+    }
   }
 
-  public Money totalWithTax(int percent) {
-    return subtotal().add(taxAtPercent(percent));
+  private void totalsChanged() {
+    subtotal = running.toMoney();
+    cachedPercent = -1;
   }
 
   public void pay(PaymentStrategy strategy) {
@@ -67,29 +121,65 @@ public final class Order {
       throw new IllegalArgumentException("strategy required");
     }
     strategy.pay(this);
-    notifyObservers("paid");
+    status = OrderStatus.PAID;
+    notifyObservers(OrderEventType.PAID);
   }
 
   public void markReady() {
-    notifyObservers("ready");
+    status = OrderStatus.READY;
+    notifyObservers(OrderEventType.READY);
+  }
+
+  public void markDelivered() {
+    status = OrderStatus.DELIVERED;
+    notifyObservers(OrderEventType.DELIVERED);
+  }
+
+  /**
+   * Shares {@code channel}'s observers with this order; {@code null} detaches.
+   * The channel is notified before observers registered on the order itself.
+   */
+  public void attach(ObserverChannel channel) {
+    this.channel = channel;
+  }
+
+  public ObserverChannel channel() {
+    return channel;
   }
 
+  /** Registers {@code o} on this order only, for the kinds in its {@link OrderObserver#interests()}. */
   public void register(OrderObserver o) {
     if (o == null) {
       throw new IllegalArgumentException("observer required");
     }
-    if (!observers.contains(o)) {
-      observers.add(o);
-    }
+    own().register(o);
+  }
+
+  /** Registers {@code o} on this order only, for the given kinds. */
+  public void register(OrderObserver o, OrderEventType first, OrderEventType... more) {
+    own().register(o, first, more);
   }
 
+  /** Removes {@code o} from this order's own observers; the attached channel is untouched. */
   public void unregister(OrderObserver o) {
-    observers.remove(o);
+    if (observers != null) {
+      observers.unregister(o);
+    }
   }
 
-  private void notifyObservers(String eventType) {
-    for (OrderObserver observer : observers) {
-      observer.updated(this, eventType);
+  private ObserverChannel own() {
+    if (observers == null) {
+      observers = new ObserverChannel();
+    }
+    return observers;
+  }
+
+  private void notifyObservers(OrderEventType type) {
+    if (channel != null) {
+      channel.notifyObservers(this, type);
+    }
+    if (observers != null) {
+      observers.notifyObservers(this, type);
     }
   }
 }
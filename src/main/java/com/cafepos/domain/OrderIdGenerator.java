@@ -0,0 +1,7 @@
+package com.cafepos.domain;
+
+/** Source of order ids; every implementation must be thread-safe. */
+@FunctionalInterface
+public interface OrderIdGenerator {
+  long next();
+}
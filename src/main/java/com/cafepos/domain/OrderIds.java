@@ -1,15 +1,25 @@
 package com.cafepos.domain;
 
-import java.util.concurrent.atomic.AtomicLong;
-
+/**
+ * Process-wide order id source. By default ids come from in-memory hi/lo blocks
+ * starting at 1001, which is only unique within one JVM run. Tills that share
+ * storage or restart should {@link #use} a persisted or node-aware generator.
+ */
 public final class OrderIds {
 
-  private static final AtomicLong counter = new AtomicLong(1000);
+  private static volatile OrderIdGenerator generator = new HiLoOrderIds(HiLoOrderIds.inMemory(1000), 1024);
 
   private OrderIds() {
   }
 
   public static long next() {
-    return counter.incrementAndGet();
+    return generator.next();
+  }
+
+  public static void use(OrderIdGenerator g) {
+    if (g == null) {
+      throw new IllegalArgumentException("generator required");
+    }
+    generator = g;
   }
 }
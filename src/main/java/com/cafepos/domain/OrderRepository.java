@@ -1,8 +1,21 @@
 package com.cafepos.domain;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrderRepository {
   void save(Order order);
+
+  /** Saves a batch under one lock (and, for durable stores, one fsync) instead of one per order. */
+  void saveAll(Collection<Order> orders);
+
   Optional<Order> findById(long id);
+
+  /**
+   * Every stored order, in no particular order. The stream reads the store in
+   * place and splits for {@code parallel()} use; orders saved while it runs may
+   * or may not be seen.
+   */
+  Stream<Order> stream();
 }
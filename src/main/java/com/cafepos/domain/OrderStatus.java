@@ -0,0 +1,8 @@
+package com.cafepos.domain;
+
+public enum OrderStatus {
+  OPEN,
+  PAID,
+  READY,
+  DELIVERED
+}
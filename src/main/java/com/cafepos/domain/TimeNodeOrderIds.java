@@ -0,0 +1,64 @@
+package com.cafepos.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Coordination-free ids for many tills: 41 bits of milliseconds since
+ * 2024-01-01 UTC, a 10-bit node id, then a 12-bit sequence. Nodes with
+ * different ids never collide, and nothing is stored.
+ *
+ * <p>Ids only ever increase on a node. When the clock goes back, or more than
+ * 4096 ids are needed in one millisecond, the generator runs ahead of the clock
+ * instead of waiting. A node restarted while still ahead could repeat ids, so
+ * give it a new node id, or use {@link HiLoOrderIds} with a persisted source.
+ * One CAS per id; under heavy contention {@link HiLoOrderIds} scales better.
+ */
+public final class TimeNodeOrderIds implements OrderIdGenerator {
+
+  public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+  public static final int NODE_BITS = 10;
+  public static final int SEQUENCE_BITS = 12;
+  public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+  private final long node;
+  private final LongSupplier clock;
+  private final AtomicLong last = new AtomicLong(); // (millis << SEQUENCE_BITS) | sequence
+
+  public TimeNodeOrderIds(int node) {
+    this(node, System::currentTimeMillis);
+  }
+
+  public TimeNodeOrderIds(int node, LongSupplier clock) {
+    if (node < 0 || node > MAX_NODE) {
+      throw new IllegalArgumentException("node must be between 0 and " + MAX_NODE);
+    }
+    if (clock == null) {
+      throw new IllegalArgumentException("clock required");
+    }
+    this.node = node;
+    this.clock = clock;
+  }
+
+  @Override
+  public long next() {
+    long floor = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+    long prev;
+    long stamp;
+    do {
+      prev = last.get();
+      stamp = Math.max(prev + 1, floor);
+    } while (!last.compareAndSet(prev, stamp));
+    long millis = stamp >>> SEQUENCE_BITS;
+    long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+    return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+  }
+
+  public static int nodeOf(long id) {
+    return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE);
+  }
+
+  public static long millisOf(long id) {
+    return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+  }
+}
@@ -1,40 +1,115 @@
 package com.cafepos.factory;
 
+import com.cafepos.catalog.Priced;
 import com.cafepos.catalog.Product;
 import com.cafepos.catalog.SimpleProduct;
 import com.cafepos.common.Money;
 import com.cafepos.decorator.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ProductFactory {
 
+  public static final int DEFAULT_CACHE_CAPACITY = 256;
+
+  private static final ProductFactory SHARED = new ProductFactory();
+
+  private final RecipeCache cache;
+
+  public ProductFactory() {
+    this(DEFAULT_CACHE_CAPACITY);
+  }
+
+  /** @param cacheCapacity max cached recipes; 0 disables caching */
+  public ProductFactory(int cacheCapacity) {
+    if (cacheCapacity < 0) {
+      throw new IllegalArgumentException("cacheCapacity cannot be negative");
+    }
+    this.cache = cacheCapacity == 0 ? null : new RecipeCache(cacheCapacity);
+  }
+
+  /** Process-wide factory, so short-lived callers still share one recipe cache. */
+  public static ProductFactory shared() {
+    return SHARED;
+  }
+
   public Product create(String recipe) {
     if (recipe == null || recipe.isBlank()) {
       throw new IllegalArgumentException("recipe required");
     }
+    if (cache == null) {
+      return build(recipe);
+    }
+    return cache.get(RecipeCache.normalize(recipe), this::build);
+  }
+
+  /**
+   * Unit price via the recipe's {@link RecipeCodes} code; no Product is built
+   * unless the recipe has too many of one add-on to have a code.
+   */
+  public Money unitPrice(String recipe) {
+    if (recipe == null || recipe.isBlank()) {
+      throw new IllegalArgumentException("recipe required");
+    }
+    long code = RecipeCodes.tryEncode(recipe);
+    if (code < 0) {
+      return ((Priced) create(recipe)).price();
+    }
+    return RecipeCodes.price(code);
+  }
+
+  public RecipeCache.Stats cacheStats() {
+    return cache == null ? new RecipeCache.Stats(0, 0, 0, 0) : cache.stats();
+  }
+
+  private Product build(String recipe) {
+    ChainBuilder chain = new ChainBuilder();
+    RecipeParser.parse(recipe, chain);
+    return flatten(chain.product);
+  }
+
+  private static final class ChainBuilder implements RecipeParser.Handler {
+    Product product;
 
-    String[] raw = recipe.split("\\+"); // literal '+'
-    String[] parts = java.util.Arrays.stream(raw)
-        .map(String::trim)
-        .map(String::toUpperCase)
-        .toArray(String[]::new);
-
-    Product p = switch (parts[0]) {
-      case "ESP" -> new SimpleProduct("P-ESP", "Espresso", Money.of(2.50));
-      case "LAT" -> new SimpleProduct("P-LAT", "Latte", Money.of(3.20));
-      case "CAP" -> new SimpleProduct("P-CAP", "Cappuccino", Money.of(3.00));
-      default -> throw new IllegalArgumentException("Unknown base: " + parts[0]);
-    };
-
-    for (int i = 1; i < parts.length; i++) {
-      p = switch (parts[i]) {
-        case "SHOT" -> new ExtraShot(p);
-        case "OAT" -> new OatMilk(p);
-        case "SYP" -> new Syrup(p);
-        case "L" -> new SizeLarge(p);
-        default -> throw new IllegalArgumentException("Unknown addon: " + parts[i]);
+    @Override
+    public void base(int baseId) {
+      product = switch (baseId) {
+        case RecipeParser.BASE_ESP -> new SimpleProduct("P-ESP", "Espresso", Money.of(2.50));
+        case RecipeParser.BASE_LAT -> new SimpleProduct("P-LAT", "Latte", Money.of(3.20));
+        case RecipeParser.BASE_CAP -> new SimpleProduct("P-CAP", "Cappuccino", Money.of(3.00));
+        default -> throw new IllegalArgumentException("Unknown base id: " + baseId);
       };
     }
 
-    return p;
+    @Override
+    public void addOn(int addOnId) {
+      product = switch (addOnId) {
+        case RecipeParser.ADDON_SHOT -> new ExtraShot(product);
+        case RecipeParser.ADDON_OAT -> new OatMilk(product);
+        case RecipeParser.ADDON_SYP -> new Syrup(product);
+        case RecipeParser.ADDON_L -> new SizeLarge(product);
+        default -> throw new IllegalArgumentException("Unknown addon id: " + addOnId);
+      };
+    }
+  }
+
+  /** Compiles a decorator chain into one {@link FlattenedProduct}; other products pass through. */
+  public Product flatten(Product product) {
+    if (!(product instanceof ProductDecorator top)) {
+      return product;
+    }
+    ArrayDeque<AddOn> addOns = new ArrayDeque<>();
+    Product p = product;
+    while (p instanceof ProductDecorator d) {
+      addOns.addFirst(new AddOn(d.addOnName(), d.surcharge()));
+      p = d.base();
+    }
+    List<AddOn> breakdown = new ArrayList<>();
+    if (p instanceof FlattenedProduct inner) {
+      breakdown.addAll(inner.addOns());
+    }
+    breakdown.addAll(addOns);
+    return new FlattenedProduct(top.id(), top.name(), top.basePrice(), top.price(), breakdown);
   }
 }
@@ -0,0 +1,131 @@
+package com.cafepos.factory;
+
+import com.cafepos.catalog.Product;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, thread-safe recipe-to-Product cache with least-recently-used eviction.
+ *
+ * <p>Hits are a lock-free map read plus a timestamp write; only eviction, which
+ * happens on a miss once the cache is full, takes a lock. Cached products are
+ * immutable and shared between callers.
+ */
+public final class RecipeCache {
+
+  public record Stats(long hits, long misses, long evictions, int size) {
+  }
+
+  private static final class Entry {
+    final Product product;
+    volatile long lastUsed;
+
+    Entry(Product product) {
+      this.product = product;
+      this.lastUsed = System.nanoTime();
+    }
+  }
+
+  private final int capacity;
+  private final ConcurrentHashMap<String, Entry> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public RecipeCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be > 0");
+    }
+    this.capacity = capacity;
+    this.entries = new ConcurrentHashMap<>(capacity * 2);
+  }
+
+  public Product get(String key, Function<String, Product> loader) {
+    Entry e = entries.get(key);
+    if (e != null) {
+      e.lastUsed = System.nanoTime();
+      hits.increment();
+      return e.product;
+    }
+    misses.increment();
+    Entry fresh = new Entry(loader.apply(key));
+    Entry prev = entries.putIfAbsent(key, fresh);
+    if (prev != null) {
+      prev.lastUsed = System.nanoTime();
+      return prev.product;
+    }
+    if (entries.size() > capacity) {
+      evict();
+    }
+    return fresh.product;
+  }
+
+  private synchronized void evict() {
+    while (entries.size() > capacity) {
+      Map.Entry<String, Entry> oldest = null;
+      for (Map.Entry<String, Entry> me : entries.entrySet()) {
+        if (oldest == null || me.getValue().lastUsed < oldest.getValue().lastUsed) {
+          oldest = me;
+        }
+      }
+      if (oldest == null) {
+        return;
+      }
+      if (entries.remove(oldest.getKey(), oldest.getValue())) {
+        evictions.increment();
+      }
+    }
+  }
+
+  public Stats stats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Canonical cache key: each '+'-separated code trimmed and upper-cased.
+   * Recipes that are already canonical are returned as-is.
+   */
+  static String normalize(String recipe) {
+    if (isCanonical(recipe)) {
+      return recipe;
+    }
+    int n = recipe.length();
+    StringBuilder sb = new StringBuilder(n);
+    int start = 0;
+    while (true) {
+      int plus = recipe.indexOf('+', start);
+      int a = start;
+      int b = plus < 0 ? n : plus;
+      while (a < b && recipe.charAt(a) <= ' ') {
+        a++;
+      }
+      while (b > a && recipe.charAt(b - 1) <= ' ') {
+        b--;
+      }
+      for (int i = a; i < b; i++) {
+        sb.append(Character.toUpperCase(recipe.charAt(i)));
+      }
+      if (plus < 0) {
+        return sb.toString();
+      }
+      sb.append('+');
+      start = plus + 1;
+    }
+  }
+
+  private static boolean isCanonical(String recipe) {
+    for (int i = 0; i < recipe.length(); i++) {
+      char c = recipe.charAt(i);
+      if (c <= ' ' || Character.toUpperCase(c) != c) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,226 @@
+package com.cafepos.factory;
+
+import com.cafepos.catalog.Priced;
+import com.cafepos.catalog.Product;
+import com.cafepos.common.Cents;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.AddOn;
+import com.cafepos.decorator.FlattenedProduct;
+import com.cafepos.decorator.ProductDecorator;
+
+/**
+ * Canonical 64-bit recipe codes.
+ *
+ * <p>Layout: bits 0-7 hold the base id, then one 8-bit count per add-on
+ * (SHOT at bit 8, OAT at 16, SYP at 24, L at 32). Add-on order is not encoded,
+ * so {@code LAT+OAT+SHOT} and {@code LAT+SHOT+OAT} share a code and a price.
+ * Codes with at most 7 of each add-on are priced from a precomputed table.
+ */
+public final class RecipeCodes {
+
+  public static final int BASES = 3;
+  public static final int ADDONS = 4;
+  public static final int MAX_COUNT = 0xFF;
+
+  private static final int TABLE_COUNT = 8;
+  private static final int TABLE_SIZE = BASES * TABLE_COUNT * TABLE_COUNT * TABLE_COUNT * TABLE_COUNT;
+
+  private static final String[] BASE_CODES = {"ESP", "LAT", "CAP"};
+  private static final String[] ADDON_CODES = {"SHOT", "OAT", "SYP", "L"};
+
+  private static final long[] BASE_CENTS = new long[BASES];
+  private static final String[] BASE_NAMES = new String[BASES];
+  private static final String[] BASE_PRODUCT_IDS = new String[BASES];
+  private static final long[] ADDON_CENTS = new long[ADDONS];
+  private static final String[] ADDON_SUFFIXES = new String[ADDONS];
+  private static final String[] ADDON_NAMES = new String[ADDONS];
+
+  private static final Money[] PRICES = new Money[TABLE_SIZE];
+  private static final String[] NAMES = new String[TABLE_SIZE];
+
+  static {
+    // Take prices and names from the real products so the decorators stay the source of truth.
+    ProductFactory plain = new ProductFactory(0);
+    for (int b = 0; b < BASES; b++) {
+      Product p = plain.create(BASE_CODES[b]);
+      BASE_CENTS[b] = ((Priced) p).price().cents();
+      BASE_NAMES[b] = p.name();
+      BASE_PRODUCT_IDS[b] = p.id();
+    }
+    Product esp = plain.create(BASE_CODES[RecipeParser.BASE_ESP]);
+    for (int a = 0; a < ADDONS; a++) {
+      var p = (FlattenedProduct) plain.create(BASE_CODES[RecipeParser.BASE_ESP] + "+" + ADDON_CODES[a]);
+      ADDON_CENTS[a] = p.addOns().get(0).surcharge().cents();
+      ADDON_NAMES[a] = p.addOns().get(0).name();
+      ADDON_SUFFIXES[a] = p.name().substring(esp.name().length());
+    }
+    for (int i = 0; i < TABLE_SIZE; i++) {
+      long code = codeOfIndex(i);
+      PRICES[i] = Money.ofCents(computeCents(code));
+      NAMES[i] = computeName(code);
+    }
+  }
+
+  private RecipeCodes() {
+  }
+
+  public static long encode(CharSequence recipe) {
+    if (recipe == null) {
+      throw new IllegalArgumentException("recipe required");
+    }
+    Encoder e = new Encoder();
+    RecipeParser.parse(recipe, e);
+    if (e.overflowed >= 0) {
+      throw new IllegalArgumentException("too many " + ADDON_CODES[e.overflowed] + " add-ons");
+    }
+    return e.code;
+  }
+
+  /** Like {@link #encode}, but -1 for a valid recipe with more than {@link #MAX_COUNT} of one add-on. */
+  static long tryEncode(CharSequence recipe) {
+    if (recipe == null) {
+      throw new IllegalArgumentException("recipe required");
+    }
+    Encoder e = new Encoder();
+    RecipeParser.parse(recipe, e);
+    return e.overflowed >= 0 ? -1 : e.code;
+  }
+
+  /**
+   * The code of a product built from a recipe (a base product, decorated or
+   * flattened), or -1 for anything else, such as a catalog product with its own id.
+   */
+  public static long codeOf(Product product) {
+    if (product == null) {
+      throw new IllegalArgumentException("product required");
+    }
+    long code = 0;
+    Product p = product;
+    while (p instanceof ProductDecorator d) {
+      code = addAddOn(code, d.addOnName());
+      p = d.base();
+    }
+    if (p instanceof FlattenedProduct f) {
+      for (AddOn a : f.addOns()) {
+        code = addAddOn(code, a.name());
+      }
+    }
+    if (code < 0) {
+      return -1;
+    }
+    for (int b = 0; b < BASES; b++) {
+      if (BASE_PRODUCT_IDS[b].equals(p.id())) {
+        return code | b;
+      }
+    }
+    return -1;
+  }
+
+  public static int baseId(long code) {
+    int base = (int) (code & 0xFF);
+    if (base >= BASES || (code >>> (8 * (ADDONS + 1))) != 0) {
+      throw new IllegalArgumentException("invalid recipe code: " + Long.toHexString(code));
+    }
+    return base;
+  }
+
+  public static int count(long code, int addOnId) {
+    return (int) ((code >>> (8 * (addOnId + 1))) & 0xFF);
+  }
+
+  public static Money price(long code) {
+    int idx = tableIndex(code);
+    return idx >= 0 ? PRICES[idx] : Money.ofCents(computeCents(code));
+  }
+
+  /** Canonical name, add-ons in SHOT, OAT, SYP, L order. */
+  public static String name(long code) {
+    int idx = tableIndex(code);
+    return idx >= 0 ? NAMES[idx] : computeName(code);
+  }
+
+  /** Canonical recipe text for a code, e.g. {@code LAT+SHOT+SHOT+L}. */
+  public static String toRecipe(long code) {
+    StringBuilder sb = new StringBuilder(BASE_CODES[baseId(code)]);
+    for (int a = 0; a < ADDONS; a++) {
+      for (int n = count(code, a); n > 0; n--) {
+        sb.append('+').append(ADDON_CODES[a]);
+      }
+    }
+    return sb.toString();
+  }
+
+  /** Adds one add-on by name; -1 stays -1 and marks an unknown or overflowing add-on. */
+  private static long addAddOn(long code, String name) {
+    if (code < 0) {
+      return code;
+    }
+    for (int a = 0; a < ADDONS; a++) {
+      if (ADDON_NAMES[a].equals(name)) {
+        int shift = 8 * (a + 1);
+        return ((code >>> shift) & 0xFF) == MAX_COUNT ? -1 : code + (1L << shift);
+      }
+    }
+    return -1;
+  }
+
+  private static int tableIndex(long code) {
+    int idx = baseId(code);
+    for (int a = 0; a < ADDONS; a++) {
+      int c = count(code, a);
+      if (c >= TABLE_COUNT) {
+        return -1;
+      }
+      idx = idx * TABLE_COUNT + c;
+    }
+    return idx;
+  }
+
+  private static long codeOfIndex(int idx) {
+    long code = 0;
+    for (int a = ADDONS - 1; a >= 0; a--) {
+      code |= (long) (idx % TABLE_COUNT) << (8 * (a + 1));
+      idx /= TABLE_COUNT;
+    }
+    return code | idx;
+  }
+
+  private static long computeCents(long code) {
+    long cents = BASE_CENTS[baseId(code)];
+    for (int a = 0; a < ADDONS; a++) {
+      cents = Cents.add(cents, Cents.multiply(ADDON_CENTS[a], count(code, a)));
+    }
+    return cents;
+  }
+
+  private static String computeName(long code) {
+    StringBuilder sb = new StringBuilder(BASE_NAMES[baseId(code)]);
+    for (int a = 0; a < ADDONS; a++) {
+      for (int n = count(code, a); n > 0; n--) {
+        sb.append(ADDON_SUFFIXES[a]);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static final class Encoder implements RecipeParser.Handler {
+    long code;
+    int overflowed = -1;
+
+    @Override
+    public void base(int baseId) {
+      code = baseId;
+    }
+
+    @Override
+    public void addOn(int addOnId) {
+      int shift = 8 * (addOnId + 1);
+      if (((code >>> shift) & 0xFF) == MAX_COUNT) {
+        // keep parsing so a bad recipe is still rejected as such
+        overflowed = addOnId;
+        return;
+      }
+      code += 1L << shift;
+    }
+  }
+}
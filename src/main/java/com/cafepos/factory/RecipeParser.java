@@ -0,0 +1,96 @@
+package com.cafepos.factory;
+
+/**
+ * Single-pass, allocation-free tokenizer for recipes such as {@code "LAT+SHOT+OAT+L"}.
+ *
+ * <p>Codes are matched case-insensitively straight from the {@link CharSequence},
+ * with whitespace around each code ignored. Only the error path builds strings.
+ * Splitting rules match {@code recipe.split("\\+")}: trailing empty codes are
+ * dropped, other empty codes are errors.
+ */
+public final class RecipeParser {
+
+  public static final int BASE_ESP = 0;
+  public static final int BASE_LAT = 1;
+  public static final int BASE_CAP = 2;
+
+  public static final int ADDON_SHOT = 0;
+  public static final int ADDON_OAT = 1;
+  public static final int ADDON_SYP = 2;
+  public static final int ADDON_L = 3;
+
+  private static final String[] BASE_CODES = {"ESP", "LAT", "CAP"};
+  private static final String[] ADDON_CODES = {"SHOT", "OAT", "SYP", "L"};
+
+  public interface Handler {
+    void base(int baseId);
+
+    void addOn(int addOnId);
+  }
+
+  private RecipeParser() {
+  }
+
+  public static void parse(CharSequence recipe, Handler handler) {
+    int end = recipe.length();
+    while (end > 0 && recipe.charAt(end - 1) == '+') {
+      end--;
+    }
+    int start = 0;
+    boolean first = true;
+    while (true) {
+      int plus = start;
+      while (plus < end && recipe.charAt(plus) != '+') {
+        plus++;
+      }
+      int a = start;
+      int b = plus;
+      while (a < b && recipe.charAt(a) <= ' ') {
+        a++;
+      }
+      while (b > a && recipe.charAt(b - 1) <= ' ') {
+        b--;
+      }
+      if (first) {
+        int id = match(recipe, a, b, BASE_CODES);
+        if (id < 0) {
+          throw new IllegalArgumentException("Unknown base: " + token(recipe, a, b));
+        }
+        handler.base(id);
+        first = false;
+      } else {
+        int id = match(recipe, a, b, ADDON_CODES);
+        if (id < 0) {
+          throw new IllegalArgumentException("Unknown addon: " + token(recipe, a, b));
+        }
+        handler.addOn(id);
+      }
+      if (plus >= end) {
+        return;
+      }
+      start = plus + 1;
+    }
+  }
+
+  private static int match(CharSequence s, int from, int to, String[] codes) {
+    int len = to - from;
+    for (int id = 0; id < codes.length; id++) {
+      String code = codes[id];
+      if (code.length() != len) {
+        continue;
+      }
+      int i = 0;
+      while (i < len && Character.toUpperCase(s.charAt(from + i)) == code.charAt(i)) {
+        i++;
+      }
+      if (i == len) {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  private static String token(CharSequence s, int from, int to) {
+    return s.subSequence(from, to).toString().toUpperCase();
+  }
+}
@@ -0,0 +1,136 @@
+package com.cafepos.infra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only scratch file of encoded orders, with an on-heap {@link LongLongMap}
+ * index from id to file offset.
+ *
+ * <p>Records are framed like {@link OrderLog}'s: {@code int length, int crc32, body}.
+ * Storing an id again appends a new record and leaves the old one as dead bytes.
+ * The file is truncated when opened: it holds overflow, not durable state.
+ */
+final class ColdOrderStore implements Closeable {
+
+  private static final int FRAME_BYTES = 8;
+
+  private final FileChannel channel;
+  private final CRC32 crc = new CRC32();
+  private final LongLongMap offsets = new LongLongMap(512);
+  private long end;
+  private long deadBytes;
+
+  ColdOrderStore(Path file) {
+    try {
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot open " + file, e);
+    }
+  }
+
+  synchronized void put(long id, byte[] body) {
+    crc.reset();
+    crc.update(body);
+    ByteBuffer buf = ByteBuffer.allocate(FRAME_BYTES + body.length);
+    buf.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+    try {
+      long pos = end;
+      while (buf.hasRemaining()) {
+        pos += channel.write(buf, pos);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("cold tier write failed", e);
+    }
+    long previous = offsets.put(id, end);
+    if (previous >= 0) {
+      deadBytes += recordBytes(previous);
+    }
+    end += FRAME_BYTES + body.length;
+  }
+
+  /** Returns the stored body, or null if {@code id} was never stored. */
+  ByteBuffer get(long id) {
+    long offset;
+    synchronized (this) {
+      offset = offsets.get(id);
+    }
+    if (offset < 0) {
+      return null;
+    }
+    try {
+      ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+      readFully(frame, offset);
+      int len = frame.getInt(0);
+      int expected = frame.getInt(4);
+      ByteBuffer body = ByteBuffer.allocate(len);
+      readFully(body, offset + FRAME_BYTES);
+      CRC32 c = new CRC32();
+      c.update(body.array());
+      if ((int) c.getValue() != expected) {
+        throw new IllegalStateException("cold tier record for order " + id + " is corrupt");
+      }
+      return body.flip();
+    } catch (IOException e) {
+      throw new UncheckedIOException("cold tier read failed", e);
+    }
+  }
+
+  /** Stored ids, read from the index in place; see {@link LongLongMap#keys(Object)}. */
+  synchronized Spliterator.OfLong ids() {
+    return offsets.keys(this);
+  }
+
+  synchronized boolean contains(long id) {
+    return offsets.get(id) >= 0;
+  }
+
+  synchronized int size() {
+    return offsets.size();
+  }
+
+  synchronized long bytes() {
+    return end;
+  }
+
+  synchronized long deadBytes() {
+    return deadBytes;
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot close cold tier", e);
+    }
+  }
+
+  private void readFully(ByteBuffer buf, long pos) throws IOException {
+    while (buf.hasRemaining()) {
+      int n = channel.read(buf, pos);
+      if (n < 0) {
+        throw new IllegalStateException("cold tier truncated at " + pos);
+      }
+      pos += n;
+    }
+  }
+
+  private long recordBytes(long offset) {
+    ByteBuffer len = ByteBuffer.allocate(Integer.BYTES);
+    try {
+      readFully(len, offset);
+    } catch (IOException e) {
+      throw new UncheckedIOException("cold tier read failed", e);
+    }
+    return FRAME_BYTES + len.getInt(0);
+  }
+}
@@ -0,0 +1,312 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Thread-safe repository keyed by primitive {@code long} ids, so ids are never boxed.
+ *
+ * <p>Orders are spread over lock-striped segments, and each segment is an
+ * open-addressing table with linear probing. {@code save} locks one segment.
+ * {@code findById} takes no lock: a slot's value is published with release
+ * semantics after its key, and a reader acquires the value before it reads
+ * the key. Orders are never removed, so a used slot always keeps its key.
+ */
+public final class ConcurrentOrderRepository implements OrderRepository {
+
+  private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Order[].class);
+  private static final int DEFAULT_SEGMENTS = 32;
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  public ConcurrentOrderRepository() {
+    this(DEFAULT_SEGMENTS);
+  }
+
+  /** @param segments lock stripes, rounded up to a power of two */
+  public ConcurrentOrderRepository(int segments) {
+    if (segments <= 0) {
+      throw new IllegalArgumentException("segments must be > 0");
+    }
+    int n = 1;
+    while (n < segments) {
+      n <<= 1;
+    }
+    this.segments = new Segment[n];
+    for (int i = 0; i < n; i++) {
+      this.segments[i] = new Segment();
+    }
+    this.segmentShift = 64 - Integer.numberOfTrailingZeros(n);
+  }
+
+  @Override
+  public void save(Order order) {
+    if (order == null) {
+      throw new IllegalArgumentException("order required");
+    }
+    long h = mix(order.id());
+    segmentFor(h).put(order.id(), h, order);
+  }
+
+  /** Groups the batch by segment so each segment's lock is taken once. */
+  @Override
+  public void saveAll(Collection<Order> orders) {
+    List<Order> batch = OrderBatch.checked(orders);
+    int n = batch.size();
+    long[] hashes = new long[n];
+    int[] starts = new int[segments.length + 1];
+    for (int i = 0; i < n; i++) {
+      hashes[i] = mix(batch.get(i).id());
+      starts[segmentIndex(hashes[i]) + 1]++;
+    }
+    for (int s = 0; s < segments.length; s++) {
+      starts[s + 1] += starts[s];
+    }
+    int[] bySegment = new int[n];
+    int[] fill = Arrays.copyOf(starts, segments.length);
+    for (int i = 0; i < n; i++) {
+      bySegment[fill[segmentIndex(hashes[i])]++] = i;
+    }
+    for (int s = 0; s < segments.length; s++) {
+      if (starts[s] == starts[s + 1]) {
+        continue;
+      }
+      Segment seg = segments[s];
+      synchronized (seg) {
+        for (int j = starts[s]; j < starts[s + 1]; j++) {
+          Order o = batch.get(bySegment[j]);
+          seg.put(o.id(), hashes[bySegment[j]], o);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Optional<Order> findById(long id) {
+    long h = mix(id);
+    return Optional.ofNullable(segmentFor(h).get(id, h));
+  }
+
+  /** Visits every stored order without locking; orders saved meanwhile may or may not be seen. */
+  public void forEach(Consumer<? super Order> action) {
+    for (Segment s : segments) {
+      Table t = s.table;
+      for (int i = 0; i < t.values.length; i++) {
+        Order v = (Order) SLOT.getAcquire(t.values, i);
+        if (v != null) {
+          action.accept(v);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Stream<Order> stream() {
+    return StreamSupport.stream(new OrderSpliterator(0, segments.length), false);
+  }
+
+  public int size() {
+    int total = 0;
+    for (Segment s : segments) {
+      total += s.size;
+    }
+    return total;
+  }
+
+  private Segment segmentFor(long hash) {
+    return segments[segmentIndex(hash)];
+  }
+
+  private int segmentIndex(long hash) {
+    return segments.length == 1 ? 0 : (int) (hash >>> segmentShift);
+  }
+
+  /** Murmur3 64-bit finalizer; sequential ids spread over segments and slots. */
+  static long mix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  /**
+   * Walks segments {@code [seg, segEnd)} and then, once started, one table's
+   * slots {@code [slot, slotEnd)}. Splits hand off half the remaining segments,
+   * and within the last segment half of its slots. Slots are read like
+   * {@code findById} reads them, without locking.
+   */
+  private final class OrderSpliterator implements Spliterator<Order> {
+    private static final int MIN_SPLIT_SLOTS = 256;
+
+    private int seg;
+    private final int segEnd;
+    private Table table;
+    private int tableSize;
+    private int slot;
+    private int slotEnd;
+
+    OrderSpliterator(int seg, int segEnd) {
+      this.seg = seg;
+      this.segEnd = segEnd;
+    }
+
+    private OrderSpliterator(Table table, int tableSize, int slot, int slotEnd) {
+      this(0, 0);
+      this.table = table;
+      this.tableSize = tableSize;
+      this.slot = slot;
+      this.slotEnd = slotEnd;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Order> action) {
+      while (true) {
+        if (table != null) {
+          while (slot < slotEnd) {
+            Order v = (Order) SLOT.getAcquire(table.values, slot++);
+            if (v != null) {
+              action.accept(v);
+              return true;
+            }
+          }
+          table = null;
+        }
+        if (seg >= segEnd) {
+          return false;
+        }
+        startSegment();
+      }
+    }
+
+    @Override
+    public Spliterator<Order> trySplit() {
+      if (segEnd - seg >= 2) {
+        int mid = (seg + segEnd) >>> 1;
+        OrderSpliterator prefix = new OrderSpliterator(seg, mid);
+        seg = mid;
+        return prefix;
+      }
+      if (table == null && seg < segEnd) {
+        startSegment();
+      }
+      if (table == null || slotEnd - slot < 2 * MIN_SPLIT_SLOTS) {
+        return null;
+      }
+      int mid = (slot + slotEnd) >>> 1;
+      OrderSpliterator prefix = new OrderSpliterator(table, tableSize, slot, mid);
+      slot = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      long n = 0;
+      for (int s = seg; s < segEnd; s++) {
+        n += segments[s].size;
+      }
+      if (table != null) {
+        n += (long) tableSize * (slotEnd - slot) / table.values.length;
+      }
+      return n;
+    }
+
+    @Override
+    public int characteristics() {
+      return NONNULL | CONCURRENT;
+    }
+
+    private void startSegment() {
+      Segment s = segments[seg++];
+      tableSize = s.size;
+      table = s.table;
+      slot = 0;
+      slotEnd = table.values.length;
+    }
+  }
+
+  private static final class Table {
+    final long[] keys;
+    final Order[] values;
+    final int mask;
+
+    Table(int capacity) {
+      keys = new long[capacity];
+      values = new Order[capacity];
+      mask = capacity - 1;
+    }
+  }
+
+  private static final class Segment {
+    private volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+    private volatile int size;
+
+    Order get(long id, long hash) {
+      Table t = table;
+      int i = (int) hash & t.mask;
+      while (true) {
+        Order v = (Order) SLOT.getAcquire(t.values, i);
+        if (v == null) {
+          return null;
+        }
+        if (t.keys[i] == id) {
+          return v;
+        }
+        i = (i + 1) & t.mask;
+      }
+    }
+
+    synchronized void put(long id, long hash, Order order) {
+      Table t = table;
+      int i = (int) hash & t.mask;
+      while (true) {
+        Order v = t.values[i];
+        if (v == null) {
+          t.keys[i] = id;
+          SLOT.setRelease(t.values, i, order);
+          int s = size + 1;
+          size = s;
+          if (s * 2 > t.keys.length) {
+            table = resize(t);
+          }
+          return;
+        }
+        if (t.keys[i] == id) {
+          SLOT.setRelease(t.values, i, order);
+          return;
+        }
+        i = (i + 1) & t.mask;
+      }
+    }
+
+    private static Table resize(Table old) {
+      Table t = new Table(old.keys.length * 2);
+      for (int j = 0; j < old.keys.length; j++) {
+        Order v = old.values[j];
+        if (v == null) {
+          continue;
+        }
+        long id = old.keys[j];
+        int i = (int) mix(id) & t.mask;
+        while (t.values[i] != null) {
+          i = (i + 1) & t.mask;
+        }
+        t.keys[i] = id;
+        t.values[i] = v;
+      }
+      return t;
+    }
+  }
+}
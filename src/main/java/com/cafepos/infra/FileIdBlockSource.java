@@ -0,0 +1,114 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.HiLoOrderIds;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Id blocks reserved from a high-watermark file, so ids stay unique across
+ * restarts and across processes sharing the file. Each reservation takes an
+ * exclusive file lock, raises the watermark, fsyncs, and only then hands the
+ * block out: a crash can waste ids but never repeat them.
+ *
+ * <p>The file holds two slots of {@code long watermark, int crc32}. Writes go to
+ * the slot with the lower watermark, and reads take the higher valid one, so a
+ * torn write leaves the previous watermark intact. A non-empty file with no
+ * valid slot is refused rather than restarted from {@code after}, since that
+ * would hand out ids again. OS file locks are advisory and may not work on
+ * network file systems.
+ */
+public final class FileIdBlockSource implements HiLoOrderIds.BlockSource {
+
+  private static final int SLOT_BYTES = Long.BYTES + Integer.BYTES;
+  // FileChannel locks are held per JVM, so threads of one JVM also need a monitor.
+  private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+  private final Path file;
+  private final long after;
+  private final Object jvmLock;
+
+  public FileIdBlockSource(Path file) {
+    this(file, 1000);
+  }
+
+  /** @param after ids start at {@code after + 1} when the file is new */
+  public FileIdBlockSource(Path file, long after) {
+    if (file == null) {
+      throw new IllegalArgumentException("file required");
+    }
+    if (after < 0) {
+      throw new IllegalArgumentException("after cannot be negative");
+    }
+    this.file = file.toAbsolutePath().normalize();
+    this.after = after;
+    this.jvmLock = JVM_LOCKS.computeIfAbsent(this.file, f -> new Object());
+  }
+
+  @Override
+  public long reserve(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be >= 1");
+    }
+    synchronized (jvmLock) {
+      try {
+        Path parent = file.getParent();
+        if (parent != null) {
+          Files.createDirectories(parent);
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock lock = ch.lock()) {
+          long a = readSlot(ch, 0);
+          long b = readSlot(ch, 1);
+          if (a < 0 && b < 0 && ch.size() > 0) {
+            throw new IllegalStateException("id watermark file " + file + " is corrupt: no valid slot");
+          }
+          long watermark = Math.max(after, Math.max(a, b));
+          long raised = Math.addExact(watermark, size);
+          writeSlot(ch, a <= b ? 0 : 1, raised);
+          ch.force(true);
+          return watermark + 1;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("cannot reserve ids from " + file, e);
+      }
+    }
+  }
+
+  /** Returns the slot's watermark, or -1 if it is missing or torn. */
+  private static long readSlot(FileChannel ch, int slot) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(SLOT_BYTES);
+    long pos = (long) slot * SLOT_BYTES;
+    while (buf.hasRemaining()) {
+      int n = ch.read(buf, pos + buf.position());
+      if (n < 0) {
+        return -1;
+      }
+    }
+    long value = buf.getLong(0);
+    return buf.getInt(Long.BYTES) == crc(value) ? value : -1;
+  }
+
+  private static void writeSlot(FileChannel ch, int slot, long value) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(SLOT_BYTES).putLong(value).putInt(crc(value)).flip();
+    long pos = (long) slot * SLOT_BYTES;
+    while (buf.hasRemaining()) {
+      ch.write(buf, pos + buf.position());
+    }
+  }
+
+  private static int crc(long value) {
+    CRC32 c = new CRC32();
+    c.update(ByteBuffer.allocate(Long.BYTES).putLong(value).flip());
+    return (int) c.getValue();
+  }
+}
@@ -0,0 +1,288 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Durable repository: {@code save} appends to a write-ahead {@link OrderLog},
+ * and reads are served from an in-memory index. The first save of an order
+ * logs its full state; later saves log only what changed since the previous
+ * save (lines dropped from the end, lines appended, the status), so building
+ * a large order line by line writes each line once. At startup the index is
+ * loaded from the newest {@link OrderSnapshot}, and then only the log segments
+ * after it are replayed in order.
+ *
+ * <p>fsyncs are batched as configured in {@link LogOptions}. A crash can lose at
+ * most the records written since the last sync. Call {@link #flush()} to force
+ * them out. {@link #snapshot()} (also run periodically if configured) writes a
+ * snapshot and then deletes the log segments and older snapshots it covers.
+ * Snapshots are written from a detached copy of each order taken at its last
+ * {@code save}, never from the live orders callers may still be changing; a
+ * failed periodic snapshot is reported to {@link #onError} and retried on the
+ * next tick.
+ */
+public final class FileOrderRepository implements OrderRepository, Closeable {
+
+  static final byte ORDER_SAVED = 1;
+  static final byte ORDER_CHANGED = 2;
+
+  private final Path dir;
+  private final ConcurrentOrderRepository index = new ConcurrentOrderRepository();
+  // Each order as of its last save, for snapshots; never handed out or mutated.
+  private final Map<Long, Order> saved = new ConcurrentHashMap<>();
+  private final OrderLog log;
+  private final Object snapshotLock = new Object();
+  private final ScheduledExecutorService snapshotter;
+  private volatile long appendedAtLastSnapshot;
+  private volatile Consumer<RuntimeException> errorHandler = FileOrderRepository::logFailure;
+
+  public FileOrderRepository(Path dir) {
+    this(dir, LogOptions.defaults());
+  }
+
+  public FileOrderRepository(Path dir, LogOptions options) {
+    if (dir == null || options == null) {
+      throw new IllegalArgumentException("dir and options required");
+    }
+    this.dir = dir;
+    try {
+      Files.createDirectories(dir);
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot create " + dir, e);
+    }
+    long firstUncovered = OrderSnapshot.loadNewest(dir, index::save);
+    this.log = OrderLog.open(dir, options, firstUncovered, this::replay);
+    index.forEach(o -> saved.put(o.id(), detached(o)));
+    if (options.snapshotIntervalMillis() > 0) {
+      snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "order-snapshot");
+        t.setDaemon(true);
+        return t;
+      });
+      long every = options.snapshotIntervalMillis();
+      snapshotter.scheduleWithFixedDelay(this::periodicSnapshot, every, every, TimeUnit.MILLISECONDS);
+    } else {
+      snapshotter = null;
+    }
+  }
+
+  @Override
+  public void save(Order order) {
+    if (order == null) {
+      throw new IllegalArgumentException("order required");
+    }
+    Order copy = detached(order);
+    Order previous = saved.get(copy.id());
+    byte[] body = record(previous, copy);
+    synchronized (this) {
+      Order current = saved.get(copy.id());
+      if (current != previous) {
+        body = record(current, copy); // another save of this order got in first
+      }
+      log.append(body);
+      index.save(order);
+      saved.put(copy.id(), copy);
+    }
+  }
+
+  /** Appends the whole batch and fsyncs once before returning. */
+  @Override
+  public void saveAll(Collection<Order> orders) {
+    List<Order> batch = OrderBatch.checked(orders);
+    List<Order> copies = new ArrayList<>(batch.size());
+    for (Order o : batch) {
+      copies.add(detached(o));
+    }
+    Map<Long, Order> bases = new HashMap<>();
+    List<byte[]> bodies = records(copies, bases);
+    synchronized (this) {
+      for (Map.Entry<Long, Order> e : bases.entrySet()) {
+        if (saved.get(e.getKey()) != e.getValue()) {
+          bodies = records(copies, new HashMap<>());
+          break;
+        }
+      }
+      log.appendAll(bodies);
+      index.saveAll(batch);
+      for (Order c : copies) {
+        saved.put(c.id(), c);
+      }
+    }
+  }
+
+  @Override
+  public Optional<Order> findById(long id) {
+    return index.findById(id);
+  }
+
+  @Override
+  public Stream<Order> stream() {
+    return index.stream();
+  }
+
+  public int size() {
+    return index.size();
+  }
+
+  /** Receives periodic snapshot failures; the default prints to stderr. */
+  public void onError(Consumer<RuntimeException> handler) {
+    if (handler == null) {
+      throw new IllegalArgumentException("handler required");
+    }
+    errorHandler = handler;
+  }
+
+  /** Forces all saved orders to disk now. */
+  public void flush() {
+    log.sync();
+  }
+
+  /**
+   * Writes a snapshot of every order and compacts what it covers. Saves are only
+   * blocked while the log rolls to a new segment and the saved copies are
+   * listed, not while the snapshot is written. The snapshot must hold exactly
+   * the state before the roll, since change records after it are replayed on top.
+   */
+  public void snapshot() {
+    synchronized (snapshotLock) {
+      long covered;
+      List<Order> state;
+      synchronized (this) {
+        covered = log.roll();
+        appendedAtLastSnapshot = log.appendedCount();
+        state = new ArrayList<>(saved.values());
+      }
+      OrderSnapshot.write(dir, covered, state);
+      log.deleteSegmentsBefore(covered);
+      OrderSnapshot.deleteOlderThan(dir, covered);
+    }
+  }
+
+  long syncCount() {
+    return log.syncCount();
+  }
+
+  @Override
+  public void close() {
+    if (snapshotter != null) {
+      snapshotter.shutdownNow();
+    }
+    synchronized (snapshotLock) {
+      log.close();
+    }
+  }
+
+  private void periodicSnapshot() {
+    try {
+      if (log.appendedCount() != appendedAtLastSnapshot) {
+        snapshot();
+      }
+    } catch (RuntimeException e) {
+      // A failed snapshot leaves the log intact, so try again on the next tick.
+      try {
+        errorHandler.accept(e);
+      } catch (RuntimeException ignored) {
+        // a failing error handler must not cancel the schedule
+      }
+    }
+  }
+
+  private static void logFailure(RuntimeException e) {
+    System.err.println("[FileOrderRepository] periodic snapshot failed: " + e);
+  }
+
+  private static Order detached(Order order) {
+    return Order.restore(order.id(), order.createdAt(), order.status(), order.items());
+  }
+
+
+  /** Records for {@code copies} in order; puts the saved copy each one was diffed against in {@code bases}. */
+  private List<byte[]> records(List<Order> copies, Map<Long, Order> bases) {
+    Map<Long, Order> latest = new HashMap<>();
+    List<byte[]> bodies = new ArrayList<>(copies.size());
+    for (Order c : copies) {
+      Order previous;
+      if (latest.containsKey(c.id())) {
+        previous = latest.get(c.id());
+      } else {
+        previous = saved.get(c.id());
+        bases.put(c.id(), previous);
+      }
+      bodies.add(record(previous, c));
+      latest.put(c.id(), c);
+    }
+    return bodies;
+  }
+
+  /** The full order if it is new to the log, otherwise only what changed since {@code previous}. */
+  private static byte[] record(Order previous, Order order) {
+    if (previous == null || previous.createdAt() != order.createdAt()) {
+      return tagged(ORDER_SAVED, OrderCodec.encode(order));
+    }
+    // copies share LineItem instances with the order they were taken from
+    List<LineItem> before = previous.items();
+    List<LineItem> after = order.items();
+    int same = 0;
+    int n = Math.min(before.size(), after.size());
+    while (same < n && before.get(same) == after.get(same)) {
+      same++;
+    }
+    var change = new OrderCodec.Change(order.id(), before.size() - same,
+        after.subList(same, after.size()), order.status());
+    return tagged(ORDER_CHANGED, OrderCodec.encodeChange(change));
+  }
+
+  private static byte[] tagged(byte type, byte[] payload) {
+    byte[] body = new byte[payload.length + 1];
+    body[0] = type;
+    System.arraycopy(payload, 0, body, 1, payload.length);
+    return body;
+  }
+
+  private void replay(ByteBuffer body) {
+    byte type = body.get();
+    if (type == ORDER_SAVED) {
+      index.save(OrderCodec.decode(body));
+    } else if (type == ORDER_CHANGED) {
+      apply(OrderCodec.decodeChange(body));
+    } else {
+      throw new IllegalStateException("unknown order log record type " + type);
+    }
+  }
+
+  /** Replays a change onto the indexed order, which nobody else can see yet. */
+  private void apply(OrderCodec.Change change) {
+    long id = change.orderId();
+    Order order = index.findById(id)
+        .orElseThrow(() -> new IllegalStateException("order log changes unknown order " + id));
+    if (change.removed() > order.items().size()) {
+      throw new IllegalStateException("order log removes more lines than order " + id + " has");
+    }
+    for (int i = 0; i < change.removed(); i++) {
+      order.removeLastItem();
+    }
+    for (LineItem li : change.added()) {
+      order.addItem(li);
+    }
+    if (order.status() != change.status()) {
+      index.save(Order.restore(id, order.createdAt(), change.status(), order.items()));
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.cafepos.infra;
 
 import com.cafepos.domain.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 public final class InMemoryOrderRepository implements OrderRepository {
   private final Map<Long, Order> store = new HashMap<>();
@@ -11,8 +12,20 @@ public final class InMemoryOrderRepository implements OrderRepository {
     store.put(order.id(), order);
   }
 
+  @Override
+  public void saveAll(Collection<Order> orders) {
+    for (Order o : OrderBatch.checked(orders)) {
+      store.put(o.id(), o);
+    }
+  }
+
   @Override
   public Optional<Order> findById(long id) {
     return Optional.ofNullable(store.get(id));
   }
+
+  @Override
+  public Stream<Order> stream() {
+    return store.values().stream();
+  }
 }
@@ -0,0 +1,210 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.Product;
+import com.cafepos.decorator.AddOn;
+import com.cafepos.decorator.FlattenedProduct;
+import com.cafepos.decorator.ProductDecorator;
+import com.cafepos.domain.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Adds secondary indexes to another repository. Storage and {@code findById}
+ * stay with the delegate.
+ *
+ * <p>Three indexes are kept, each a skip list ordered by (createdAt, id) so any
+ * of them can also be cut to a time range: all orders, orders per
+ * {@link OrderStatus}, and an inverted index from product id and add-on name to
+ * the orders containing it.
+ *
+ * <p>Saves are serialized. A re-saved order's new entry is linked into the
+ * indexes before it becomes current and its old entry is unlinked afterwards,
+ * so queries never block and skip any entry that is no longer current. A query
+ * running during a save sees the order either as before or as after it.
+ */
+public final class IndexingOrderRepository implements IndexedOrderRepository {
+
+  private static final Comparator<Entry> BY_TIME =
+      Comparator.comparingLong(Entry::createdAt).thenComparingLong(Entry::id).thenComparingLong(Entry::seq);
+
+  private static final NavigableSet<Entry> EMPTY = new ConcurrentSkipListSet<>(BY_TIME);
+
+  private final OrderRepository delegate;
+  private final Map<Long, Entry> current = new ConcurrentHashMap<>();
+  private final NavigableSet<Entry> byTime = new ConcurrentSkipListSet<>(BY_TIME);
+  private final Map<OrderStatus, NavigableSet<Entry>> byStatus = new EnumMap<>(OrderStatus.class);
+  private final Map<String, NavigableSet<Entry>> byProduct = new ConcurrentHashMap<>();
+  private long seq;
+
+  public IndexingOrderRepository() {
+    this(new ConcurrentOrderRepository());
+  }
+
+  /** Orders already held by {@code delegate} are indexed up front. */
+  public IndexingOrderRepository(OrderRepository delegate) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate required");
+    }
+    this.delegate = delegate;
+    for (OrderStatus s : OrderStatus.values()) {
+      byStatus.put(s, new ConcurrentSkipListSet<>(BY_TIME));
+    }
+    delegate.stream().forEach(this::index);
+  }
+
+  @Override
+  public void save(Order order) {
+    if (order == null) {
+      throw new IllegalArgumentException("order required");
+    }
+    synchronized (this) {
+      delegate.save(order);
+      index(order);
+    }
+  }
+
+  @Override
+  public void saveAll(Collection<Order> orders) {
+    List<Order> batch = OrderBatch.checked(orders);
+    synchronized (this) {
+      delegate.saveAll(batch);
+      for (Order o : batch) {
+        index(o);
+      }
+    }
+  }
+
+  @Override
+  public Optional<Order> findById(long id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public Stream<Order> stream() {
+    return delegate.stream();
+  }
+
+  @Override
+  public List<Order> findByStatus(OrderStatus status) {
+    return collect(statusSet(status));
+  }
+
+  @Override
+  public List<Order> findByStatusCreatedBetween(OrderStatus status, long fromMillis, long toMillis) {
+    return collect(range(statusSet(status), fromMillis, toMillis));
+  }
+
+  @Override
+  public List<Order> findCreatedBetween(long fromMillis, long toMillis) {
+    return collect(range(byTime, fromMillis, toMillis));
+  }
+
+  @Override
+  public List<Order> findByProduct(String productKey) {
+    return collect(productSet(productKey));
+  }
+
+  @Override
+  public List<Order> findByProductCreatedBetween(String productKey, long fromMillis, long toMillis) {
+    return collect(range(productSet(productKey), fromMillis, toMillis));
+  }
+
+  public int size() {
+    return current.size();
+  }
+
+  /** Caller holds the lock, or is the constructor. */
+  private void index(Order order) {
+    Entry e = new Entry(order.id(), order.createdAt(), seq++, order.status(), productKeys(order), order);
+    byTime.add(e);
+    byStatus.get(e.status()).add(e);
+    for (String key : e.products()) {
+      byProduct.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(BY_TIME)).add(e);
+    }
+    Entry old = current.put(e.id(), e);
+    if (old != null) {
+      unlink(old);
+    }
+  }
+
+  private void unlink(Entry e) {
+    byTime.remove(e);
+    byStatus.get(e.status()).remove(e);
+    for (String key : e.products()) {
+      NavigableSet<Entry> set = byProduct.get(key);
+      if (set != null) {
+        set.remove(e);
+      }
+    }
+  }
+
+  private NavigableSet<Entry> statusSet(OrderStatus status) {
+    if (status == null) {
+      throw new IllegalArgumentException("status required");
+    }
+    return byStatus.get(status);
+  }
+
+  private NavigableSet<Entry> productSet(String productKey) {
+    if (productKey == null) {
+      throw new IllegalArgumentException("productKey required");
+    }
+    NavigableSet<Entry> set = byProduct.get(productKey);
+    return set == null ? EMPTY : set;
+  }
+
+  private static Set<Entry> range(NavigableSet<Entry> set, long fromMillis, long toMillis) {
+    if (fromMillis >= toMillis) {
+      return Set.of();
+    }
+    return set.subSet(probe(fromMillis), true, probe(toMillis), false);
+  }
+
+  /** Sorts before every real entry created at {@code millis}. */
+  private static Entry probe(long millis) {
+    return new Entry(Long.MIN_VALUE, millis, Long.MIN_VALUE, null, null, null);
+  }
+
+  private List<Order> collect(Set<Entry> entries) {
+    List<Order> out = new ArrayList<>();
+    for (Entry e : entries) {
+      if (current.get(e.id()) == e) {
+        out.add(e.order());
+      }
+    }
+    return out;
+  }
+
+  private static String[] productKeys(Order order) {
+    Set<String> keys = new LinkedHashSet<>();
+    for (LineItem li : order.items()) {
+      Product p = li.product();
+      keys.add(p.id());
+      while (p instanceof ProductDecorator d) {
+        keys.add(d.addOnName());
+        p = d.base();
+      }
+      if (p instanceof FlattenedProduct f) {
+        for (AddOn a : f.addOns()) {
+          keys.add(a.name());
+        }
+      }
+    }
+    return keys.toArray(new String[0]);
+  }
+
+  /** The indexed view of one order as of one save; {@code seq} tells re-saves apart. */
+  private record Entry(long id, long createdAt, long seq, OrderStatus status, String[] products, Order order) {
+  }
+}
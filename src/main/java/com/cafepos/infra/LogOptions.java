@@ -0,0 +1,34 @@
+package com.cafepos.infra;
+
+/**
+ * Tuning for {@link FileOrderRepository}'s write-ahead log.
+ *
+ * @param maxSegmentBytes    roll to a new segment file once this size would be exceeded
+ * @param syncEveryRecords   fsync after this many unsynced records
+ * @param syncIntervalMillis also fsync pending records this often; 0 disables the timer
+ * @param snapshotIntervalMillis snapshot and compact this often if anything changed; 0 disables
+ */
+public record LogOptions(long maxSegmentBytes, int syncEveryRecords, long syncIntervalMillis,
+    long snapshotIntervalMillis) {
+
+  public LogOptions {
+    if (maxSegmentBytes < 1024 || maxSegmentBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("maxSegmentBytes must be between 1 KiB and 2 GiB");
+    }
+    if (syncEveryRecords < 1) {
+      throw new IllegalArgumentException("syncEveryRecords must be >= 1");
+    }
+    if (syncIntervalMillis < 0 || snapshotIntervalMillis < 0) {
+      throw new IllegalArgumentException("intervals cannot be negative");
+    }
+  }
+
+  /** Options without periodic snapshots. */
+  public LogOptions(long maxSegmentBytes, int syncEveryRecords, long syncIntervalMillis) {
+    this(maxSegmentBytes, syncEveryRecords, syncIntervalMillis, 0);
+  }
+
+  public static LogOptions defaults() {
+    return new LogOptions(64L << 20, 256, 50, 5 * 60_000);
+  }
+}
@@ -0,0 +1,150 @@
+package com.cafepos.infra;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing map from {@code long} keys to non-negative {@code long} values,
+ * in two primitive arrays (16 bytes per slot, no boxing). Not thread-safe: the
+ * owner guards every call with its own lock.
+ */
+final class LongLongMap {
+
+  private long[] keys;
+  private long[] values; // value + 1; 0 marks an empty slot
+  private int size;
+
+  LongLongMap(int initialCapacity) {
+    int n = 16;
+    while (n < initialCapacity * 2) {
+      n <<= 1;
+    }
+    keys = new long[n];
+    values = new long[n];
+  }
+
+  /** Returns the value for {@code key}, or -1. */
+  long get(long key) {
+    int mask = keys.length - 1;
+    int i = (int) ConcurrentOrderRepository.mix(key) & mask;
+    while (values[i] != 0) {
+      if (keys[i] == key) {
+        return values[i] - 1;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  /** Maps {@code key} to {@code value}; returns the previous value or -1. */
+  long put(long key, long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("value cannot be negative");
+    }
+    int mask = keys.length - 1;
+    int i = (int) ConcurrentOrderRepository.mix(key) & mask;
+    while (values[i] != 0) {
+      if (keys[i] == key) {
+        long previous = values[i] - 1;
+        values[i] = value + 1;
+        return previous;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value + 1;
+    if (++size * 2 > keys.length) {
+      grow();
+    }
+    return -1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Keys of the current table. Growing swaps in new arrays, so the captured ones
+   * only ever gain keys; each step reads a slot while holding {@code lock}, the
+   * owner's lock.
+   */
+  Spliterator.OfLong keys(Object lock) {
+    return new KeySpliterator(lock, keys, values, 0, keys.length);
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new long[oldKeys.length * 2];
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] == 0) {
+        continue;
+      }
+      int i = (int) ConcurrentOrderRepository.mix(oldKeys[j]) & mask;
+      while (values[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = oldKeys[j];
+      values[i] = oldValues[j];
+    }
+  }
+
+  private static final class KeySpliterator implements Spliterator.OfLong {
+    private static final int MIN_SPLIT_SLOTS = 256;
+
+    private final Object lock;
+    private final long[] keys;
+    private final long[] values;
+    private int slot;
+    private final int slotEnd;
+
+    KeySpliterator(Object lock, long[] keys, long[] values, int slot, int slotEnd) {
+      this.lock = lock;
+      this.keys = keys;
+      this.values = values;
+      this.slot = slot;
+      this.slotEnd = slotEnd;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+      while (slot < slotEnd) {
+        long key;
+        boolean used;
+        synchronized (lock) {
+          used = values[slot] != 0;
+          key = keys[slot];
+        }
+        slot++;
+        if (used) {
+          action.accept(key);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+      if (slotEnd - slot < 2 * MIN_SPLIT_SLOTS) {
+        return null;
+      }
+      int mid = (slot + slotEnd) >>> 1;
+      Spliterator.OfLong prefix = new KeySpliterator(lock, keys, values, slot, mid);
+      slot = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return (slotEnd - slot) / 2;
+    }
+
+    @Override
+    public int characteristics() {
+      return DISTINCT | CONCURRENT;
+    }
+  }
+}
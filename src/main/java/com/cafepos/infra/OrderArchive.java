@@ -0,0 +1,352 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.Product;
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Cents;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.FlattenedProduct;
+import com.cafepos.domain.*;
+import com.cafepos.factory.ProductFactory;
+import com.cafepos.factory.RecipeCodes;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Off-heap store for completed orders. Each order is one fixed-layout record in
+ * a direct {@link ByteBuffer} chunk, so the heap holds only an id index and an
+ * offset per order instead of the Order/LineItem/Product graph.
+ *
+ * <pre>
+ * header, 24 bytes: long id, long createdAtMillis, byte status, byte flags, short lineCount, int 0
+ * line,   24 bytes: long recipeCode, long unitCents, int quantity, int 0
+ * </pre>
+ * Products are stored as {@link RecipeCodes} codes, so only recipe products can be
+ * archived. Read records through a reusable {@link View}; {@link #findById} and
+ * {@link #stream()} build {@link Order}s only when asked. Saving an id again
+ * appends a new record and flags the old one dead in place; the old record's
+ * bytes are never rewritten, so a view that raced a re-save still reads a
+ * whole (superseded) order.
+ *
+ * <p>Writes are serialized. Scans take no lock; {@code findById} and
+ * {@link #find} hold it only for the index lookup.
+ */
+public final class OrderArchive implements OrderRepository {
+
+  public static final int HEADER_BYTES = 24;
+  public static final int LINE_BYTES = 24;
+  public static final int DEFAULT_CHUNK_BYTES = 64 << 20;
+
+  private static final int STATUS = 16;
+  private static final int FLAGS = 17;
+  private static final int LINE_COUNT = 18;
+  private static final byte DEAD = -1;
+  private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+  private final int chunkBytes;
+  private final LongLongMap ordinals = new LongLongMap(1024);
+  private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+  private volatile long[] offsets = new long[1024]; // chunk << 32 | position, by ordinal
+  private volatile int count;
+  private int used;
+
+  public OrderArchive() {
+    this(DEFAULT_CHUNK_BYTES);
+  }
+
+  /** @param chunkBytes size of each direct buffer; a record never spans two */
+  public OrderArchive(int chunkBytes) {
+    if (chunkBytes < 4096) {
+      throw new IllegalArgumentException("chunkBytes must be >= 4096");
+    }
+    this.chunkBytes = chunkBytes;
+    this.used = chunkBytes;
+  }
+
+  @Override
+  public void save(Order order) {
+    if (order == null) {
+      throw new IllegalArgumentException("order required");
+    }
+    long[] codes = codes(order);
+    synchronized (this) {
+      append(order, codes);
+    }
+  }
+
+  @Override
+  public void saveAll(Collection<Order> orders) {
+    List<Order> batch = OrderBatch.checked(orders);
+    List<long[]> codes = new ArrayList<>(batch.size());
+    for (Order o : batch) {
+      codes.add(codes(o));
+    }
+    synchronized (this) {
+      for (int i = 0; i < batch.size(); i++) {
+        append(batch.get(i), codes.get(i));
+      }
+    }
+  }
+
+  @Override
+  public Optional<Order> findById(long id) {
+    View v = new View();
+    return find(id, v) ? Optional.of(v.toOrder()) : Optional.empty();
+  }
+
+  /** Points {@code view} at the order's record; returns false if it is not archived. */
+  public boolean find(long id, View view) {
+    long ordinal;
+    synchronized (this) {
+      ordinal = ordinals.get(id);
+    }
+    if (ordinal < 0) {
+      return false;
+    }
+    view.moveTo(chunks, offsets[(int) ordinal]);
+    return true;
+  }
+
+  /** Visits every live record with one reused view; do not keep it past the call. */
+  public void forEach(Consumer<? super View> action) {
+    int n = count;
+    long[] offs = offsets;
+    ByteBuffer[] bufs = chunks;
+    View v = new View();
+    for (int i = 0; i < n; i++) {
+      v.moveTo(bufs, offs[i]);
+      if (v.live()) {
+        action.accept(v);
+      }
+    }
+  }
+
+  /** Materializes every live order; splits by record range for {@code parallel()}. */
+  @Override
+  public Stream<Order> stream() {
+    int n = count;
+    return StreamSupport.stream(new RecordSpliterator(chunks, offsets, 0, n), false);
+  }
+
+  public synchronized int size() {
+    return ordinals.size();
+  }
+
+  /** Off-heap bytes allocated, including unused space at the end of the last chunk. */
+  public long offHeapBytes() {
+    return (long) chunks.length * chunkBytes;
+  }
+
+  private static long[] codes(Order order) {
+    if (order.status() == OrderStatus.OPEN) {
+      throw new IllegalArgumentException("only completed orders can be archived: " + order.id());
+    }
+    List<LineItem> items = order.items();
+    if (items.size() > 0xFFFF) {
+      throw new IllegalArgumentException("too many lines to archive: " + items.size());
+    }
+    long[] codes = new long[items.size()];
+    for (int i = 0; i < codes.length; i++) {
+      Product p = items.get(i).product();
+      codes[i] = RecipeCodes.codeOf(p);
+      if (codes[i] < 0) {
+        throw new IllegalArgumentException("product " + p.id() + " has no recipe code");
+      }
+    }
+    return codes;
+  }
+
+  /** Caller holds the lock. */
+  private void append(Order order, long[] codes) {
+    int bytes = HEADER_BYTES + codes.length * LINE_BYTES;
+    if (bytes > chunkBytes) {
+      throw new IllegalArgumentException("order " + order.id() + " does not fit in a chunk");
+    }
+    if (used + bytes > chunkBytes) {
+      ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+      grown[chunks.length] = ByteBuffer.allocateDirect(chunkBytes);
+      chunks = grown;
+      used = 0;
+    }
+    int chunk = chunks.length - 1;
+    ByteBuffer buf = chunks[chunk];
+    int pos = used;
+    buf.putLong(pos, order.id())
+        .putLong(pos + 8, order.createdAt())
+        .put(pos + STATUS, (byte) order.status().ordinal())
+        .put(pos + FLAGS, (byte) 0)
+        .putShort(pos + LINE_COUNT, (short) codes.length)
+        .putInt(pos + 20, 0);
+    List<LineItem> items = order.items();
+    for (int i = 0; i < codes.length; i++) {
+      int at = pos + HEADER_BYTES + i * LINE_BYTES;
+      LineItem li = items.get(i);
+      buf.putLong(at, codes[i])
+          .putLong(at + 8, li.unitPrice().cents())
+          .putInt(at + 16, li.quantity())
+          .putInt(at + 20, 0);
+    }
+    used += bytes;
+    int ordinal = count;
+    long[] offs = offsets;
+    if (ordinal == offs.length) {
+      offs = Arrays.copyOf(offs, offs.length * 2);
+    }
+    offs[ordinal] = (long) chunk << 32 | pos;
+    offsets = offs;
+    long previous = ordinals.put(order.id(), ordinal);
+    if (previous >= 0) {
+      long off = offs[(int) previous];
+      chunks[(int) (off >>> 32)].put((int) off + FLAGS, DEAD);
+    }
+    count = ordinal + 1;
+  }
+
+  /**
+   * Flyweight over one archived record. Reads go straight to the buffer; no
+   * Order, LineItem or Product is built until {@link #toOrder()}.
+   */
+  public static final class View {
+    private ByteBuffer buf;
+    private int base;
+
+    public View() {
+    }
+
+    void moveTo(ByteBuffer[] chunks, long offset) {
+      buf = chunks[(int) (offset >>> 32)];
+      base = (int) offset;
+    }
+
+    boolean live() {
+      return buf.get(base + FLAGS) != DEAD;
+    }
+
+    public long id() {
+      return buf.getLong(base);
+    }
+
+    public long createdAt() {
+      return buf.getLong(base + 8);
+    }
+
+    public OrderStatus status() {
+      return STATUSES[buf.get(base + STATUS)];
+    }
+
+    public int lineCount() {
+      return buf.getShort(base + LINE_COUNT) & 0xFFFF;
+    }
+
+    /** The line's {@link RecipeCodes} code. */
+    public long productCode(int line) {
+      return buf.getLong(lineAt(line));
+    }
+
+    public long unitCents(int line) {
+      return buf.getLong(lineAt(line) + 8);
+    }
+
+    public int quantity(int line) {
+      return buf.getInt(lineAt(line) + 16);
+    }
+
+    public long lineCents(int line) {
+      return Cents.multiply(unitCents(line), quantity(line));
+    }
+
+    public long subtotalCents() {
+      long total = 0;
+      for (int i = 0, n = lineCount(); i < n; i++) {
+        total = Cents.add(total, lineCents(i));
+      }
+      return total;
+    }
+
+    /** Builds a full Order; products come from the recipe codes at the stored unit prices. */
+    public Order toOrder() {
+      int n = lineCount();
+      List<LineItem> items = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        items.add(new LineItem(product(productCode(i), unitCents(i)), quantity(i)));
+      }
+      return Order.restore(id(), createdAt(), status(), items);
+    }
+
+    private int lineAt(int line) {
+      if (line < 0 || line >= lineCount()) {
+        throw new IndexOutOfBoundsException("line " + line);
+      }
+      return base + HEADER_BYTES + line * LINE_BYTES;
+    }
+
+    private static Product product(long code, long unitCents) {
+      Product p = ProductFactory.shared().create(RecipeCodes.toRecipe(code));
+      if (RecipeCodes.price(code).cents() == unitCents) {
+        return p;
+      }
+      Money price = Money.ofCents(unitCents);
+      if (p instanceof FlattenedProduct f) {
+        return new FlattenedProduct(f.id(), f.name(), f.basePrice(), price, f.addOns());
+      }
+      return new SimpleProduct(p.id(), p.name(), price);
+    }
+  }
+
+  private static final class RecordSpliterator implements Spliterator<Order> {
+    private static final int MIN_SPLIT_RECORDS = 1024;
+
+    private final ByteBuffer[] chunks;
+    private final long[] offsets;
+    private final View view = new View();
+    private int next;
+    private final int end;
+
+    RecordSpliterator(ByteBuffer[] chunks, long[] offsets, int next, int end) {
+      this.chunks = chunks;
+      this.offsets = offsets;
+      this.next = next;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Order> action) {
+      while (next < end) {
+        view.moveTo(chunks, offsets[next++]);
+        if (view.live()) {
+          action.accept(view.toOrder());
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Spliterator<Order> trySplit() {
+      if (end - next < 2 * MIN_SPLIT_RECORDS) {
+        return null;
+      }
+      int mid = (next + end) >>> 1;
+      Spliterator<Order> prefix = new RecordSpliterator(chunks, offsets, next, mid);
+      next = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - next;
+    }
+
+    @Override
+    public int characteristics() {
+      return NONNULL;
+    }
+  }
+}
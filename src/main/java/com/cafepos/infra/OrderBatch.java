@@ -0,0 +1,27 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.Order;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
+
+/** Argument checks shared by the repositories' {@code saveAll}. */
+final class OrderBatch {
+
+  private OrderBatch() {
+  }
+
+  /** Rejects a null batch or null element before anything is saved; returns a stable copy. */
+  static List<Order> checked(Collection<Order> orders) {
+    if (orders == null) {
+      throw new IllegalArgumentException("orders required");
+    }
+    Order[] batch = orders.toArray(new Order[0]);
+    for (Order o : batch) {
+      if (o == null) {
+        throw new IllegalArgumentException("order required");
+      }
+    }
+    return Arrays.asList(batch);
+  }
+}
@@ -0,0 +1,193 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.Priced;
+import com.cafepos.catalog.Product;
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.AddOn;
+import com.cafepos.decorator.FlattenedProduct;
+import com.cafepos.decorator.ProductDecorator;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+import com.cafepos.factory.ProductFactory;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of an {@link Order} for the persistent repositories.
+ *
+ * <pre>
+ * order:  long id, int lineCount, lineCount x line, long createdAtMillis, byte status ordinal
+ * change: long id, int removedLines, int addedLines, addedLines x line, byte status ordinal
+ * line:   byte kind (0 simple, 1 flattened), str productId, str name, long priceCents, int qty
+ *         kind 1 only: long basePriceCents, byte addOnCount, addOnCount x (str name, long cents)
+ * str = unsigned short byte length + UTF-8 bytes
+ * </pre>
+ * A change drops the order's last {@code removedLines}, appends the added ones
+ * and sets the status. Decorator chains are flattened before encoding, and
+ * observers are not stored.
+ */
+final class OrderCodec {
+
+  private static final byte SIMPLE = 0;
+  private static final byte FLATTENED = 1;
+  private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+  /** What one save changed on an order already in the log. */
+  record Change(long orderId, int removed, List<LineItem> added, OrderStatus status) {}
+
+  private OrderCodec() {
+  }
+
+  static byte[] encode(Order order) {
+    List<LineItem> items = order.items();
+    List<Product> products = flattened(items);
+    ByteBuffer buf = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + linesSize(products) + Long.BYTES + 1);
+    buf.putLong(order.id()).putInt(items.size());
+    putLines(buf, items, products);
+    buf.putLong(order.createdAt()).put((byte) order.status().ordinal());
+    return buf.array();
+  }
+
+  static Order decode(ByteBuffer buf) {
+    try {
+      long orderId = buf.getLong();
+      List<LineItem> items = getLines(buf, buf.getInt());
+      long createdAt = buf.getLong();
+      return Order.restore(orderId, createdAt, getStatus(buf), items);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalStateException("corrupt order record: truncated", e);
+    }
+  }
+
+  static byte[] encodeChange(Change change) {
+    List<Product> products = flattened(change.added());
+    ByteBuffer buf = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES + linesSize(products) + 1);
+    buf.putLong(change.orderId()).putInt(change.removed()).putInt(change.added().size());
+    putLines(buf, change.added(), products);
+    buf.put((byte) change.status().ordinal());
+    return buf.array();
+  }
+
+  static Change decodeChange(ByteBuffer buf) {
+    try {
+      long orderId = buf.getLong();
+      int removed = buf.getInt();
+      if (removed < 0) {
+        throw new IllegalStateException("corrupt order change: negative removed count");
+      }
+      List<LineItem> added = getLines(buf, buf.getInt());
+      return new Change(orderId, removed, added, getStatus(buf));
+    } catch (BufferUnderflowException e) {
+      throw new IllegalStateException("corrupt order change: truncated", e);
+    }
+  }
+
+  private static List<Product> flattened(List<LineItem> items) {
+    List<Product> products = new ArrayList<>(items.size());
+    for (LineItem li : items) {
+      products.add(li.product() instanceof ProductDecorator d ? ProductFactory.shared().flatten(d) : li.product());
+    }
+    return products;
+  }
+
+  private static int linesSize(List<Product> products) {
+    int size = 0;
+    for (Product p : products) {
+      size += 1 + strSize(p.id()) + strSize(p.name()) + Long.BYTES + Integer.BYTES;
+      if (p instanceof FlattenedProduct f) {
+        size += Long.BYTES + 1;
+        for (AddOn a : f.addOns()) {
+          size += strSize(a.name()) + Long.BYTES;
+        }
+      }
+    }
+    return size;
+  }
+
+  private static void putLines(ByteBuffer buf, List<LineItem> items, List<Product> products) {
+    for (int i = 0; i < items.size(); i++) {
+      Product p = products.get(i);
+      buf.put(p instanceof FlattenedProduct ? FLATTENED : SIMPLE);
+      putStr(buf, p.id());
+      putStr(buf, p.name());
+      buf.putLong(unitPrice(p).cents()).putInt(items.get(i).quantity());
+      if (p instanceof FlattenedProduct f) {
+        if (f.addOns().size() > 0xFF) {
+          throw new IllegalArgumentException("too many add-ons to persist: " + f.addOns().size());
+        }
+        buf.putLong(f.basePrice().cents()).put((byte) f.addOns().size());
+        for (AddOn a : f.addOns()) {
+          putStr(buf, a.name());
+          buf.putLong(a.surcharge().cents());
+        }
+      }
+    }
+  }
+
+  private static List<LineItem> getLines(ByteBuffer buf, int lines) {
+    if (lines < 0) {
+      throw new IllegalStateException("corrupt order record: negative line count");
+    }
+    List<LineItem> items = new ArrayList<>(lines);
+    for (int i = 0; i < lines; i++) {
+      byte kind = buf.get();
+      String id = getStr(buf);
+      String name = getStr(buf);
+      Money price = Money.ofCents(buf.getLong());
+      int qty = buf.getInt();
+      Product p;
+      if (kind == SIMPLE) {
+        p = new SimpleProduct(id, name, price);
+      } else if (kind == FLATTENED) {
+        Money base = Money.ofCents(buf.getLong());
+        int n = buf.get() & 0xFF;
+        List<AddOn> addOns = new ArrayList<>(n);
+        for (int a = 0; a < n; a++) {
+          addOns.add(new AddOn(getStr(buf), Money.ofCents(buf.getLong())));
+        }
+        p = new FlattenedProduct(id, name, base, price, addOns);
+      } else {
+        throw new IllegalStateException("corrupt order record: product kind " + kind);
+      }
+      items.add(new LineItem(p, qty));
+    }
+    return items;
+  }
+
+  private static OrderStatus getStatus(ByteBuffer buf) {
+    int s = buf.get();
+    if (s < 0 || s >= STATUSES.length) {
+      throw new IllegalStateException("corrupt order record: status " + s);
+    }
+    return STATUSES[s];
+  }
+
+  private static Money unitPrice(Product p) {
+    return p instanceof Priced pr ? pr.price() : p.basePrice();
+  }
+
+  private static int strSize(String s) {
+    int n = s.getBytes(StandardCharsets.UTF_8).length;
+    if (n > 0xFFFF) {
+      throw new IllegalArgumentException("string too long to persist");
+    }
+    return 2 + n;
+  }
+
+  private static void putStr(ByteBuffer buf, String s) {
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    buf.putShort((short) b.length).put(b);
+  }
+
+  private static String getStr(ByteBuffer buf) {
+    int n = buf.getShort() & 0xFFFF;
+    byte[] b = new byte[n];
+    buf.get(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,368 @@
+package com.cafepos.infra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented append-only log of opaque records, written through {@link FileChannel}.
+ *
+ * <p>Segment files are {@code wal-<index>.log}: an 8-byte header (magic, version)
+ * followed by frames of {@code int length, int crc32, body}. Appends go to the OS
+ * page cache, and fsyncs are batched (group commit): one every
+ * {@link LogOptions#syncEveryRecords()} records and, from a timer thread, every
+ * {@link LogOptions#syncIntervalMillis()}. At open, a torn or corrupt tail in the
+ * newest segment is truncated. Damage in an older segment is an error.
+ *
+ * <p>Segments below a snapshot's covered index can be skipped at open and
+ * deleted afterwards (see {@link OrderSnapshot}).
+ */
+final class OrderLog implements Closeable {
+
+  static final int MAGIC = 0x4350574C; // "CPWL"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 8;
+  static final int FRAME_BYTES = 8;
+
+  private static final String PREFIX = "wal-";
+  private static final String SUFFIX = ".log";
+
+  private final Path dir;
+  private final LogOptions options;
+  private final ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+  private final CRC32 crc = new CRC32();
+  private final ScheduledExecutorService timer;
+
+  private FileChannel channel;
+  private long segmentIndex;
+  private long segmentSize;
+  private int pending;
+  private long syncs;
+  private long appended;
+  private boolean closed;
+  // set by a failed timer sync or a write that could not be undone; fails every later call
+  private volatile RuntimeException failure;
+
+  private OrderLog(Path dir, LogOptions options) {
+    this.dir = dir;
+    this.options = options;
+    if (options.syncIntervalMillis() > 0) {
+      timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "order-log-sync");
+        t.setDaemon(true);
+        return t;
+      });
+    } else {
+      timer = null;
+    }
+  }
+
+  /**
+   * Opens (or creates) the log in {@code dir}, handing every intact record body in
+   * segments {@code >= fromSegment} to {@code replay}.
+   */
+  static OrderLog open(Path dir, LogOptions options, long fromSegment, Consumer<ByteBuffer> replay) {
+    OrderLog log = new OrderLog(dir, options);
+    try {
+      Files.createDirectories(dir);
+      List<Long> segments = segmentIndexes(dir);
+      segments.removeIf(i -> i < fromSegment);
+      if (!segments.isEmpty() && segments.get(0) > fromSegment) {
+        throw new IllegalStateException("order log segments " + fromSegment + ".." + (segments.get(0) - 1)
+            + " are missing from " + dir);
+      }
+      for (int i = 0; i < segments.size(); i++) {
+        log.replaySegment(segments.get(i), i == segments.size() - 1, replay);
+      }
+      if (segments.isEmpty()) {
+        log.startSegment(Math.max(1, fromSegment));
+      } else {
+        log.segmentIndex = segments.get(segments.size() - 1);
+        log.channel = FileChannel.open(segmentPath(dir, log.segmentIndex), StandardOpenOption.WRITE);
+        log.segmentSize = log.channel.size();
+        log.channel.position(log.segmentSize);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot open order log in " + dir, e);
+    }
+    if (log.timer != null) {
+      long every = options.syncIntervalMillis();
+      log.timer.scheduleAtFixedRate(log::timedSync, every, every, TimeUnit.MILLISECONDS);
+    }
+    return log;
+  }
+
+  synchronized void append(byte[] body) {
+    ensureWritable();
+    try {
+      writeFrame(body);
+      if (++pending >= options.syncEveryRecords()) {
+        syncLocked();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("order log append failed", e);
+    }
+  }
+
+  /** Appends every body and then fsyncs once, whatever {@link LogOptions#syncEveryRecords()} says. */
+  synchronized void appendAll(List<byte[]> bodies) {
+    ensureWritable();
+    try {
+      for (byte[] body : bodies) {
+        writeFrame(body);
+        pending++;
+      }
+      syncLocked();
+    } catch (IOException e) {
+      throw new UncheckedIOException("order log append failed", e);
+    }
+  }
+
+  /** Forces every appended record to disk. */
+  synchronized void sync() {
+    ensureWritable();
+    try {
+      syncLocked();
+    } catch (IOException e) {
+      throw new UncheckedIOException("order log sync failed", e);
+    }
+  }
+
+  synchronized long syncCount() {
+    return syncs;
+  }
+
+  synchronized long currentSegment() {
+    return segmentIndex;
+  }
+
+  /** Records appended since this log was opened. */
+  synchronized long appendedCount() {
+    return appended;
+  }
+
+  /**
+   * Syncs and switches to a fresh segment unless the current one is still empty.
+   * Returns the index of the segment that receives the next append, so every
+   * earlier record is in a lower-numbered segment.
+   */
+  synchronized long roll() {
+    ensureWritable();
+    try {
+      if (segmentSize > HEADER_BYTES) {
+        rollSegment();
+      }
+      return segmentIndex;
+    } catch (IOException e) {
+      throw new UncheckedIOException("order log roll failed", e);
+    }
+  }
+
+  /** Deletes closed segments numbered below {@code index}. */
+  synchronized void deleteSegmentsBefore(long index) {
+    try {
+      for (long i : segmentIndexes(dir)) {
+        if (i < index && i < segmentIndex) {
+          Files.deleteIfExists(segmentPath(dir, i));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("order log compaction failed", e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (timer != null) {
+      timer.shutdownNow();
+    }
+    try {
+      syncLocked();
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("order log close failed", e);
+    }
+  }
+
+  private void syncLocked() throws IOException {
+    if (pending > 0) {
+      channel.force(false);
+      pending = 0;
+      syncs++;
+    }
+  }
+
+  private synchronized void timedSync() {
+    if (closed) {
+      return;
+    }
+    try {
+      syncLocked();
+    } catch (IOException e) {
+      failure = new UncheckedIOException("background order log sync failed", e);
+    }
+  }
+
+  private void ensureWritable() {
+    if (closed) {
+      throw new IllegalStateException("order log is closed");
+    }
+    RuntimeException f = failure;
+    if (f != null) {
+      throw f;
+    }
+  }
+
+  private void writeFrame(byte[] body) throws IOException {
+    if (segmentSize > HEADER_BYTES && segmentSize + FRAME_BYTES + body.length > options.maxSegmentBytes()) {
+      rollSegment();
+    }
+    crc.reset();
+    crc.update(body);
+    frame.clear();
+    frame.putInt(body.length).putInt((int) crc.getValue()).flip();
+    ByteBuffer[] bufs = {frame, ByteBuffer.wrap(body)};
+    long left = FRAME_BYTES + body.length;
+    try {
+      while (left > 0) {
+        left -= channel.write(bufs);
+      }
+    } catch (IOException e) {
+      discardTornFrame(e);
+      throw e;
+    }
+    segmentSize += FRAME_BYTES + body.length;
+    appended++;
+  }
+
+  /**
+   * Cuts a partly written frame off again. Otherwise the next append would
+   * land behind it, and recovery, which stops at the first torn frame, would
+   * drop that append even though it was acknowledged.
+   */
+  private void discardTornFrame(IOException cause) {
+    try {
+      channel.truncate(segmentSize);
+      channel.position(segmentSize);
+    } catch (IOException again) {
+      cause.addSuppressed(again);
+      failure = new UncheckedIOException("order log is unusable after a failed write", cause);
+    }
+  }
+
+  /** A failure here leaves no segment to append to, so it fails the log. */
+  private void rollSegment() throws IOException {
+    try {
+      syncLocked();
+      channel.close();
+      startSegment(segmentIndex + 1);
+    } catch (IOException e) {
+      failure = new UncheckedIOException("order log could not roll to a new segment", e);
+      throw e;
+    }
+  }
+
+  private void startSegment(long index) throws IOException {
+    channel = FileChannel.open(segmentPath(dir, index),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+    syncDirectory(dir);
+    segmentIndex = index;
+    segmentSize = HEADER_BYTES;
+  }
+
+  private void replaySegment(long index, boolean last, Consumer<ByteBuffer> replay) throws IOException {
+    Path file = segmentPath(dir, index);
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer buf = ByteBuffer.allocate((int) ch.size());
+      while (buf.hasRemaining() && ch.read(buf) >= 0) {
+        // keep reading until the whole segment is in memory
+      }
+      buf.flip();
+      long good = scan(buf, replay);
+      if (good == buf.limit() && good >= HEADER_BYTES) {
+        return;
+      }
+      if (!last) {
+        throw new IllegalStateException("corrupt order log segment " + file + " at byte " + good);
+      }
+      if (good < HEADER_BYTES) {
+        ch.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+          ch.write(header, header.position());
+        }
+      } else {
+        ch.truncate(good);
+      }
+      ch.force(false);
+    }
+  }
+
+  /** Hands every intact record to {@code replay}; returns the offset just past the last one. */
+  private long scan(ByteBuffer buf, Consumer<ByteBuffer> replay) {
+    if (buf.remaining() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+      return 0;
+    }
+    CRC32 check = new CRC32();
+    int pos = HEADER_BYTES;
+    while (buf.limit() - pos >= FRAME_BYTES) {
+      int len = buf.getInt(pos);
+      int sum = buf.getInt(pos + 4);
+      if (len < 0 || len > buf.limit() - pos - FRAME_BYTES) {
+        break;
+      }
+      ByteBuffer body = buf.slice(pos + FRAME_BYTES, len).asReadOnlyBuffer();
+      check.reset();
+      check.update(body.duplicate());
+      if ((int) check.getValue() != sum) {
+        break;
+      }
+      replay.accept(body);
+      pos += FRAME_BYTES + len;
+    }
+    return pos;
+  }
+
+  /** Makes file creations, renames and deletions in {@code dir} survive a crash. */
+  static void syncDirectory(Path dir) throws IOException {
+    try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+      ch.force(true);
+    }
+  }
+
+  static Path segmentPath(Path dir, long index) {
+    return dir.resolve(String.format("%s%016d%s", PREFIX, index, SUFFIX));
+  }
+
+  static List<Long> segmentIndexes(Path dir) throws IOException {
+    List<Long> out = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      files.map(p -> p.getFileName().toString())
+          .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+          .forEach(n -> out.add(Long.parseLong(n.substring(PREFIX.length(), n.length() - SUFFIX.length()))));
+    }
+    out.sort(null);
+    return out;
+  }
+}
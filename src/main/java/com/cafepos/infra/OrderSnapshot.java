@@ -0,0 +1,159 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.Order;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of a {@link FileOrderRepository}, so startup can skip most of the log.
+ *
+ * <p>{@code snapshot-<S>.snap} holds every order saved before log segment
+ * {@code S}. Layout: {@code int magic, int version, long S}, then
+ * {@code int length + OrderCodec bytes} per order, an {@code int -1}
+ * terminator, and a trailing {@code long} CRC32 of everything before it.
+ * The file is written to a temp file, fsynced, atomically renamed, and the
+ * directory fsynced, so the snapshot is durable before any log it covers is
+ * deleted. It is loaded through a memory-mapped read.
+ */
+final class OrderSnapshot {
+
+  static final int MAGIC = 0x4350534E; // "CPSN"
+  static final int VERSION = 1;
+
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".snap";
+  private static final String TMP = ".tmp";
+
+  private OrderSnapshot() {
+  }
+
+  static void write(Path dir, long coveredSegment, Collection<Order> orders) {
+    Path tmp = dir.resolve(fileName(coveredSegment) + TMP);
+    CRC32 crc = new CRC32();
+    try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(coveredSegment);
+      for (Order o : orders) {
+        byte[] bytes = OrderCodec.encode(o);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      out.writeInt(-1);
+      out.flush();
+      new DataOutputStream(file).writeLong(crc.getValue());
+      file.getFD().sync();
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot write order snapshot " + tmp, e);
+    }
+    try {
+      Files.move(tmp, dir.resolve(fileName(coveredSegment)), StandardCopyOption.ATOMIC_MOVE);
+      OrderLog.syncDirectory(dir);
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot publish order snapshot " + tmp, e);
+    }
+  }
+
+  /**
+   * Loads the newest intact snapshot into {@code sink} and returns the first log
+   * segment not covered by it, or 1 if there is no usable snapshot.
+   */
+  static long loadNewest(Path dir, Consumer<Order> sink) {
+    try {
+      List<Long> covered = snapshotIndexes(dir);
+      for (int i = covered.size() - 1; i >= 0; i--) {
+        List<Order> orders = read(dir.resolve(fileName(covered.get(i))));
+        if (orders != null) {
+          orders.forEach(sink);
+          return covered.get(i);
+        }
+      }
+      return 1;
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot load order snapshot from " + dir, e);
+    }
+  }
+
+  /** Deletes snapshots older than {@code coveredSegment} and any abandoned temp files. */
+  static void deleteOlderThan(Path dir, long coveredSegment) {
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path p : (Iterable<Path>) files::iterator) {
+        String n = p.getFileName().toString();
+        if (n.startsWith(PREFIX) && n.endsWith(SUFFIX + TMP)) {
+          Files.deleteIfExists(p);
+        } else if (n.startsWith(PREFIX) && n.endsWith(SUFFIX) && indexOf(n) < coveredSegment) {
+          Files.deleteIfExists(p);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("order snapshot cleanup failed in " + dir, e);
+    }
+  }
+
+  /** Returns the decoded orders, or null if the file is damaged. */
+  private static List<Order> read(Path file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = ch.size();
+      if (size < 24 || size > Integer.MAX_VALUE) {
+        return null;
+      }
+      MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      CRC32 crc = new CRC32();
+      crc.update(map.slice(0, (int) size - Long.BYTES));
+      if (crc.getValue() != map.getLong((int) size - Long.BYTES)
+          || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+        return null;
+      }
+      map.position(16);
+      List<Order> orders = new ArrayList<>();
+      for (int len = map.getInt(); len >= 0; len = map.getInt()) {
+        orders.add(OrderCodec.decode(map.slice(map.position(), len)));
+        map.position(map.position() + len);
+      }
+      return orders;
+    } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+      return null;
+    }
+  }
+
+  private static List<Long> snapshotIndexes(Path dir) throws IOException {
+    List<Long> out = new ArrayList<>();
+    if (!Files.isDirectory(dir)) {
+      return out;
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      files.map(p -> p.getFileName().toString())
+          .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+          .forEach(n -> out.add(indexOf(n)));
+    }
+    out.sort(null);
+    return out;
+  }
+
+  private static long indexOf(String name) {
+    return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+
+  static String fileName(long coveredSegment) {
+    return String.format("%s%016d%s", PREFIX, coveredSegment, SUFFIX);
+  }
+}
@@ -0,0 +1,41 @@
+package com.cafepos.infra;
+
+import java.util.function.Consumer;
+
+/**
+ * Tuning for {@link TieredOrderRepository}. Only completed orders (any status
+ * other than OPEN) are ever demoted to the cold tier.
+ *
+ * @param hotTtlMillis        demote a completed order this long after it was last saved or read
+ * @param maxHotCompleted     demote the least recently used completed orders beyond this many
+ * @param sweepIntervalMillis check the TTL this often; 0 disables the timer
+ * @param onSweepError        receives periodic sweep failures; the default prints to stderr
+ */
+public record TierOptions(long hotTtlMillis, int maxHotCompleted, long sweepIntervalMillis,
+    Consumer<RuntimeException> onSweepError) {
+
+  public TierOptions {
+    if (hotTtlMillis < 0 || sweepIntervalMillis < 0) {
+      throw new IllegalArgumentException("intervals cannot be negative");
+    }
+    if (maxHotCompleted < 0) {
+      throw new IllegalArgumentException("maxHotCompleted cannot be negative");
+    }
+    if (onSweepError == null) {
+      throw new IllegalArgumentException("onSweepError required");
+    }
+  }
+
+  /** Options that report sweep failures to stderr. */
+  public TierOptions(long hotTtlMillis, int maxHotCompleted, long sweepIntervalMillis) {
+    this(hotTtlMillis, maxHotCompleted, sweepIntervalMillis, TierOptions::logFailure);
+  }
+
+  public static TierOptions defaults() {
+    return new TierOptions(10 * 60_000, 10_000, 30_000);
+  }
+
+  private static void logFailure(RuntimeException e) {
+    System.err.println("[TieredOrderRepository] periodic sweep failed: " + e);
+  }
+}
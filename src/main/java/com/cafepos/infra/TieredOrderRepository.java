@@ -0,0 +1,276 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Two-tier repository for long-running tills. Open orders always stay on the
+ * heap. Completed orders (status other than OPEN at their last save) are demoted
+ * to a {@link ColdOrderStore} file once unused for {@link TierOptions#hotTtlMillis()},
+ * or, least recently used first, when more than {@link TierOptions#maxHotCompleted()}
+ * of them are hot. {@code findById} on a demoted order decodes it and promotes it
+ * back to the hot tier.
+ *
+ * <p>A demoted order comes back as a new {@link Order} without its observers.
+ * An order promoted and left unchanged is demoted without being rewritten; one
+ * changed in place after promotion is written back even if it was not saved.
+ * Hot reads take no lock. Saves, demotions and promotions are serialized.
+ * A failed periodic sweep is counted in {@link #stats()}, reported to
+ * {@link TierOptions#onSweepError()} and retried on the next tick.
+ */
+public final class TieredOrderRepository implements OrderRepository, Closeable {
+
+  public record Stats(int hotOrders, int coldOrders, long coldBytes, long coldDeadBytes,
+      long demotions, long promotions, long sweepFailures) {}
+
+  static final String COLD_FILE = "cold-orders.dat";
+
+  private final Map<Long, Hot> hot = new ConcurrentHashMap<>();
+  private final ColdOrderStore cold;
+  private final TierOptions options;
+  private final LongSupplier clock;
+  private final ScheduledExecutorService sweeper;
+  private final LongAdder demotions = new LongAdder();
+  private final LongAdder promotions = new LongAdder();
+  private final LongAdder sweepFailures = new LongAdder();
+  private int hotCompleted;
+
+  public TieredOrderRepository(Path dir) {
+    this(dir, TierOptions.defaults());
+  }
+
+  public TieredOrderRepository(Path dir, TierOptions options) {
+    this(dir, options, System::currentTimeMillis);
+  }
+
+  TieredOrderRepository(Path dir, TierOptions options, LongSupplier clock) {
+    if (dir == null || options == null || clock == null) {
+      throw new IllegalArgumentException("dir, options and clock required");
+    }
+    try {
+      Files.createDirectories(dir);
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot create " + dir, e);
+    }
+    this.cold = new ColdOrderStore(dir.resolve(COLD_FILE));
+    this.options = options;
+    this.clock = clock;
+    if (options.sweepIntervalMillis() > 0) {
+      sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "order-tier-sweep");
+        t.setDaemon(true);
+        return t;
+      });
+      long every = options.sweepIntervalMillis();
+      sweeper.scheduleWithFixedDelay(this::periodicSweep, every, every, TimeUnit.MILLISECONDS);
+    } else {
+      sweeper = null;
+    }
+  }
+
+  @Override
+  public void save(Order order) {
+    if (order == null) {
+      throw new IllegalArgumentException("order required");
+    }
+    long now = clock.getAsLong();
+    synchronized (this) {
+      putHot(order, now);
+      trimToLimit();
+    }
+  }
+
+  /** Puts the whole batch in the hot tier, then applies the size limit once. */
+  @Override
+  public void saveAll(Collection<Order> orders) {
+    List<Order> batch = OrderBatch.checked(orders);
+    long now = clock.getAsLong();
+    synchronized (this) {
+      for (Order o : batch) {
+        putHot(o, now);
+      }
+      trimToLimit();
+    }
+  }
+
+  @Override
+  public Optional<Order> findById(long id) {
+    Hot h = hot.get(id);
+    if (h != null) {
+      h.touchedAt = clock.getAsLong();
+      return Optional.of(h.order);
+    }
+    synchronized (this) {
+      h = hot.get(id);
+      if (h != null) {
+        return Optional.of(h.order);
+      }
+      ByteBuffer body = cold.get(id);
+      if (body == null) {
+        return Optional.empty();
+      }
+      Order order = OrderCodec.decode(body);
+      h = new Hot(order, order.status() != OrderStatus.OPEN, true, clock.getAsLong());
+      hot.put(id, h);
+      promotions.increment();
+      if (h.completed) {
+        hotCompleted++;
+        trimToLimit();
+      }
+      return Optional.of(order);
+    }
+  }
+
+  /**
+   * Hot orders, then cold ones decoded one at a time straight from the file.
+   * Streaming does not promote anything. An order demoted while the stream is
+   * running can be seen twice.
+   */
+  @Override
+  public Stream<Order> stream() {
+    Stream<Order> coldOrders = StreamSupport.longStream(cold.ids(), false)
+        .filter(id -> !hot.containsKey(id))
+        .mapToObj(cold::get)
+        .filter(Objects::nonNull)
+        .map(OrderCodec::decode);
+    return Stream.concat(hot.values().stream().map(h -> h.order), coldOrders);
+  }
+
+  /** Demotes every completed order unused for the TTL; returns how many were demoted. */
+  public synchronized int demoteExpired() {
+    long cutoff = clock.getAsLong() - options.hotTtlMillis();
+    int n = 0;
+    for (Map.Entry<Long, Hot> e : hot.entrySet()) {
+      Hot h = e.getValue();
+      if (h.completed && h.touchedAt <= cutoff) {
+        demote(e.getKey(), h);
+        n++;
+      }
+    }
+    return n;
+  }
+
+  public Stats stats() {
+    return new Stats(hot.size(), cold.size(), cold.bytes(), cold.deadBytes(),
+        demotions.sum(), promotions.sum(), sweepFailures.sum());
+  }
+
+  @Override
+  public void close() {
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+    }
+    synchronized (this) {
+      cold.close();
+    }
+  }
+
+  /** Caller holds the lock. */
+  private void putHot(Order order, long now) {
+    Hot h = new Hot(order, order.status() != OrderStatus.OPEN, false, now);
+    Hot previous = hot.put(order.id(), h);
+    if (previous != null && previous.completed) {
+      hotCompleted--;
+    }
+    if (h.completed) {
+      hotCompleted++;
+    }
+  }
+
+  /** Caller holds the lock. Trims to 7/8 of the limit so the sort is not redone on every save. */
+  private void trimToLimit() {
+    int max = options.maxHotCompleted();
+    if (hotCompleted <= max) {
+      return;
+    }
+    List<Map.Entry<Long, Hot>> completed = new ArrayList<>(hotCompleted);
+    for (Map.Entry<Long, Hot> e : hot.entrySet()) {
+      if (e.getValue().completed) {
+        completed.add(e);
+      }
+    }
+    completed.sort(Comparator.comparingLong(e -> e.getValue().touchedAt));
+    int target = max - max / 8;
+    for (int i = 0; i < completed.size() && hotCompleted > target; i++) {
+      demote(completed.get(i).getKey(), completed.get(i).getValue());
+    }
+  }
+
+  /** Caller holds the lock. The cold copy is written before the hot one is dropped. */
+  private void demote(long id, Hot h) {
+    if (!h.unchangedSincePromotion()) {
+      cold.put(id, OrderCodec.encode(h.order));
+    }
+    hot.remove(id);
+    hotCompleted--;
+    demotions.increment();
+  }
+
+  private void periodicSweep() {
+    try {
+      demoteExpired();
+    } catch (RuntimeException e) {
+      // Orders stay hot on failure; try again on the next tick.
+      sweepFailures.increment();
+      try {
+        options.onSweepError().accept(e);
+      } catch (RuntimeException ignored) {
+        // a failing error handler must not cancel the schedule
+      }
+    }
+  }
+
+  private static final class Hot {
+    final Order order;
+    final boolean completed;
+    // what the cold copy holds, for an order promoted from it; null otherwise
+    final LineItem[] promotedItems;
+    final OrderStatus promotedStatus;
+    volatile long touchedAt;
+
+    Hot(Order order, boolean completed, boolean promoted, long touchedAt) {
+      this.order = order;
+      this.completed = completed;
+      this.promotedItems = promoted ? order.items().toArray(new LineItem[0]) : null;
+      this.promotedStatus = promoted ? order.status() : null;
+      this.touchedAt = touchedAt;
+    }
+
+    /** True if the cold copy still matches; line items are immutable, so comparing references is enough. */
+    boolean unchangedSincePromotion() {
+      if (promotedItems == null || order.status() != promotedStatus) {
+        return false;
+      }
+      List<LineItem> items = order.items();
+      if (items.size() != promotedItems.length) {
+        return false;
+      }
+      for (int i = 0; i < promotedItems.length; i++) {
+        if (items.get(i) != promotedItems[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
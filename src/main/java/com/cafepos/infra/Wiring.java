@@ -12,7 +12,7 @@ public final class Wiring {
   ) {}
 
   public static Components createDefault() {
-    OrderRepository repo = new InMemoryOrderRepository();
+    OrderRepository repo = new IndexingOrderRepository(new ConcurrentOrderRepository());
     PricingService pricing = new PricingService(
       new LoyaltyPercentDiscount(5),
       new FixedRateTaxPolicy(10)
@@ -0,0 +1,172 @@
+package com.cafepos.observer;
+
+import com.cafepos.domain.Order;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Wraps an observer and merges bursts of {@code itemAdded} (or {@code itemRemoved})
+ * for the same order into one {@link OrderObserver#updated(Order, OrderEventType, int)}
+ * call with a count, so a 200-line catering order reaches the kitchen as one
+ * notification instead of 200.
+ *
+ * <p>A burst is delivered {@code window} after its first event, or earlier
+ * when the order's next event is of another kind. {@code paid}, {@code ready}
+ * and {@code delivered} are never held back: the order's pending burst is
+ * delivered first, then the event itself, so the target still sees each
+ * order's events in order. A burst of one is passed on as a plain
+ * {@code updated(order, type)}.
+ *
+ * <p>The target is called with this observer's lock held, from the notifying
+ * thread or from a shared timer thread, so its calls never overlap. Put the
+ * coalescer on an {@link ObserverChannel#async() async channel} to keep a
+ * slow target off the till's thread.
+ */
+public final class CoalescingObserver implements OrderObserver {
+
+  private static final class Timer {
+    static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "observer-coalescer");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  private static final class Burst {
+    final Order order;
+    final OrderEventType type;
+    final long dueAt;
+    int count;
+
+    Burst(Order order, OrderEventType type, int count, long dueAt) {
+      this.order = order;
+      this.type = type;
+      this.count = count;
+      this.dueAt = dueAt;
+    }
+  }
+
+  private final OrderObserver target;
+  private final long windowMillis;
+  private final LongSupplier clock;
+  private final boolean timed;
+  private final Map<Long, Burst> pending = new HashMap<>();
+
+  /** @param windowMillis how long a burst may be held, e.g. 50 */
+  public CoalescingObserver(OrderObserver target, long windowMillis) {
+    this(target, windowMillis, System::currentTimeMillis, true);
+  }
+
+  /** Without the timer, bursts are only released by {@link #flushDue()}, {@link #flush()} or a later event. */
+  CoalescingObserver(OrderObserver target, long windowMillis, LongSupplier clock, boolean timed) {
+    if (target == null) {
+      throw new IllegalArgumentException("target required");
+    }
+    if (target.needsNotifyingThread()) {
+      throw new IllegalArgumentException("target needs the notifying thread and cannot be deferred");
+    }
+    if (windowMillis <= 0) {
+      throw new IllegalArgumentException("window must be > 0");
+    }
+    this.target = target;
+    this.windowMillis = windowMillis;
+    this.clock = clock;
+    this.timed = timed;
+  }
+
+  @Override
+  public void updated(Order order, OrderEventType type) {
+    updated(order, type, 1);
+  }
+
+  @Override
+  public synchronized void updated(Order order, OrderEventType type, int count) {
+    Long id = order.id();
+    Burst burst = pending.get(id);
+    if (!mergeable(type)) {
+      if (burst != null) {
+        pending.remove(id);
+        deliver(burst);
+      }
+      deliver(order, type, count);
+      return;
+    }
+    if (burst != null && burst.type == type) {
+      burst.count += count;
+      return;
+    }
+    if (burst != null) {
+      deliver(burst);
+    }
+    Burst started = new Burst(order, type, count, clock.getAsLong() + windowMillis);
+    pending.put(id, started);
+    if (timed) {
+      Timer.INSTANCE.schedule(() -> release(id, started), windowMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Same kinds as the target. */
+  @Override
+  public Set<OrderEventType> interests() {
+    return target.interests();
+  }
+
+  /** Delivers every burst whose window has passed. */
+  public synchronized void flushDue() {
+    long now = clock.getAsLong();
+    List<Burst> due = new ArrayList<>();
+    for (Iterator<Burst> it = pending.values().iterator(); it.hasNext(); ) {
+      Burst b = it.next();
+      if (b.dueAt <= now) {
+        due.add(b);
+        it.remove();
+      }
+    }
+    due.forEach(this::deliver);
+  }
+
+  /** Delivers every pending burst now, e.g. at shutdown. */
+  public synchronized void flush() {
+    List<Burst> all = new ArrayList<>(pending.values());
+    pending.clear();
+    all.forEach(this::deliver);
+  }
+
+  public synchronized int pendingBursts() {
+    return pending.size();
+  }
+
+  private synchronized void release(Long id, Burst burst) {
+    if (pending.remove(id, burst)) {
+      try {
+        deliver(burst);
+      } catch (RuntimeException e) {
+        System.err.println("[CoalescingObserver] observer failed on " + burst.type.label() + ": " + e);
+      }
+    }
+  }
+
+  private static boolean mergeable(OrderEventType type) {
+    return type == OrderEventType.ITEM_ADDED || type == OrderEventType.ITEM_REMOVED;
+  }
+
+  private void deliver(Burst b) {
+    deliver(b.order, b.type, b.count);
+  }
+
+  private void deliver(Order order, OrderEventType type, int count) {
+    if (count == 1) {
+      target.updated(order, type);
+    } else {
+      target.updated(order, type, count);
+    }
+  }
+}
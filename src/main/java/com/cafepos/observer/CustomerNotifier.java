@@ -5,7 +5,7 @@ import com.cafepos.domain.Order;
 public final class CustomerNotifier implements OrderObserver {
 
   @Override
-  public void updated(Order order, String eventType) {
-    System.out.println("[Customer] Dear customer, your Order #" + order.id() + " has been updated: " + eventType + ".");
+  public void updated(Order order, OrderEventType type) {
+    System.out.println("[Customer] Dear customer, your Order #" + order.id() + " has been updated: " + type.label() + ".");
   }
 }
@@ -1,13 +1,19 @@
 package com.cafepos.observer;
 
 import com.cafepos.domain.Order;
+import java.util.Set;
 
 public final class DeliveryDesk implements OrderObserver {
 
   @Override
-  public void updated(Order order, String eventType) {
-    if (eventType.equals("ready")) {
+  public void updated(Order order, OrderEventType type) {
+    if (type == OrderEventType.READY) {
       System.out.println("[Delivery] Order #" + order.id() + " is ready for delivery");
     }
   }
+
+  @Override
+  public Set<OrderEventType> interests() {
+    return Set.of(OrderEventType.READY);
+  }
 }
@@ -1,15 +1,30 @@
 package com.cafepos.observer;
 
 import com.cafepos.domain.Order;
+import java.util.Set;
 
 public final class KitchenDisplay implements OrderObserver {
 
   @Override
-  public void updated(Order order, String eventType) {
-    if (eventType.equals("itemAdded")) {
+  public void updated(Order order, OrderEventType type) {
+    if (type == OrderEventType.ITEM_ADDED) {
       System.out.println("[Kitchen] Order #" + order.id() + ": item added");
-    } else if (eventType.equals("paid")) {
+    } else if (type == OrderEventType.PAID) {
       System.out.println("[Kitchen] Order #" + order.id() + ": Payment received");
     }
   }
+
+  @Override
+  public void updated(Order order, OrderEventType type, int count) {
+    if (type == OrderEventType.ITEM_ADDED) {
+      System.out.println("[Kitchen] Order #" + order.id() + ": " + count + " items added");
+    } else {
+      updated(order, type);
+    }
+  }
+
+  @Override
+  public Set<OrderEventType> interests() {
+    return Set.of(OrderEventType.ITEM_ADDED, OrderEventType.PAID);
+  }
 }
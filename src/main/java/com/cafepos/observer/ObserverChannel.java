@@ -0,0 +1,290 @@
+package com.cafepos.observer;
+
+import com.cafepos.domain.Order;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * A group of observers shared by many orders, e.g. one per till or store.
+ * Register the observers once and {@link Order#attach attach} the channel to
+ * each order; the order then holds only this reference.
+ *
+ * <p>Observers are kept per {@link OrderEventType} in copy-on-write arrays, so
+ * notifying reads one array without locking and calls only the observers that
+ * registered for that kind. Registration is synchronized and safe while orders
+ * on other threads are notifying.
+ *
+ * <p>{@code new ObserverChannel()} calls observers inline on the notifying
+ * thread. {@link #async()} and {@link #async(int)} only enqueue, so slow
+ * observers (console output, say) stay off the till's thread. Dedicated worker
+ * threads deliver the notifications. Orders are spread over the workers by id,
+ * so one order's notifications always arrive in the order they happened. The
+ * observer list is captured at enqueue time. The {@link Order} passed along is
+ * the live object, so read what is stable (its id) or what the event implies;
+ * observers that say they {@link OrderObserver#needsNotifyingThread() need the
+ * notifying thread} are refused.
+ * A throwing observer is reported to {@link #onError} (an {@link Error} to the
+ * worker's uncaught-exception handler) and the worker carries on.
+ * {@link #flush()} waits for everything enqueued so far and {@link #close()}
+ * drains and stops the workers. Enqueueing and closing share the channel's
+ * lock, so nothing is accepted after the workers were told to stop.
+ */
+public final class ObserverChannel implements OrderPublisher, AutoCloseable {
+
+  private static final OrderObserver[] NONE = new OrderObserver[0];
+  private static final Object STOP = new Object();
+
+  private volatile OrderObserver[][] byType;
+  private final Worker[] workers;
+  private volatile BiConsumer<OrderEventType, RuntimeException> errorHandler = ObserverChannel::logFailure;
+  private volatile boolean closed;
+
+  /** Synchronous channel: observers run on the notifying thread. */
+  public ObserverChannel() {
+    this(0);
+  }
+
+  private ObserverChannel(int workerCount) {
+    OrderObserver[][] empty = new OrderObserver[OrderEventType.values().length][];
+    Arrays.fill(empty, NONE);
+    byType = empty;
+    workers = workerCount == 0 ? null : new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Worker("observer-channel-" + i);
+      workers[i].start();
+    }
+  }
+
+  /** Asynchronous channel with one worker thread. */
+  public static ObserverChannel async() {
+    return async(1);
+  }
+
+  /** Asynchronous channel; each order's notifications always go to the same one of {@code workers} threads. */
+  public static ObserverChannel async(int workers) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("workers must be > 0");
+    }
+    return new ObserverChannel(workers);
+  }
+
+  public boolean isAsync() {
+    return workers != null;
+  }
+
+  /** Where an asynchronous channel reports observer failures; the default prints to stderr. */
+  public void onError(BiConsumer<OrderEventType, RuntimeException> handler) {
+    if (handler == null) {
+      throw new IllegalArgumentException("handler required");
+    }
+    errorHandler = handler;
+  }
+
+  /** Registers {@code o} for the kinds in its {@link OrderObserver#interests()}. */
+  @Override
+  public void register(OrderObserver o) {
+    if (o == null) {
+      throw new IllegalArgumentException("observer required");
+    }
+    subscribe(o, o.interests());
+  }
+
+  /** Registers {@code o} for the given kinds only, whatever its {@code interests()} say. */
+  public void register(OrderObserver o, OrderEventType first, OrderEventType... more) {
+    if (o == null || first == null) {
+      throw new IllegalArgumentException("observer and event type required");
+    }
+    subscribe(o, EnumSet.of(first, more));
+  }
+
+  /** Removes {@code o} from every kind it was registered for. */
+  @Override
+  public synchronized void unregister(OrderObserver o) {
+    OrderObserver[][] next = byType.clone();
+    for (int t = 0; t < next.length; t++) {
+      OrderObserver[] list = next[t];
+      int i = indexOf(list, o);
+      if (i >= 0) {
+        OrderObserver[] copy = new OrderObserver[list.length - 1];
+        System.arraycopy(list, 0, copy, 0, i);
+        System.arraycopy(list, i + 1, copy, i, copy.length - i);
+        next[t] = copy.length == 0 ? NONE : copy;
+      }
+    }
+    byType = next;
+  }
+
+  /** Calls (or, if asynchronous, enqueues for) the observers registered for {@code type}, in registration order. */
+  @Override
+  public void notifyObservers(Order order, OrderEventType type) {
+    OrderObserver[] observers = byType[type.ordinal()];
+    if (workers == null) {
+      for (OrderObserver observer : observers) {
+        observer.updated(order, type);
+      }
+      return;
+    }
+    if (observers.length == 0) {
+      return;
+    }
+    Delivery d = new Delivery(order, type, observers);
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("observer channel is closed");
+      }
+      workers[stripe(order.id())].queue.add(d);
+    }
+  }
+
+  /** Waits until every notification enqueued before this call has been delivered; a no-op when synchronous or closed. */
+  public void flush() {
+    if (workers == null || closed) {
+      return;
+    }
+    for (Worker w : workers) {
+      if (Thread.currentThread() == w) {
+        throw new IllegalStateException("flush() from an observer would wait for itself");
+      }
+    }
+    CountDownLatch done = new CountDownLatch(workers.length);
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      for (Worker w : workers) {
+        w.queue.add(done);
+      }
+    }
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while flushing observer channel", e);
+    }
+  }
+
+  /** Rejects further notifications, delivers what is queued and stops the workers. */
+  @Override
+  public void close() {
+    if (workers == null) {
+      return;
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (Worker w : workers) {
+        w.queue.add(STOP);
+      }
+    }
+    for (Worker w : workers) {
+      try {
+        w.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    for (OrderObserver[] list : byType) {
+      if (list.length > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private synchronized void subscribe(OrderObserver o, Collection<OrderEventType> types) {
+    if (types == null) {
+      throw new IllegalArgumentException("event types required");
+    }
+    if (workers != null && o.needsNotifyingThread()) {
+      throw new IllegalArgumentException("observer needs the notifying thread; use a synchronous channel");
+    }
+    OrderObserver[][] next = byType.clone();
+    for (OrderEventType type : types) {
+      if (type == null) {
+        throw new IllegalArgumentException("event type required");
+      }
+      OrderObserver[] list = next[type.ordinal()];
+      if (indexOf(list, o) < 0) {
+        OrderObserver[] copy = Arrays.copyOf(list, list.length + 1);
+        copy[list.length] = o;
+        next[type.ordinal()] = copy;
+      }
+    }
+    byType = next;
+  }
+
+  private static int indexOf(OrderObserver[] list, OrderObserver o) {
+    for (int i = 0; i < list.length; i++) {
+      if (list[i].equals(o)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int stripe(long orderId) {
+    return workers.length == 1 ? 0 : (int) ((orderId * 0x9E3779B97F4A7C15L >>> 32) % workers.length);
+  }
+
+  private static void logFailure(OrderEventType type, RuntimeException e) {
+    System.err.println("[ObserverChannel] observer failed on " + type.label() + ": " + e);
+  }
+
+  private record Delivery(Order order, OrderEventType type, OrderObserver[] observers) {}
+
+  private final class Worker extends Thread {
+    final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    Worker(String name) {
+      super(name);
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Object next;
+        try {
+          next = queue.take();
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (next == STOP) {
+          return;
+        }
+        if (next instanceof CountDownLatch flushed) {
+          flushed.countDown();
+        } else if (next instanceof Delivery d) {
+          deliver(d);
+        }
+      }
+    }
+
+    private void deliver(Delivery d) {
+      for (OrderObserver observer : d.observers()) {
+        try {
+          observer.updated(d.order(), d.type());
+        } catch (RuntimeException e) {
+          try {
+            errorHandler.accept(d.type(), e);
+          } catch (RuntimeException ignored) {
+            // a failing error handler must not stop the worker
+          }
+        } catch (Error e) {
+          // a dead worker would leave flush() waiting forever, so report and carry on
+          getUncaughtExceptionHandler().uncaughtException(this, e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.cafepos.observer;
+
+/** Kinds of change an {@link OrderObserver} can subscribe to. */
+public enum OrderEventType {
+  ITEM_ADDED("itemAdded"),
+  ITEM_REMOVED("itemRemoved"),
+  PAID("paid"),
+  READY("ready"),
+  DELIVERED("delivered");
+
+  private final String label;
+
+  OrderEventType(String label) {
+    this.label = label;
+  }
+
+  /** The name used in messages, e.g. {@code "itemAdded"}. */
+  public String label() {
+    return label;
+  }
+}
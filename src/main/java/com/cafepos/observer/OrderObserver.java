@@ -1,7 +1,32 @@
 package com.cafepos.observer;
 
 import com.cafepos.domain.Order;
+import java.util.EnumSet;
+import java.util.Set;
 
 public interface OrderObserver {
-  void updated(Order order, String eventType);
+  void updated(Order order, OrderEventType type);
+
+  /**
+   * {@code count} events of {@code type} for {@code order}, merged into one by a
+   * {@link CoalescingObserver}. Observers that can summarise override this; the
+   * default reports the burst as a single {@link #updated(Order, OrderEventType)}.
+   */
+  default void updated(Order order, OrderEventType type, int count) {
+    updated(order, type);
+  }
+
+  /**
+   * True if this observer reads the order's current state (its last line, say),
+   * which is only right on the notifying thread. Asynchronous
+   * {@link ObserverChannel}s and {@link CoalescingObserver} refuse such observers.
+   */
+  default boolean needsNotifyingThread() {
+    return false;
+  }
+
+  /** Kinds this observer is registered for by {@code Order.register(observer)}; all of them by default. */
+  default Set<OrderEventType> interests() {
+    return EnumSet.allOf(OrderEventType.class);
+  }
 }
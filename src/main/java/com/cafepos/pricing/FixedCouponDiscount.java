@@ -15,7 +15,7 @@ public final class FixedCouponDiscount implements DiscountPolicy {
   @Override
   public Money discountOf(Money subtotal) {
     // Cap discount at subtotal (can't discount more than order total)
-    if (amount.asBigDecimal().compareTo(subtotal.asBigDecimal()) > 0) {
+    if (amount.compareTo(subtotal) > 0) {
       return subtotal;
     }
     return amount;
@@ -1,7 +1,7 @@
 package com.cafepos.pricing;
 
+import com.cafepos.common.Cents;
 import com.cafepos.common.Money;
-import java.math.BigDecimal;
 
 public final class FixedRateTaxPolicy implements TaxPolicy {
   private final int percent;
@@ -15,10 +15,7 @@ public final class FixedRateTaxPolicy implements TaxPolicy {
 
   @Override
   public Money taxOn(Money amount) {
-    var t = amount.asBigDecimal()
-        .multiply(BigDecimal.valueOf(percent))
-        .divide(BigDecimal.valueOf(100));
-    return Money.of(t);
+    return Money.ofCents(Cents.percentOf(amount.cents(), percent));
   }
 
   @Override
@@ -1,7 +1,7 @@
 package com.cafepos.pricing;
 
+import com.cafepos.common.Cents;
 import com.cafepos.common.Money;
-import java.math.BigDecimal;
 
 public final class LoyaltyPercentDiscount implements DiscountPolicy {
   private final int percent;
@@ -15,9 +15,6 @@ public final class LoyaltyPercentDiscount implements DiscountPolicy {
 
   @Override
   public Money discountOf(Money subtotal) {
-    var d = subtotal.asBigDecimal()
-        .multiply(BigDecimal.valueOf(percent))
-        .divide(BigDecimal.valueOf(100));
-    return Money.of(d);
+    return Money.ofCents(Cents.percentOf(subtotal.cents(), percent));
   }
 }
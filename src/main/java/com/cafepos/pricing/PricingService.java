@@ -1,7 +1,7 @@
 package com.cafepos.pricing;
 
+import com.cafepos.common.Cents;
 import com.cafepos.common.Money;
-import java.math.BigDecimal;
 
 public final class PricingService {
   private final DiscountPolicy discountPolicy;
@@ -20,10 +20,7 @@ public final class PricingService {
 
   public PricingResult price(Money subtotal) {
     Money discount = discountPolicy.discountOf(subtotal);
-    Money discounted = Money.of(subtotal.asBigDecimal().subtract(discount.asBigDecimal()));
-    if (discounted.asBigDecimal().signum() < 0) {
-      discounted = Money.zero();
-    }
+    Money discounted = Money.ofCents(Cents.subtract(subtotal.cents(), discount.cents()));
     Money tax = taxPolicy.taxOn(discounted);
     Money total = discounted.add(tax);
     return new PricingResult(subtotal, discount, tax, total);
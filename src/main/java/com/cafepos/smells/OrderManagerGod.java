@@ -2,7 +2,6 @@ package com.cafepos.smells;
 
 import com.cafepos.common.Money;
 import com.cafepos.factory.ProductFactory;
-import com.cafepos.catalog.Product;
 
 public class OrderManagerGod {
   // SMELL: Global/Static State - mutable static fields are hard to test and not thread-safe
@@ -13,15 +12,7 @@ public class OrderManagerGod {
   // SMELL: Long Method - 60+ lines doing multiple unrelated responsibilities
   public static String process(String recipe, int qty, String paymentType, String discountCode, boolean printReceipt) {
     ProductFactory factory = new ProductFactory();
-    Product product = factory.create(recipe);
-
-    Money unitPrice;
-    try {
-      var priced = product instanceof com.cafepos.catalog.Priced p ? p.price() : product.basePrice();
-      unitPrice = priced;
-    } catch (Exception e) {
-      unitPrice = product.basePrice();
-    }
+    Money unitPrice = factory.unitPrice(recipe); // table lookup by recipe code, no Product built
 
     if (qty <= 0) qty = 1;
     Money subtotal = unitPrice.multiply(qty);
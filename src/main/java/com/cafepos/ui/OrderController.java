@@ -7,7 +7,7 @@ import com.cafepos.factory.ProductFactory;
 public final class OrderController {
   private final OrderRepository repo;
   private final CheckoutService checkout;
-  private final ProductFactory factory = new ProductFactory();
+  private final ProductFactory factory = ProductFactory.shared();
 
   public OrderController(OrderRepository repo, CheckoutService checkout) {
     this.repo = repo;
@@ -227,4 +227,32 @@ public class DecoratorAndFactoryTest {
     Product decorated = new SizeLarge(new OatMilk(new ExtraShot(espresso)));
     assertEquals(Money.of(2.50), decorated.basePrice());
   }
+
+  @Test
+  void factory_flattens_decorator_chain() {
+    ProductFactory f = new ProductFactory();
+    Product p = f.create("LAT+SHOT+SHOT+OAT+SYP+L");
+    assertInstanceOf(FlattenedProduct.class, p);
+    Product chain = new SizeLarge(new Syrup(new OatMilk(new ExtraShot(new ExtraShot(
+        new SimpleProduct("P-LAT", "Latte", Money.of(3.20)))))));
+    assertEquals(chain.name(), p.name());
+    assertEquals(((Priced) chain).price(), ((Priced) p).price());
+    assertEquals("P-LAT", p.id());
+    assertEquals(Money.of(3.20), p.basePrice());
+    var addOns = ((FlattenedProduct) p).addOns();
+    assertEquals(5, addOns.size());
+    assertEquals(new AddOn("Extra Shot", Money.of(0.80)), addOns.get(0));
+    assertEquals(new AddOn("Large", Money.of(0.70)), addOns.get(4));
+  }
+
+  @Test
+  void flatten_passes_through_simple_and_merges_nested() {
+    ProductFactory f = new ProductFactory();
+    Product esp = f.create("ESP");
+    assertSame(esp, f.flatten(esp));
+    Product twice = f.flatten(new SizeLarge(f.create("ESP+OAT")));
+    assertEquals("Espresso + Oat Milk (Large)", twice.name());
+    assertEquals(Money.of(3.70), ((Priced) twice).price());
+    assertEquals(2, ((FlattenedProduct) twice).addOns().size());
+  }
 }
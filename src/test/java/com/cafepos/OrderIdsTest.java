@@ -0,0 +1,82 @@
+package com.cafepos;
+
+import com.cafepos.domain.HiLoOrderIds;
+import com.cafepos.domain.OrderIds;
+import com.cafepos.domain.TimeNodeOrderIds;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIdsTest {
+
+  @Test
+  void hilo_single_thread_ids_are_consecutive_across_blocks() {
+    var ids = new HiLoOrderIds(HiLoOrderIds.inMemory(1000), 3, 4);
+    for (long expected = 1001; expected <= 1010; expected++) {
+      assertEquals(expected, ids.next());
+    }
+  }
+
+  @Test
+  void hilo_reserves_one_block_per_stripe_refill() {
+    var reservations = new AtomicLong();
+    var source = HiLoOrderIds.inMemory(0);
+    var ids = new HiLoOrderIds(size -> {
+      reservations.incrementAndGet();
+      return source.reserve(size);
+    }, 100, 1);
+    for (int i = 0; i < 1_000; i++) {
+      ids.next();
+    }
+    assertEquals(10, reservations.get());
+  }
+
+  @Test
+  void hilo_ids_are_unique_across_threads() throws Exception {
+    var ids = new HiLoOrderIds(HiLoOrderIds.inMemory(0), 16, 4);
+    Set<Long> seen = ConcurrentHashMap.newKeySet();
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    var futures = new Future<?>[8];
+    for (int t = 0; t < 8; t++) {
+      futures[t] = pool.submit(() -> {
+        for (int i = 0; i < 20_000; i++) {
+          assertTrue(seen.add(ids.next()));
+        }
+      });
+    }
+    for (var f : futures) {
+      f.get();
+    }
+    pool.shutdown();
+    assertEquals(160_000, seen.size());
+  }
+
+  @Test
+  void time_node_ids_carry_node_and_time_and_survive_clock_going_back() {
+    var now = new AtomicLong(TimeNodeOrderIds.EPOCH_MILLIS + 5_000);
+    var ids = new TimeNodeOrderIds(7, now::get);
+    long first = ids.next();
+    assertEquals(7, TimeNodeOrderIds.nodeOf(first));
+    assertEquals(now.get(), TimeNodeOrderIds.millisOf(first));
+
+    now.addAndGet(-1_000);
+    long second = ids.next();
+    assertTrue(second > first);
+    for (int i = 0; i < 10_000; i++) {
+      long next = ids.next();
+      assertTrue(next > second);
+      second = next;
+    }
+    assertNotEquals(first, new TimeNodeOrderIds(8, now::get).next());
+  }
+
+  @Test
+  void rejects_bad_arguments() {
+    assertThrows(IllegalArgumentException.class, () -> new HiLoOrderIds(null, 1));
+    assertThrows(IllegalArgumentException.class, () -> new HiLoOrderIds(HiLoOrderIds.inMemory(0), 0));
+    assertThrows(IllegalArgumentException.class, () -> new TimeNodeOrderIds(TimeNodeOrderIds.MAX_NODE + 1));
+    assertThrows(IllegalArgumentException.class, () -> OrderIds.use(null));
+  }
+}
@@ -26,6 +26,40 @@ public class OrderTest {
     assertEquals(Money.of(9.35), o.totalWithTax(10));
   }
 
+  @Test
+  void running_totals_follow_add_and_remove() {
+    var p1 = new SimpleProduct("A", "Product A", Money.of(2.50));
+    var p2 = new SimpleProduct("B", "Product B", Money.of(3.50));
+    var o = new Order(1);
+    o.addItem(new LineItem(p1, 2));
+    assertEquals(Money.of(5.50), o.totalWithTax(10));
+    o.addItem(new LineItem(p2, 1));
+    assertEquals(Money.of(9.35), o.totalWithTax(10));
+    assertEquals(Money.of(10.20), o.totalWithTax(20));
+    o.removeLastItem();
+    assertEquals(Money.of(5.00), o.subtotal());
+    assertEquals(Money.of(0.50), o.taxAtPercent(10));
+    o.removeLastItem();
+    o.removeLastItem();
+    assertEquals(Money.zero(), o.subtotal());
+    assertEquals(Money.zero(), o.totalWithTax(10));
+  }
+
+  @Test
+  void cached_totals_are_reused_until_next_change() {
+    var p = new SimpleProduct("A", "A", Money.of(1.99));
+    var o = new Order(1);
+    for (int i = 0; i < 300; i++) {
+      o.addItem(new LineItem(p, 1 + i % 3));
+    }
+    Money total = o.totalWithTax(13);
+    assertSame(total, o.totalWithTax(13));
+    assertSame(o.subtotal(), o.subtotal());
+    assertThrows(IllegalArgumentException.class, () -> o.totalWithTax(-1));
+    o.addItem(new LineItem(p, 1));
+    assertEquals(total.add(Money.of(1.99)).add(Money.of(0.26)), o.totalWithTax(13));
+  }
+
   @Test
   void order_empty_subtotal() {
     var o = new Order(1);
@@ -61,7 +95,7 @@ public class OrderTest {
     var o = new Order(1);
     o.addItem(new LineItem(p, 1)); // baseline
     List<String> events = new ArrayList<>();
-    o.register((order, evt) -> events.add(evt));
+    o.register((order, evt) -> events.add(evt.label()));
     o.addItem(new LineItem(p, 1));
     assertTrue(events.contains("itemAdded"));
   }
@@ -72,7 +106,7 @@ public class OrderTest {
     var o = new Order(1);
     o.addItem(new LineItem(p, 1));
     List<String> events = new ArrayList<>();
-    o.register((order, evt) -> events.add(evt));
+    o.register((order, evt) -> events.add(evt.label()));
     o.pay(order1 -> {});
     assertTrue(events.contains("paid"));
   }
@@ -81,7 +115,7 @@ public class OrderTest {
   void observers_notified_on_ready() {
     var o = new Order(1);
     List<String> events = new ArrayList<>();
-    o.register((order, evt) -> events.add(evt));
+    o.register((order, evt) -> events.add(evt.label()));
     o.markReady();
     assertTrue(events.contains("ready"));
   }
@@ -92,8 +126,8 @@ public class OrderTest {
     var o = new Order(1);
     List<String> events1 = new ArrayList<>();
     List<String> events2 = new ArrayList<>();
-    o.register((order, evt) -> events1.add(evt));
-    o.register((order, evt) -> events2.add(evt));
+    o.register((order, evt) -> events1.add(evt.label()));
+    o.register((order, evt) -> events2.add(evt.label()));
     o.markReady();
     assertTrue(events1.contains("ready"));
     assertTrue(events2.contains("ready"));
@@ -109,7 +143,7 @@ public class OrderTest {
   void observer_unregister_removes_observer() {
     var o = new Order(1);
     List<String> events = new ArrayList<>();
-    var observer = (com.cafepos.observer.OrderObserver) (order, evt) -> events.add(evt);
+    var observer = (com.cafepos.observer.OrderObserver) (order, evt) -> events.add(evt.label());
     o.register(observer);
     o.unregister(observer);
     o.markReady();
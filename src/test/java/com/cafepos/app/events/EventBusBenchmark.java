@@ -0,0 +1,89 @@
+package com.cafepos.app.events;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Synchronous {@code emit} cost with many subscribers: the copy-on-write bus
+ * against the previous HashMap-of-lists bus (exact-class dispatch only).
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.app.events.EventBusBenchmark}.
+ */
+public final class EventBusBenchmark {
+
+  private static final int EMITS = 2_000_000;
+
+  private static long sink;
+
+  /** The bus as it was before the copy-on-write registry. */
+  static final class HashMapBus {
+    private final Map<Class<?>, List<Consumer<?>>> handlers = new HashMap<>();
+
+    <T> void on(Class<T> type, Consumer<T> h) {
+      handlers.computeIfAbsent(type, k -> new ArrayList<>()).add(h);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> void emit(T event) {
+      var list = handlers.getOrDefault(event.getClass(), List.of());
+      for (var h : list) {
+        ((Consumer<T>) h).accept(event);
+      }
+    }
+  }
+
+  static void run(int subscribers) {
+    long[] hits = new long[1];
+    var old = new HashMapBus();
+    var bus = new EventBus();
+    var viaSupertype = new EventBus();
+    // several handler classes, so neither bus gets a single inlined call site
+    List<Consumer<OrderPaid>> kinds = List.of(
+        e -> hits[0] += e.orderId(),
+        e -> hits[0] ^= e.orderId(),
+        e -> hits[0] -= e.orderId() >>> 1,
+        e -> hits[0] += 3);
+    for (int i = 0; i < subscribers; i++) {
+      Consumer<OrderPaid> h = kinds.get(i & 3);
+      old.on(OrderPaid.class, h);
+      bus.on(OrderPaid.class, h);
+      viaSupertype.on(OrderEvent.class, e -> h.accept((OrderPaid) e));
+      // subscribers to other types are in the registry but not on the hot path
+      old.on(OrderCreated.class, e -> hits[0]--);
+      bus.on(OrderCreated.class, e -> hits[0]--);
+      viaSupertype.on(OrderCreated.class, e -> hits[0]--);
+    }
+    var events = new OrderPaid[1024];
+    for (int i = 0; i < events.length; i++) {
+      events[i] = new OrderPaid(i);
+    }
+    int emits = EMITS / subscribers;
+    long t0 = System.nanoTime();
+    for (int i = 0; i < emits; i++) {
+      old.emit(events[i & 1023]);
+    }
+    long t1 = System.nanoTime();
+    for (int i = 0; i < emits; i++) {
+      bus.emit(events[i & 1023]);
+    }
+    long t2 = System.nanoTime();
+    for (int i = 0; i < emits; i++) {
+      viaSupertype.emit(events[i & 1023]);
+    }
+    long t3 = System.nanoTime();
+    sink += hits[0];
+    System.out.printf("subscribers=%4d  hashmap %7.1f ns/emit  cow %7.1f ns/emit  cow via OrderEvent %7.1f ns/emit%n",
+        subscribers, (t1 - t0) / (double) emits, (t2 - t1) / (double) emits, (t3 - t2) / (double) emits);
+  }
+
+  public static void main(String[] args) {
+    for (int round = 0; round < 3; round++) {
+      for (int subscribers : new int[] {1, 16, 256}) {
+        run(subscribers);
+      }
+    }
+    System.out.println("(sink " + sink + ")");
+  }
+}
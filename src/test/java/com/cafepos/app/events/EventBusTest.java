@@ -0,0 +1,189 @@
+package com.cafepos.app.events;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+
+  @Test
+  void async_emit_does_not_wait_for_slow_handlers() throws Exception {
+    var release = new CountDownLatch(1);
+    var got = new AtomicInteger();
+    try (var bus = EventBus.async()) {
+      bus.on(OrderCreated.class, e -> {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        got.incrementAndGet();
+      });
+      long t0 = System.nanoTime();
+      bus.emit(new OrderCreated(1));
+      assertTrue(System.nanoTime() - t0 < TimeUnit.SECONDS.toNanos(1));
+      assertEquals(0, got.get());
+      release.countDown();
+      bus.flush();
+      assertEquals(1, got.get());
+    }
+  }
+
+  @Test
+  void each_subscriber_sees_events_in_emit_order() {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    var first = Collections.synchronizedList(new ArrayList<Long>());
+    var second = Collections.synchronizedList(new ArrayList<Long>());
+    try (var bus = EventBus.async(pool)) {
+      bus.on(OrderPaid.class, e -> first.add(e.orderId()));
+      bus.on(OrderPaid.class, e -> second.add(e.orderId()));
+      for (long id = 0; id < 10_000; id++) {
+        bus.emit(new OrderPaid(id));
+      }
+      bus.flush();
+    }
+    pool.shutdown();
+    List<Long> expected = new ArrayList<>();
+    for (long id = 0; id < 10_000; id++) {
+      expected.add(id);
+    }
+    assertEquals(expected, first);
+    assertEquals(expected, second);
+  }
+
+  @Test
+  void a_throwing_handler_is_reported_and_isolated() {
+    var failures = new AtomicInteger();
+    var delivered = new AtomicInteger();
+    try (var bus = EventBus.async()) {
+      bus.onError((event, e) -> failures.incrementAndGet());
+      bus.on(OrderCreated.class, e -> {
+        throw new IllegalStateException("boom");
+      });
+      bus.on(OrderCreated.class, e -> delivered.incrementAndGet());
+      for (int i = 0; i < 3; i++) {
+        bus.emit(new OrderCreated(i));
+      }
+      bus.flush();
+    }
+    assertEquals(3, failures.get());
+    assertEquals(3, delivered.get());
+  }
+
+  @Test
+  void a_rejected_drain_fails_the_queued_events_instead_of_stalling_flush() {
+    var failed = new AtomicInteger();
+    Executor rejecting = r -> {
+      throw new RejectedExecutionException("saturated");
+    };
+    var bus = EventBus.async(rejecting);
+    bus.onError((event, e) -> failed.incrementAndGet());
+    bus.on(OrderCreated.class, e -> fail("nothing can run"));
+    assertThrows(RejectedExecutionException.class, () -> bus.emit(new OrderCreated(1)));
+    assertTimeoutPreemptively(Duration.ofSeconds(5), bus::close);
+    assertEquals(1, failed.get());
+  }
+
+  @Test
+  void a_handler_error_does_not_wedge_its_mailbox() {
+    var delivered = new AtomicInteger();
+    Executor threads = r -> {
+      Thread t = new Thread(r);
+      t.setUncaughtExceptionHandler((th, e) -> { });
+      t.start();
+    };
+    var bus = EventBus.async(threads);
+    bus.on(OrderCreated.class, e -> {
+      if (e.orderId() == 1) {
+        throw new StackOverflowError();
+      }
+      delivered.incrementAndGet();
+    });
+    for (int i = 0; i < 3; i++) {
+      bus.emit(new OrderCreated(i));
+    }
+    assertTimeoutPreemptively(Duration.ofSeconds(5), bus::close);
+    assertEquals(2, delivered.get());
+  }
+
+  @Test
+  void close_drains_queued_events_and_rejects_new_ones() {
+    var got = new AtomicInteger();
+    var bus = EventBus.async();
+    bus.on(OrderCreated.class, e -> got.incrementAndGet());
+    for (int i = 0; i < 500; i++) {
+      bus.emit(new OrderCreated(i));
+    }
+    bus.close();
+    assertEquals(500, got.get());
+    assertThrows(IllegalStateException.class, () -> bus.emit(new OrderCreated(1)));
+  }
+
+  @Test
+  void supertype_and_interface_handlers_receive_subtype_events_in_subscription_order() {
+    var bus = new EventBus();
+    var seen = new ArrayList<String>();
+    bus.on(OrderEvent.class, e -> seen.add("any:" + e));
+    bus.on(OrderPaid.class, e -> seen.add("paid:" + e.orderId()));
+    bus.on(Object.class, e -> seen.add("object"));
+    bus.emit(new OrderPaid(7));
+    bus.emit(new OrderCreated(8));
+    assertEquals(List.of("any:OrderPaid[orderId=7]", "paid:7", "object",
+        "any:OrderCreated[orderId=8]", "object"), seen);
+
+    bus.on(OrderCreated.class, e -> seen.add("created"));
+    seen.clear();
+    bus.emit(new OrderCreated(9));
+    assertEquals(List.of("any:OrderCreated[orderId=9]", "object", "created"), seen);
+  }
+
+  @Test
+  void subscribing_while_emitting_from_other_threads_is_safe() throws Exception {
+    var bus = new EventBus();
+    var count = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    var emitters = new ArrayList<java.util.concurrent.Future<?>>();
+    for (int t = 0; t < 2; t++) {
+      emitters.add(pool.submit(() -> {
+        for (int i = 0; i < 20_000; i++) {
+          bus.emit(new OrderCreated(i));
+        }
+      }));
+    }
+    for (int i = 0; i < 200; i++) {
+      bus.on(OrderEvent.class, e -> count.incrementAndGet());
+    }
+    for (var f : emitters) {
+      f.get();
+    }
+    pool.shutdown();
+    count.set(0);
+    bus.emit(new OrderCreated(1));
+    assertEquals(200, count.get());
+  }
+
+  @Test
+  void synchronous_bus_still_runs_handlers_inline_and_propagates_failures() {
+    var bus = new EventBus();
+    assertFalse(bus.isAsync());
+    var thread = new ArrayList<Thread>();
+    bus.on(OrderCreated.class, e -> thread.add(Thread.currentThread()));
+    bus.emit(new OrderCreated(1));
+    assertEquals(List.of(Thread.currentThread()), thread);
+    bus.on(OrderPaid.class, e -> {
+      throw new IllegalStateException("boom");
+    });
+    assertThrows(IllegalStateException.class, () -> bus.emit(new OrderPaid(1)));
+    assertThrows(IllegalArgumentException.class, () -> EventBus.async(null));
+  }
+}
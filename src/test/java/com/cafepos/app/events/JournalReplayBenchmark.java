@@ -0,0 +1,64 @@
+package com.cafepos.app.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds the current-order, kitchen-queue and sales projections from a
+ * journal of a busy day, then times an incremental catch-up over the last 1%.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.app.events.JournalReplayBenchmark}.
+ */
+public final class JournalReplayBenchmark {
+
+  private static final int ORDERS = 200_000;
+  private static final String[] PRODUCTS = {"P-ESP", "P-LAT", "P-CAP"};
+
+  static OrderJournal day() {
+    var journal = new OrderJournal();
+    List<OrderEvent> batch = new ArrayList<>(8);
+    for (long id = 0; id < ORDERS; id++) {
+      batch.clear();
+      batch.add(new OrderCreated(id));
+      for (int i = 0; i < 3; i++) {
+        batch.add(new ItemAdded(id, PRODUCTS[(int) (id + i) % 3], 1 + i % 2, 250 + 70L * i));
+      }
+      if (id % 5 == 0) {
+        batch.add(new ItemRemoved(id));
+      }
+      batch.add(new OrderPaid(id));
+      if (id % 10 != 0) {
+        batch.add(new OrderReady(id));
+        batch.add(new OrderDelivered(id));
+      }
+      journal.appendAll(batch);
+    }
+    return journal;
+  }
+
+  public static void main(String[] args) {
+    var journal = day();
+    long events = journal.size();
+    System.out.printf("journal: %,d orders, %,d events%n", ORDERS, events);
+    for (int round = 0; round < 5; round++) {
+      var sales = new SalesTotalsView();
+      var projections = new Projections(journal, new CurrentOrdersView(), new KitchenQueueView(), sales);
+      long t0 = System.nanoTime();
+      projections.catchUp();
+      long full = System.nanoTime() - t0;
+
+      var fresh = new OrderJournal();
+      List<OrderEvent> all = new ArrayList<>((int) events);
+      journal.replay(0, all::add);
+      int split = (int) (events - events / 100);
+      fresh.appendAll(all.subList(0, split));
+      var inc = new Projections(fresh, new CurrentOrdersView(), new KitchenQueueView(), new SalesTotalsView());
+      inc.catchUp();
+      fresh.appendAll(all.subList(split, all.size()));
+      long t1 = System.nanoTime();
+      long applied = inc.catchUp();
+      long incremental = System.nanoTime() - t1;
+      System.out.printf("full rebuild %6.1f ms (%,.0f ev/s)   catch-up of %,d events %5.2f ms   revenue %s%n",
+          full / 1e6, events * 1e9 / full, applied, incremental / 1e6, sales.revenue());
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package com.cafepos.app.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventPublisherTest {
+
+  /** Records every signal; requests only what the test asks for. */
+  static final class Probe implements Flow.Subscriber<OrderEvent> {
+    final LinkedBlockingQueue<OrderEvent> events = new LinkedBlockingQueue<>();
+    final CountDownLatch subscribed = new CountDownLatch(1);
+    final CountDownLatch terminated = new CountDownLatch(1);
+    volatile Flow.Subscription subscription;
+    volatile Throwable error;
+    volatile boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription s) {
+      subscription = s;
+      subscribed.countDown();
+    }
+
+    @Override
+    public void onNext(OrderEvent e) {
+      events.add(e);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      error = t;
+      terminated.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      terminated.countDown();
+    }
+
+    void request(long n) throws InterruptedException {
+      assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+      subscription.request(n);
+    }
+
+    List<OrderEvent> take(int n) throws InterruptedException {
+      List<OrderEvent> out = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        OrderEvent e = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(e, "timed out after " + out);
+        out.add(e);
+      }
+      return out;
+    }
+  }
+
+  @Test
+  void delivers_only_what_was_requested_and_reports_the_rest_as_lag() throws Exception {
+    var publisher = new OrderEventPublisher();
+    var probe = new Probe();
+    publisher.subscribe(probe);
+    probe.request(2);
+    for (long id = 1; id <= 5; id++) {
+      publisher.publish(new OrderPaid(id));
+    }
+    assertEquals(List.of(new OrderPaid(1), new OrderPaid(2)), probe.take(2));
+    assertNull(probe.events.poll(50, TimeUnit.MILLISECONDS));
+    var lag = publisher.lag(probe).orElseThrow();
+    assertEquals(5, lag.published());
+    assertEquals(2, lag.delivered());
+    assertEquals(3, lag.buffered());
+    assertEquals(0, lag.demand());
+    assertTrue(lag.oldestPendingNanos() > 0);
+    probe.request(10);
+    assertEquals(List.of(new OrderPaid(3), new OrderPaid(4), new OrderPaid(5)), probe.take(3));
+  }
+
+  @Test
+  void drop_oldest_keeps_the_newest_events() throws Exception {
+    var publisher = new OrderEventPublisher();
+    var probe = new Probe();
+    publisher.subscribe(probe, new SubscriberOptions(3, OverflowPolicy.DROP_OLDEST));
+    assertTrue(probe.subscribed.await(5, TimeUnit.SECONDS));
+    for (long id = 1; id <= 5; id++) {
+      publisher.publish(new OrderCreated(id));
+    }
+    assertEquals(2, publisher.lag(probe).orElseThrow().dropped());
+    probe.request(Long.MAX_VALUE);
+    assertEquals(List.of(new OrderCreated(3), new OrderCreated(4), new OrderCreated(5)), probe.take(3));
+  }
+
+  /** Publishes {@code events} to a fresh subscriber with a two-event buffer and returns what it then receives. */
+  private static List<OrderEvent> overflow(OverflowPolicy policy, int expected, OrderEvent... events)
+      throws Exception {
+    var publisher = new OrderEventPublisher();
+    var probe = new Probe();
+    publisher.subscribe(probe, new SubscriberOptions(2, policy));
+    assertTrue(probe.subscribed.await(5, TimeUnit.SECONDS));
+    for (OrderEvent e : events) {
+      publisher.publish(e);
+    }
+    probe.request(Long.MAX_VALUE);
+    List<OrderEvent> got = probe.take(expected);
+    assertNull(probe.events.poll(50, TimeUnit.MILLISECONDS));
+    return got;
+  }
+
+  @Test
+  void coalesce_merges_repeated_item_adds_where_drop_oldest_loses_events() throws Exception {
+    OrderEvent[] events = {
+        new OrderPaid(1), new ItemAdded(2, "P-ESP", 1, 250), new ItemAdded(2, "P-ESP", 2, 250)};
+    assertEquals(List.of(new OrderPaid(1), new ItemAdded(2, "P-ESP", 3, 250)),
+        overflow(OverflowPolicy.COALESCE, 2, events));
+    assertEquals(List.of(new ItemAdded(2, "P-ESP", 1, 250), new ItemAdded(2, "P-ESP", 2, 250)),
+        overflow(OverflowPolicy.DROP_OLDEST, 2, events));
+  }
+
+  @Test
+  void coalesce_replaces_a_pending_status_with_the_newer_one() throws Exception {
+    assertEquals(List.of(new OrderReady(1), new OrderCreated(2)),
+        overflow(OverflowPolicy.COALESCE, 2, new OrderPaid(1), new OrderCreated(2), new OrderReady(1)));
+    assertEquals(List.of(new OrderCreated(2), new OrderReady(1)),
+        overflow(OverflowPolicy.DROP_OLDEST, 2, new OrderPaid(1), new OrderCreated(2), new OrderReady(1)));
+  }
+
+  @Test
+  void coalesce_only_merges_into_the_orders_newest_event_and_only_when_full() throws Exception {
+    // room left: nothing merged
+    assertEquals(List.of(new OrderPaid(1), new OrderReady(1)),
+        overflow(OverflowPolicy.COALESCE, 2, new OrderPaid(1), new OrderReady(1)));
+    // the removal sits between the two adds, so they stay apart and the oldest goes
+    assertEquals(List.of(new ItemRemoved(1), new ItemAdded(1, "P-ESP", 1, 250)),
+        overflow(OverflowPolicy.COALESCE, 2,
+            new ItemAdded(1, "P-ESP", 1, 250), new ItemRemoved(1), new ItemAdded(1, "P-ESP", 1, 250)));
+    // different price: not the same line
+    assertEquals(List.of(new ItemAdded(1, "P-ESP", 1, 250), new ItemAdded(1, "P-ESP", 1, 300)),
+        overflow(OverflowPolicy.COALESCE, 2,
+            new OrderCreated(1), new ItemAdded(1, "P-ESP", 1, 250), new ItemAdded(1, "P-ESP", 1, 300)));
+  }
+
+  @Test
+  void a_rejecting_executor_fails_the_subscriber_instead_of_stalling_it() throws Exception {
+    var publisher = new OrderEventPublisher(r -> {
+      throw new RejectedExecutionException("saturated");
+    });
+    var probe = new Probe();
+    publisher.subscribe(probe);
+    assertTrue(probe.subscribed.await(5, TimeUnit.SECONDS));
+    assertTrue(probe.terminated.await(5, TimeUnit.SECONDS));
+    assertInstanceOf(RejectedExecutionException.class, probe.error);
+    assertTrue(publisher.lag(probe).isEmpty());
+    publisher.publish(new OrderPaid(1)); // the publisher is unaffected
+  }
+
+  @Test
+  void block_holds_the_producer_until_the_subscriber_requests() throws Exception {
+    var publisher = new OrderEventPublisher();
+    var probe = new Probe();
+    publisher.subscribe(probe, new SubscriberOptions(2, OverflowPolicy.BLOCK));
+    assertTrue(probe.subscribed.await(5, TimeUnit.SECONDS));
+    var producer = new Thread(() -> {
+      for (long id = 1; id <= 5; id++) {
+        publisher.publish(new OrderPaid(id));
+      }
+    });
+    producer.start();
+    producer.join(200);
+    assertTrue(producer.isAlive());
+    assertEquals(2, publisher.lag(probe).orElseThrow().buffered());
+    probe.request(Long.MAX_VALUE);
+    producer.join(5_000);
+    assertFalse(producer.isAlive());
+    assertEquals(5, probe.take(5).size());
+    var lag = publisher.lag(probe).orElseThrow();
+    assertEquals(0, lag.dropped());
+    assertTrue(lag.blockedNanos() > 0);
+  }
+
+  @Test
+  void close_completes_subscribers_after_their_buffers_drain() throws Exception {
+    var publisher = new OrderEventPublisher();
+    var probe = new Probe();
+    publisher.subscribe(probe);
+    assertTrue(probe.subscribed.await(5, TimeUnit.SECONDS));
+    publisher.publish(new OrderPaid(1));
+    publisher.close();
+    assertThrows(IllegalStateException.class, () -> publisher.publish(new OrderPaid(2)));
+    assertFalse(probe.terminated.await(50, TimeUnit.MILLISECONDS));
+    probe.request(1);
+    assertTrue(probe.terminated.await(5, TimeUnit.SECONDS));
+    assertTrue(probe.completed);
+    assertEquals(List.of(new OrderPaid(1)), probe.take(1));
+    assertEquals(0, publisher.subscriberCount());
+
+    var late = new Probe();
+    publisher.subscribe(late);
+    assertTrue(late.terminated.await(5, TimeUnit.SECONDS));
+    assertTrue(late.completed);
+  }
+
+  @Test
+  void protocol_violations_are_signalled_as_errors() throws Exception {
+    var publisher = new OrderEventPublisher();
+    var probe = new Probe();
+    publisher.subscribe(probe);
+    probe.request(0);
+    assertTrue(probe.terminated.await(5, TimeUnit.SECONDS));
+    assertInstanceOf(IllegalArgumentException.class, probe.error);
+    assertEquals(0, publisher.subscriberCount());
+
+    var twice = new Probe();
+    publisher.subscribe(twice);
+    publisher.subscribe(twice);
+    assertTrue(twice.terminated.await(5, TimeUnit.SECONDS));
+    assertInstanceOf(IllegalStateException.class, twice.error);
+    assertThrows(NullPointerException.class, () -> publisher.subscribe(null));
+  }
+
+  @Test
+  void bus_events_reach_flow_subscribers() throws Exception {
+    var bus = new EventBus();
+    var publisher = new OrderEventPublisher();
+    bus.on(OrderEvent.class, publisher::publish);
+    var probe = new Probe();
+    publisher.subscribe(probe);
+    probe.request(Long.MAX_VALUE);
+    bus.emit(new OrderCreated(9));
+    bus.emit(new OrderPaid(9));
+    assertEquals(List.of(new OrderCreated(9), new OrderPaid(9)), probe.take(2));
+  }
+}
@@ -0,0 +1,69 @@
+package com.cafepos.app.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One producer, two consumers: the ring against the async {@link EventBus}
+ * (one mailbox queue per subscriber). Reports events per second from first
+ * publish until both consumers have seen the last event.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.app.events.OrderEventRingBenchmark}.
+ */
+public final class OrderEventRingBenchmark {
+
+  private static final int EVENTS = 2_000_000;
+
+  static double ring() {
+    var a = new AtomicLong();
+    var b = new AtomicLong();
+    var ring = new OrderEventRing(4096);
+    ring.handleEventsWith((e, seq, end) -> {
+      if (end) {
+        a.lazySet(seq + 1);
+      }
+    }).then((e, seq, end) -> {
+      if (end) {
+        b.lazySet(seq + 1);
+      }
+    });
+    ring.start();
+    var event = new OrderPaid(1);
+    long t0 = System.nanoTime();
+    for (int i = 0; i < EVENTS; i++) {
+      ring.publish(event);
+    }
+    ring.close();
+    long nanos = System.nanoTime() - t0;
+    check(a.get() + b.get());
+    return EVENTS * 1e9 / nanos;
+  }
+
+  static double bus() {
+    var a = new AtomicLong();
+    var b = new AtomicLong();
+    try (var bus = EventBus.async()) {
+      bus.on(OrderPaid.class, e -> a.incrementAndGet());
+      bus.on(OrderPaid.class, e -> b.incrementAndGet());
+      var event = new OrderPaid(1);
+      long t0 = System.nanoTime();
+      for (int i = 0; i < EVENTS; i++) {
+        bus.emit(event);
+      }
+      bus.flush();
+      long nanos = System.nanoTime() - t0;
+      check(a.get() + b.get());
+      return EVENTS * 1e9 / nanos;
+    }
+  }
+
+  private static void check(long seen) {
+    if (seen != 2L * EVENTS) {
+      throw new AssertionError("consumers saw " + seen + " events");
+    }
+  }
+
+  public static void main(String[] args) {
+    for (int round = 0; round < 3; round++) {
+      System.out.printf("ring %,.0f ev/s   async bus %,.0f ev/s%n", ring(), bus());
+    }
+  }
+}
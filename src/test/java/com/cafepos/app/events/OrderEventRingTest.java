@@ -0,0 +1,175 @@
+package com.cafepos.app.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventRingTest {
+
+  @Test
+  void handlers_see_every_event_in_order_and_batches_end_on_the_last_ready_event() {
+    List<Long> seen = new ArrayList<>();
+    List<Long> ends = new ArrayList<>();
+    var ring = new OrderEventRing(8);
+    ring.handleEventsWith((event, seq, endOfBatch) -> {
+      seen.add(((OrderPaid) event).orderId());
+      if (endOfBatch) {
+        ends.add(seq);
+      }
+    });
+    ring.start();
+    for (long i = 0; i < 10_000; i++) {
+      ring.publish(new OrderPaid(i));
+    }
+    ring.close();
+    assertEquals(10_000, seen.size());
+    for (int i = 0; i < seen.size(); i++) {
+      assertEquals(i, seen.get(i));
+    }
+    assertEquals(9_999L, ends.get(ends.size() - 1));
+  }
+
+  @Test
+  void later_stage_only_sees_events_every_earlier_handler_finished() {
+    var first = new AtomicLong(-1);
+    var second = new AtomicLong(-1);
+    var violations = new AtomicLong();
+    var ring = new OrderEventRing(16);
+    ring.handleEventsWith((e, seq, end) -> first.set(seq), (e, seq, end) -> second.set(seq))
+        .then((e, seq, end) -> {
+          if (first.get() < seq || second.get() < seq) {
+            violations.incrementAndGet();
+          }
+        });
+    ring.start();
+    for (long i = 0; i < 5_000; i++) {
+      ring.publish(new OrderCreated(i));
+    }
+    ring.close();
+    assertEquals(0, violations.get());
+    assertEquals(4_999, first.get());
+  }
+
+  @Test
+  void concurrent_producers_deliver_each_event_once() throws Exception {
+    List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+    var ring = new OrderEventRing(64);
+    ring.handleEventsWith((e, seq, end) -> seen.add(((ItemAdded) e).orderId()));
+    ring.start();
+    Thread[] producers = new Thread[4];
+    for (int t = 0; t < producers.length; t++) {
+      long base = t * 10_000L;
+      producers[t] = new Thread(() -> {
+        List<OrderEvent> batch = new ArrayList<>();
+        for (long i = 0; i < 2_000; i++) {
+          if (i % 2 == 0) {
+            ring.publish(new ItemAdded(base + i, "P-ESP", 1, 250));
+          } else {
+            batch.add(new ItemAdded(base + i, "P-LAT", 1, 320));
+            if (batch.size() == 5) {
+              ring.publishAll(batch);
+              batch.clear();
+            }
+          }
+        }
+        ring.publishAll(batch);
+      });
+      producers[t].start();
+    }
+    for (Thread t : producers) {
+      t.join();
+    }
+    ring.close();
+    assertEquals(8_000, seen.size());
+    assertEquals(8_000, seen.stream().distinct().count());
+  }
+
+  @Test
+  void event_bus_subscribers_can_listen_to_the_ring() {
+    List<Long> ready = new ArrayList<>();
+    var bus = new EventBus();
+    bus.on(OrderReady.class, e -> ready.add(e.orderId()));
+    var ring = new OrderEventRing(4);
+    ring.handleEventsWith(OrderEventRing.toBus(bus));
+    ring.start();
+    ring.publish(new OrderPaid(1));
+    ring.publish(new OrderReady(1));
+    ring.publish(new OrderReady(2));
+    ring.close();
+    assertEquals(List.of(1L, 2L), ready);
+  }
+
+  @Test
+  void a_failing_handler_is_reported_and_the_ring_keeps_going() {
+    List<OrderEvent> failed = Collections.synchronizedList(new ArrayList<>());
+    var count = new AtomicLong();
+    var ring = new OrderEventRing(4);
+    ring.onError((e, ex) -> failed.add(e));
+    ring.handleEventsWith((e, seq, end) -> {
+      if (seq == 1) {
+        throw new IllegalStateException("boom");
+      }
+      count.incrementAndGet();
+    });
+    ring.start();
+    for (long i = 0; i < 10; i++) {
+      ring.publish(new OrderCreated(i));
+    }
+    ring.close();
+    assertEquals(9, count.get());
+    assertEquals(List.of(new OrderCreated(1)), failed);
+  }
+
+  @Test
+  void close_racing_producers_loses_no_accepted_event() throws Exception {
+    for (int round = 0; round < 5; round++) {
+      var handled = new AtomicLong();
+      var accepted = new AtomicLong();
+      var ring = new OrderEventRing(4);
+      ring.handleEventsWith((e, seq, end) -> handled.incrementAndGet());
+      ring.start();
+      Thread[] producers = new Thread[3];
+      for (int t = 0; t < producers.length; t++) {
+        producers[t] = new Thread(() -> {
+          try {
+            while (true) {
+              ring.publish(new OrderPaid(1));
+              accepted.incrementAndGet();
+            }
+          } catch (IllegalStateException closed) {
+            // close() won
+          }
+        });
+        producers[t].start();
+      }
+      while (accepted.get() < 1_000) {
+        Thread.onSpinWait();
+      }
+      ring.close();
+      for (Thread t : producers) {
+        t.join(5_000);
+        assertFalse(t.isAlive(), "producer stuck after close");
+      }
+      assertEquals(accepted.get(), handled.get());
+    }
+  }
+
+  @Test
+  void lifecycle_is_enforced() {
+    var ring = new OrderEventRing(5);
+    assertEquals(8, ring.capacity());
+    assertThrows(IllegalStateException.class, () -> ring.publish(new OrderCreated(1)));
+    assertThrows(IllegalStateException.class, ring::start);
+    ring.handleEventsWith((e, seq, end) -> { });
+    ring.start();
+    assertThrows(IllegalStateException.class, () -> ring.handleEventsWith((e, seq, end) -> { }));
+    assertThrows(IllegalArgumentException.class, () -> ring.publishAll(new ArrayList<>(Collections.nCopies(9,
+        new OrderCreated(1)))));
+    ring.close();
+    assertThrows(IllegalStateException.class, () -> ring.publish(new OrderCreated(1)));
+    assertThrows(IllegalArgumentException.class, () -> new OrderEventRing(0));
+  }
+}
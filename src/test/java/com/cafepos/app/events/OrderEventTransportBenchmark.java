@@ -0,0 +1,50 @@
+package com.cafepos.app.events;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Till-to-kitchen throughput over a Unix domain socket: events per second from
+ * the first send until the receiver has acknowledged the last one, for a few
+ * batch sizes.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.app.events.OrderEventTransportBenchmark}.
+ */
+public final class OrderEventTransportBenchmark {
+
+  private static final int EVENTS = 500_000;
+
+  static double run(Path socket, int maxBatchBytes) throws InterruptedException {
+    var bus = new EventBus();
+    long[] seen = new long[1];
+    bus.on(OrderEvent.class, e -> seen[0]++);
+    try (var receiver = OrderEventReceiver.listen(socket, bus);
+         var sender = OrderEventSender.connect(socket, new TransportOptions(EVENTS, maxBatchBytes, 20))) {
+      while (!sender.isConnected()) {
+        Thread.sleep(1);
+      }
+      long t0 = System.nanoTime();
+      for (long id = 0; id < EVENTS; id++) {
+        sender.send(id % 4 == 0 ? new ItemAdded(id, "P-LAT", 1, 320) : new OrderPaid(id));
+      }
+      while (sender.ackedSequence() < EVENTS) {
+        Thread.sleep(1);
+      }
+      long nanos = System.nanoTime() - t0;
+      if (receiver.received() != EVENTS) {
+        throw new AssertionError("received " + receiver.received());
+      }
+      return EVENTS * 1e9 / nanos;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Path dir = Files.createTempDirectory("cafepos-link");
+    Path socket = dir.resolve("kitchen.sock");
+    for (int round = 0; round < 3; round++) {
+      for (int batch : new int[] {64, 4 * 1024, 64 * 1024}) {
+        System.out.printf("batch %6d B: %,12.0f ev/s%n", batch, run(socket, batch));
+      }
+    }
+    Files.deleteIfExists(dir);
+  }
+}
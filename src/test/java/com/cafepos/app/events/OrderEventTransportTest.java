@@ -0,0 +1,148 @@
+package com.cafepos.app.events;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventTransportTest {
+
+  @TempDir
+  Path dir;
+
+  private static final TransportOptions FAST = new TransportOptions(4096, 4096, 20);
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+
+  private static List<OrderEvent> collect(EventBus bus) {
+    List<OrderEvent> got = Collections.synchronizedList(new ArrayList<>());
+    bus.on(OrderEvent.class, got::add);
+    return got;
+  }
+
+  @Test
+  void every_event_kind_arrives_in_order_on_the_remote_bus() throws Exception {
+    Path socket = dir.resolve("kitchen.sock");
+    var bus = new EventBus();
+    var got = collect(bus);
+    List<OrderEvent> sent = new ArrayList<>();
+    try (var receiver = OrderEventReceiver.listen(socket, bus);
+         var sender = OrderEventSender.connect(socket, FAST)) {
+      for (long id = 1; id <= 200; id++) {
+        sent.add(new OrderCreated(id));
+        sent.add(new ItemAdded(id, "P-CAFÉ-" + id, 2, 325));
+        sent.add(new ItemRemoved(id));
+        sent.add(new OrderPaid(id));
+        sent.add(new OrderReady(id));
+        sent.add(new OrderDelivered(id));
+      }
+      sent.forEach(sender::send);
+      await(() -> sender.ackedSequence() == sent.size());
+      assertEquals(sent.size(), receiver.lastSequence());
+      assertEquals(0, receiver.missed());
+    }
+    assertEquals(sent, got);
+  }
+
+  @Test
+  void a_late_receiver_gets_what_was_buffered_while_it_was_down() throws Exception {
+    Path socket = dir.resolve("late.sock");
+    var bus = new EventBus();
+    var got = collect(bus);
+    try (var sender = OrderEventSender.connect(socket, FAST)) {
+      for (long id = 1; id <= 50; id++) {
+        sender.send(new OrderPaid(id));
+      }
+      assertFalse(sender.isConnected());
+      try (var receiver = OrderEventReceiver.listen(socket, bus)) {
+        await(() -> receiver.lastSequence() == 50);
+      }
+    }
+    assertEquals(50, got.size());
+    assertEquals(new OrderPaid(50), got.get(49));
+  }
+
+  @Test
+  void reconnect_resumes_after_the_last_sequence_without_duplicates() throws Exception {
+    Path socket = dir.resolve("resume.sock");
+    var bus = new EventBus();
+    var got = collect(bus);
+    try (var receiver = OrderEventReceiver.listen(socket, bus);
+         var sender = OrderEventSender.connect(socket, FAST)) {
+      for (long id = 1; id <= 100; id++) {
+        sender.send(new OrderCreated(id));
+      }
+      await(() -> receiver.lastSequence() == 100);
+      receiver.dropConnection();
+      for (long id = 101; id <= 300; id++) {
+        sender.send(new OrderCreated(id));
+      }
+      await(() -> receiver.lastSequence() == 300);
+      assertEquals(300, receiver.received());
+      assertEquals(0, receiver.missed());
+      assertTrue(receiver.connections() >= 2);
+      assertTrue(sender.connections() >= 2);
+    }
+    for (int i = 0; i < got.size(); i++) {
+      assertEquals(i + 1, got.get(i).orderId());
+    }
+  }
+
+  @Test
+  void events_older_than_the_replay_buffer_are_counted_as_missed() throws Exception {
+    Path socket = dir.resolve("gap.sock");
+    var bus = new EventBus();
+    var got = collect(bus);
+    try (var sender = OrderEventSender.connect(socket, new TransportOptions(16, 4096, 20))) {
+      for (long id = 1; id <= 40; id++) {
+        sender.send(new OrderReady(id));
+      }
+      try (var receiver = OrderEventReceiver.listen(socket, bus)) {
+        await(() -> receiver.lastSequence() == 40);
+        assertEquals(24, receiver.missed());
+        assertEquals(16, receiver.received());
+      }
+    }
+    assertEquals(new OrderReady(25), got.get(0));
+  }
+
+  @Test
+  void sender_is_an_order_observer() throws Exception {
+    Path socket = dir.resolve("observer.sock");
+    var bus = new EventBus();
+    List<ItemAdded> items = Collections.synchronizedList(new ArrayList<>());
+    bus.on(ItemAdded.class, items::add);
+    try (var receiver = OrderEventReceiver.listen(socket, bus);
+         var sender = OrderEventSender.connect(socket, FAST)) {
+      var order = new Order(77L);
+      order.register(sender);
+      order.addItem(new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 3));
+      order.pay(o -> { });
+      await(() -> receiver.lastSequence() == 2);
+      assertThrows(IllegalArgumentException.class, () -> sender.send(null));
+    }
+    assertEquals(List.of(new ItemAdded(77L, "P-ESP", 3, 250)), items);
+  }
+
+  @Test
+  void closed_sender_rejects_events() {
+    var sender = OrderEventSender.connect(dir.resolve("nobody.sock"), FAST);
+    sender.close();
+    assertThrows(IllegalStateException.class, () -> sender.send(new OrderPaid(1)));
+    assertThrows(IllegalArgumentException.class, () -> new TransportOptions(0, 1, 1));
+  }
+}
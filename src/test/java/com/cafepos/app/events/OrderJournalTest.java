@@ -0,0 +1,132 @@
+package com.cafepos.app.events;
+
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+import com.cafepos.factory.ProductFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+  private final ProductFactory factory = new ProductFactory();
+
+  @Test
+  void recorded_order_changes_become_events() {
+    var journal = new OrderJournal();
+    var order = new Order(7001L);
+    order.addItem(new LineItem(factory.create("ESP"), 1));
+    journal.record(order);
+    order.addItem(new LineItem(factory.create("LAT"), 2));
+    order.addItem(new LineItem(factory.create("CAP"), 1));
+    order.removeLastItem();
+    order.pay(o -> { });
+    order.markReady();
+    order.markDelivered();
+
+    List<OrderEvent> events = new ArrayList<>();
+    assertEquals(8, journal.replay(0, events::add));
+    long esp = factory.create("ESP").basePrice().cents();
+    assertEquals(new OrderCreated(7001L), events.get(0));
+    assertEquals(new ItemAdded(7001L, "P-ESP", 1, esp), events.get(1));
+    assertInstanceOf(ItemAdded.class, events.get(2));
+    assertEquals(new ItemRemoved(7001L), events.get(4));
+    assertEquals(List.of(new OrderPaid(7001L), new OrderReady(7001L), new OrderDelivered(7001L)),
+        events.subList(5, 8));
+  }
+
+  @Test
+  void projections_match_the_orders_they_were_built_from() {
+    var journal = new OrderJournal();
+    var current = new CurrentOrdersView();
+    var kitchen = new KitchenQueueView();
+    var sales = new SalesTotalsView();
+    var projections = new Projections(journal, current, kitchen, sales);
+
+    var a = new Order(1L);
+    var b = new Order(2L);
+    journal.record(a);
+    journal.record(b);
+    a.addItem(new LineItem(factory.create("LAT"), 2));
+    b.addItem(new LineItem(factory.create("ESP"), 1));
+    b.addItem(new LineItem(factory.create("CAP"), 3));
+    b.removeLastItem();
+    a.pay(o -> { });
+    b.pay(o -> { });
+    a.markReady();
+    projections.catchUp();
+
+    var viewA = current.find(1L).orElseThrow();
+    assertEquals(OrderStatus.READY, viewA.status());
+    assertEquals(a.subtotal(), viewA.subtotal());
+    assertEquals(1, current.find(2L).orElseThrow().lines().size());
+    assertEquals(b.subtotal(), current.find(2L).orElseThrow().subtotal());
+    assertEquals(List.of(2L), kitchen.queue());
+    assertEquals(2, sales.ordersPaid());
+    assertEquals(a.subtotal().add(b.subtotal()), sales.revenue());
+    assertEquals(2, sales.unitsSold("P-LAT"));
+    assertEquals(0, sales.unitsSold("P-CAP"));
+  }
+
+  @Test
+  void catch_up_applies_only_new_events() {
+    var journal = new OrderJournal();
+    var kitchen = new KitchenQueueView();
+    var projections = new Projections(journal, kitchen);
+    List<OrderEvent> batch = new ArrayList<>();
+    for (long id = 0; id < 20_000; id++) {
+      batch.add(new OrderPaid(id));
+    }
+    journal.appendAll(batch);
+    assertEquals(20_000, projections.catchUp());
+    assertEquals(20_000, kitchen.size());
+    assertEquals(0, projections.catchUp());
+    journal.append(new OrderReady(0));
+    journal.append(new OrderDelivered(1));
+    assertEquals(2, projections.catchUp());
+    assertEquals(20_002, projections.position());
+    assertEquals(19_998, kitchen.size());
+    assertEquals(2L, kitchen.queue().get(0));
+  }
+
+  @Test
+  void replay_crosses_chunks_from_any_position() {
+    var journal = new OrderJournal();
+    for (long i = 0; i < 20_000; i++) {
+      assertEquals(i, journal.append(new OrderCreated(i)));
+    }
+    long[] next = {8_190};
+    assertEquals(20_000, journal.replay(8_190, e -> assertEquals(next[0]++, ((OrderCreated) e).orderId())));
+    assertEquals(20_000, next[0]);
+    assertThrows(IllegalArgumentException.class, () -> journal.replay(20_001, e -> { }));
+    assertThrows(IllegalArgumentException.class, () -> journal.append(null));
+  }
+
+  @Test
+  void sales_ignore_items_added_after_payment() {
+    var sales = new SalesTotalsView();
+    sales.apply(new ItemAdded(1, "P-ESP", 1, 250));
+    sales.apply(new OrderPaid(1));
+    sales.apply(new ItemAdded(1, "P-ESP", 1, 250));
+    sales.apply(new OrderPaid(1));
+    assertEquals(1, sales.ordersPaid());
+    assertEquals(Money.ofCents(250), sales.revenue());
+  }
+
+  @Test
+  void projections_reject_overflowing_subtotals_without_half_applying_them() {
+    var current = new CurrentOrdersView();
+    var sales = new SalesTotalsView();
+    var huge = new ItemAdded(1, "P-ESP", 2, Long.MAX_VALUE / 2 + 1);
+    assertThrows(ArithmeticException.class, () -> current.apply(huge));
+    assertTrue(current.find(1).orElseThrow().lines().isEmpty());
+
+    sales.apply(huge);
+    assertThrows(ArithmeticException.class, () -> sales.apply(new OrderPaid(1)));
+    assertEquals(0, sales.ordersPaid());
+    assertEquals(Money.ofCents(0), sales.revenue());
+  }
+}
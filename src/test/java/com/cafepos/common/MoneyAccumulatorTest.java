@@ -0,0 +1,51 @@
+package com.cafepos.common;
+
+import com.cafepos.app.EndOfDayTotals;
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyAccumulatorTest {
+
+  @Test
+  void accumulates_like_chained_add() {
+    var acc = new MoneyAccumulator();
+    acc.add(Money.of(2.50)).addTimes(Money.of(1.20), 3).add(Money.zero());
+    assertEquals(Money.of(2.50).add(Money.of(1.20).multiply(3)), acc.toMoney());
+    assertEquals(610, acc.cents());
+    assertEquals("6.10", acc.toString());
+  }
+
+  @Test
+  void reset_and_append() {
+    var acc = new MoneyAccumulator().add(Money.of(9.99));
+    assertEquals("x=9.99", acc.appendTo(new StringBuilder("x=")).toString());
+    assertEquals(Money.zero(), acc.reset().toMoney());
+  }
+
+  @Test
+  void rejects_bad_input() {
+    var acc = new MoneyAccumulator();
+    assertThrows(IllegalArgumentException.class, () -> acc.add(null));
+    assertThrows(IllegalArgumentException.class, () -> acc.addTimes(null, 1));
+    assertThrows(IllegalArgumentException.class, () -> acc.addTimes(Money.of(1), -1));
+    assertThrows(ArithmeticException.class,
+        () -> acc.add(Money.ofCents(Long.MAX_VALUE)).add(Money.ofCents(1)));
+  }
+
+  @Test
+  void end_of_day_totals_sum_orders() {
+    var p = new SimpleProduct("A", "A", Money.of(2.50));
+    var o1 = new Order(1);
+    o1.addItem(new LineItem(p, 2));
+    var o2 = new Order(2);
+    o2.addItem(new LineItem(p, 1));
+    var totals = new EndOfDayTotals();
+    assertEquals(Money.of(7.50), totals.subtotal(List.of(o1, o2)));
+    assertEquals(o1.totalWithTax(10).add(o2.totalWithTax(10)),
+        totals.totalWithTax(List.of(o1, o2), 10));
+  }
+}
@@ -0,0 +1,171 @@
+package com.cafepos.common;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.pricing.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the long-cents Money against the BigDecimal formulas it replaced.
+ * The {@code ref*} helpers are the pre-cents implementations, kept verbatim.
+ */
+class MoneyParityTest {
+
+  private static final long SEED = 0xCAFE_2025L;
+  private static final int ROUNDS = 20_000;
+
+  private static BigDecimal ref(BigDecimal a) {
+    return a.setScale(2, RoundingMode.HALF_UP);
+  }
+
+  private static BigDecimal refPercent(BigDecimal amount, int percent) {
+    return ref(amount.multiply(BigDecimal.valueOf(percent)).divide(BigDecimal.valueOf(100)));
+  }
+
+  private static BigDecimal refOrderTax(BigDecimal subtotal, int percent) {
+    BigDecimal taxAmount = new BigDecimal(subtotal.toString())
+        .multiply(new BigDecimal(percent))
+        .divide(new BigDecimal(100), 2, RoundingMode.HALF_UP);
+    return ref(BigDecimal.valueOf(taxAmount.doubleValue()));
+  }
+
+  private static void assertParity(BigDecimal expected, Money actual) {
+    assertEquals(expected, actual.asBigDecimal());
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  void of_double_rounds_like_bigdecimal() {
+    Random rnd = new Random(SEED);
+    for (int i = 0; i < ROUNDS; i++) {
+      double d = rnd.nextInt(1_000_000) / 1000.0;
+      assertParity(ref(BigDecimal.valueOf(d)), Money.of(d));
+    }
+    for (double d : new double[] {0.005, 0.015, 0.125, 1.005, 2.675, 2.556, 0.0049999, 99.995}) {
+      assertParity(ref(BigDecimal.valueOf(d)), Money.of(d));
+    }
+  }
+
+  @Test
+  void of_bigdecimal_rounds_like_bigdecimal() {
+    Random rnd = new Random(SEED);
+    for (int i = 0; i < ROUNDS; i++) {
+      BigDecimal v = BigDecimal.valueOf(rnd.nextLong() & 0xFFFF_FFFFFL, rnd.nextInt(6));
+      assertParity(ref(v), Money.of(v));
+    }
+  }
+
+  @Test
+  void add_multiply_subtract_match() {
+    Random rnd = new Random(SEED);
+    for (int i = 0; i < ROUNDS; i++) {
+      BigDecimal a = BigDecimal.valueOf(rnd.nextInt(10_000_000), 2);
+      BigDecimal b = BigDecimal.valueOf(rnd.nextInt(10_000_000), 2);
+      int qty = rnd.nextInt(500);
+      Money ma = Money.of(a);
+      Money mb = Money.of(b);
+      assertParity(ref(a.add(b)), ma.add(mb));
+      assertParity(ref(a.multiply(new BigDecimal(qty))), ma.multiply(qty));
+      BigDecimal hi = a.max(b);
+      BigDecimal lo = a.min(b);
+      assertParity(ref(hi.subtract(lo)), Money.of(hi).subtract(Money.of(lo)));
+      assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(ma.compareTo(mb)));
+    }
+  }
+
+  @Test
+  void percent_policies_match() {
+    Random rnd = new Random(SEED);
+    for (int i = 0; i < ROUNDS; i++) {
+      BigDecimal a = BigDecimal.valueOf(rnd.nextInt(100_000_000), 2);
+      int percent = rnd.nextInt(101);
+      Money m = Money.of(a);
+      assertParity(refPercent(a, percent), new LoyaltyPercentDiscount(percent).discountOf(m));
+      assertParity(refPercent(a, percent), new FixedRateTaxPolicy(percent).taxOn(m));
+    }
+  }
+
+  @Test
+  void half_up_ties_round_away_from_zero() {
+    assertEquals(1, Cents.percentOf(10, 5));
+    assertEquals(0, Cents.percentOf(9, 5));
+    assertEquals(3, Cents.divideHalfUp(5, 2));
+    assertEquals(-3, Cents.divideHalfUp(-5, 2));
+    assertEquals(-2, Cents.divideHalfUp(-7, 4));
+  }
+
+  @Test
+  void order_tax_matches_double_round_trip() {
+    Random rnd = new Random(SEED);
+    for (int i = 0; i < 2_000; i++) {
+      var order = new Order(i);
+      int lines = 1 + rnd.nextInt(8);
+      BigDecimal subtotal = BigDecimal.ZERO.setScale(2);
+      for (int l = 0; l < lines; l++) {
+        BigDecimal unit = BigDecimal.valueOf(1 + rnd.nextInt(2_000), 2);
+        int qty = 1 + rnd.nextInt(20);
+        order.addItem(new LineItem(new SimpleProduct("X", "X", Money.of(unit)), qty));
+        subtotal = ref(subtotal.add(unit.multiply(new BigDecimal(qty))));
+      }
+      int percent = rnd.nextInt(30);
+      BigDecimal tax = refOrderTax(subtotal, percent);
+      assertParity(subtotal, order.subtotal());
+      assertParity(tax, order.taxAtPercent(percent));
+      assertParity(ref(subtotal.add(tax)), order.totalWithTax(percent));
+    }
+  }
+
+  @Test
+  void pricing_service_matches() {
+    Random rnd = new Random(SEED);
+    for (int i = 0; i < ROUNDS; i++) {
+      BigDecimal sub = BigDecimal.valueOf(rnd.nextInt(1_000_000), 2);
+      int d = rnd.nextInt(20);
+      int t = rnd.nextInt(25);
+      BigDecimal disc = refPercent(sub, d);
+      BigDecimal discounted = ref(sub.subtract(disc));
+      BigDecimal tax = refPercent(discounted, t);
+      var pr = new PricingService(new LoyaltyPercentDiscount(d), new FixedRateTaxPolicy(t))
+          .price(Money.of(sub));
+      assertParity(disc, pr.discount());
+      assertParity(tax, pr.tax());
+      assertParity(ref(discounted.add(tax)), pr.total());
+    }
+  }
+
+  @Test
+  void format_matches_bigdecimal_to_string() {
+    for (long c : new long[] {0, 1, 9, 10, 99, 100, 101, 12345, -1, -99, -100, -12345,
+        Long.MAX_VALUE, Long.MIN_VALUE}) {
+      assertEquals(BigDecimal.valueOf(c, 2).toString(), Cents.format(c));
+    }
+  }
+
+  @Test
+  void arithmetic_overflow_is_detected() {
+    Money big = Money.ofCents(Long.MAX_VALUE);
+    assertThrows(ArithmeticException.class, () -> big.add(Money.ofCents(1)));
+    assertThrows(ArithmeticException.class, () -> big.multiply(2));
+    assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+  }
+
+  @Test
+  void negative_amounts_still_rejected() {
+    assertThrows(IllegalArgumentException.class, () -> Money.ofCents(-1));
+    assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("-0.001")));
+    assertThrows(IllegalArgumentException.class, () -> Money.of(1).subtract(Money.of(2)));
+    assertThrows(IllegalArgumentException.class, () -> Money.of((BigDecimal) null));
+  }
+
+  @Test
+  void equal_values_have_equal_hash_codes() {
+    assertEquals(Money.of(2.5), Money.ofCents(250));
+    assertEquals(Money.of(2.5).hashCode(), Money.ofCents(250).hashCode());
+    assertSame(Money.zero(), Money.ofCents(0));
+  }
+}
@@ -0,0 +1,90 @@
+package com.cafepos.factory;
+
+import com.cafepos.catalog.Priced;
+import com.cafepos.catalog.Product;
+import com.cafepos.common.Money;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFactoryCacheTest {
+
+  @Test
+  void same_normalized_recipe_returns_shared_instance() {
+    var f = new ProductFactory();
+    Product a = f.create("LAT+SHOT+OAT");
+    Product b = f.create(" lat + shot+oat ");
+    assertSame(a, b);
+    var stats = f.cacheStats();
+    assertEquals(1, stats.misses());
+    assertEquals(1, stats.hits());
+    assertEquals(1, stats.size());
+  }
+
+  @Test
+  void normalize_trims_and_upper_cases_each_code() {
+    assertEquals("ESP+SHOT+L", RecipeCache.normalize("esp + Shot +l"));
+    String canonical = "CAP+SYP";
+    assertSame(canonical, RecipeCache.normalize(canonical));
+  }
+
+  @Test
+  void least_recently_used_recipe_is_evicted() throws Exception {
+    var f = new ProductFactory(2);
+    Product esp = f.create("ESP");
+    f.create("LAT");
+    Thread.sleep(1);
+    assertSame(esp, f.create("ESP"));
+    f.create("CAP");
+    assertEquals(2, f.cacheStats().size());
+    assertEquals(1, f.cacheStats().evictions());
+    assertSame(esp, f.create("ESP"));
+    assertEquals(2, f.cacheStats().hits());
+  }
+
+  @Test
+  void unknown_recipes_are_not_cached() {
+    var f = new ProductFactory();
+    assertThrows(IllegalArgumentException.class, () -> f.create("ESP+FOO"));
+    assertEquals(0, f.cacheStats().size());
+  }
+
+  @Test
+  void uncached_factory_builds_fresh_products() {
+    var f = new ProductFactory(0);
+    assertNotSame(f.create("ESP+SHOT"), f.create("ESP+SHOT"));
+    assertEquals(0, f.cacheStats().hits());
+    assertThrows(IllegalArgumentException.class, () -> new ProductFactory(-1));
+  }
+
+  @Test
+  void concurrent_creates_stay_bounded_and_consistent() throws Exception {
+    var f = new ProductFactory(8);
+    String[] recipes = {"ESP", "LAT", "CAP", "ESP+SHOT", "LAT+OAT", "CAP+SYP", "LAT+L",
+        "ESP+SHOT+SHOT", "CAP+OAT+L", "LAT+SHOT+SYP+L"};
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final int seed = t;
+      futures.add(pool.submit(() -> {
+        for (int i = 0; i < 5_000; i++) {
+          String r = recipes[(i + seed) % recipes.length];
+          Product p = f.create(r);
+          Product fresh = new ProductFactory(0).create(r);
+          assertEquals(fresh.name(), p.name());
+          assertEquals(((Priced) fresh).price(), ((Priced) p).price());
+        }
+      }));
+    }
+    for (Future<?> fut : futures) {
+      fut.get(30, TimeUnit.SECONDS);
+    }
+    pool.shutdown();
+    var stats = f.cacheStats();
+    assertTrue(stats.size() <= 8);
+    assertEquals(40_000, stats.hits() + stats.misses());
+    assertEquals(Money.of(3.20), ((Priced) f.create("LAT")).price());
+  }
+}
@@ -0,0 +1,85 @@
+package com.cafepos.factory;
+
+import com.cafepos.catalog.Priced;
+import com.cafepos.catalog.Product;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeCodesTest {
+
+  private final ProductFactory plain = new ProductFactory(0);
+
+  @Test
+  void code_packs_base_and_addon_counts() {
+    long code = RecipeCodes.encode("lat+shot+shot+oat+l");
+    assertEquals(RecipeParser.BASE_LAT, RecipeCodes.baseId(code));
+    assertEquals(2, RecipeCodes.count(code, RecipeParser.ADDON_SHOT));
+    assertEquals(1, RecipeCodes.count(code, RecipeParser.ADDON_OAT));
+    assertEquals(0, RecipeCodes.count(code, RecipeParser.ADDON_SYP));
+    assertEquals(1, RecipeCodes.count(code, RecipeParser.ADDON_L));
+    assertEquals("LAT+SHOT+SHOT+OAT+L", RecipeCodes.toRecipe(code));
+    assertEquals(code, RecipeCodes.encode(RecipeCodes.toRecipe(code)));
+  }
+
+  @Test
+  void code_of_reads_flattened_and_decorated_products() {
+    assertEquals(RecipeCodes.encode("LAT+OAT+L"), RecipeCodes.codeOf(new ProductFactory().create("LAT+L+OAT")));
+    Product chain = new com.cafepos.decorator.ExtraShot(plain.create("CAP+SYP"));
+    assertEquals(RecipeCodes.encode("CAP+SYP+SHOT"), RecipeCodes.codeOf(chain));
+    assertEquals(RecipeCodes.encode("ESP"), RecipeCodes.codeOf(plain.create("ESP")));
+    assertEquals(-1, RecipeCodes.codeOf(new com.cafepos.catalog.SimpleProduct("P-TEA", "Tea",
+        com.cafepos.common.Money.of(2.00))));
+  }
+
+  @Test
+  void addon_order_does_not_change_code() {
+    assertEquals(RecipeCodes.encode("CAP+OAT+SHOT"), RecipeCodes.encode("CAP+SHOT+OAT"));
+    assertNotEquals(RecipeCodes.encode("CAP+SHOT"), RecipeCodes.encode("ESP+SHOT"));
+  }
+
+  @Test
+  void table_matches_decorator_prices_and_canonical_names() {
+    String[] bases = {"ESP", "LAT", "CAP"};
+    String[] addons = {"SHOT", "OAT", "SYP", "L"};
+    for (String base : bases) {
+      for (int mask = 0; mask < 256; mask++) {
+        StringBuilder r = new StringBuilder(base);
+        for (int a = 0; a < 4; a++) {
+          int n = (mask >> (2 * a)) & 3;
+          for (int k = 0; k < n; k++) {
+            r.append('+').append(addons[a]);
+          }
+        }
+        Product p = plain.create(r.toString());
+        long code = RecipeCodes.encode(r);
+        assertEquals(((Priced) p).price(), RecipeCodes.price(code), r.toString());
+        assertEquals(p.name(), RecipeCodes.name(code), r.toString());
+      }
+    }
+  }
+
+  @Test
+  void large_counts_fall_back_to_computation() {
+    String r = "ESP" + "+SHOT".repeat(12);
+    assertEquals(((Priced) plain.create(r)).price(), RecipeCodes.price(RecipeCodes.encode(r)));
+    assertEquals(plain.create(r).name(), RecipeCodes.name(RecipeCodes.encode(r)));
+    assertThrows(IllegalArgumentException.class,
+        () -> RecipeCodes.encode("ESP" + "+L".repeat(256)));
+  }
+
+  @Test
+  void invalid_codes_are_rejected() {
+    assertThrows(IllegalArgumentException.class, () -> RecipeCodes.price(3));
+    assertThrows(IllegalArgumentException.class, () -> RecipeCodes.name(1L << 48));
+    assertThrows(IllegalArgumentException.class, () -> RecipeCodes.encode("MOCHA"));
+  }
+
+  @Test
+  void factory_unit_price_uses_codes() {
+    assertEquals(((Priced) plain.create("LAT+OAT+L")).price(), plain.unitPrice("lat + oat + l"));
+    assertThrows(IllegalArgumentException.class, () -> plain.unitPrice(" "));
+    String many = "ESP" + "+L".repeat(300);
+    assertEquals(((Priced) plain.create(many)).price(), plain.unitPrice(many));
+    assertThrows(IllegalArgumentException.class, () -> plain.unitPrice(many + "+MOCHA"));
+  }
+}
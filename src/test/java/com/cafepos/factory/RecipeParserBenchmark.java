@@ -0,0 +1,70 @@
+package com.cafepos.factory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Rough microbenchmark: split/stream parsing vs {@link RecipeParser}.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.factory.RecipeParserBenchmark}.
+ */
+public final class RecipeParserBenchmark {
+
+  private static final String[] RECIPES = {"ESP", "LAT+SHOT", "cap + oat + l",
+      "LAT+SHOT+SHOT+OAT+SYP+L", "esp+syp"};
+  private static final int ITERATIONS = 2_000_000;
+
+  private static long sink;
+
+  private static final RecipeParser.Handler COUNTING = new RecipeParser.Handler() {
+    @Override
+    public void base(int baseId) {
+      sink += baseId;
+    }
+
+    @Override
+    public void addOn(int addOnId) {
+      sink += addOnId;
+    }
+  };
+
+  static void legacy(String recipe) {
+    String[] parts = Arrays.stream(recipe.split("\\+"))
+        .map(String::trim)
+        .map(String::toUpperCase)
+        .toArray(String[]::new);
+    sink += parts.length + parts[0].length();
+  }
+
+  static void tokenizer(String recipe) {
+    RecipeParser.parse(recipe, COUNTING);
+  }
+
+  interface Body {
+    void run(String recipe);
+  }
+
+  static void measure(String label, Body body) {
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long tid = Thread.currentThread().getId();
+    for (int i = 0; i < ITERATIONS / 4; i++) {
+      body.run(RECIPES[i % RECIPES.length]);
+    }
+    long bytes0 = threads.getThreadAllocatedBytes(tid);
+    long t0 = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      body.run(RECIPES[i % RECIPES.length]);
+    }
+    long t1 = System.nanoTime();
+    long bytes1 = threads.getThreadAllocatedBytes(tid);
+    System.out.printf("%-10s %8.1f ns/op %8.1f B/op%n", label,
+        (t1 - t0) / (double) ITERATIONS, (bytes1 - bytes0) / (double) ITERATIONS);
+  }
+
+  public static void main(String[] args) {
+    for (int round = 0; round < 3; round++) {
+      measure("split", RecipeParserBenchmark::legacy);
+      measure("tokenizer", RecipeParserBenchmark::tokenizer);
+    }
+    System.out.println("(sink " + sink + ")");
+  }
+}
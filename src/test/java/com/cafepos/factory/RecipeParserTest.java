@@ -0,0 +1,93 @@
+package com.cafepos.factory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeParserTest {
+
+  private static final String[] BASES = {"ESP", "LAT", "CAP"};
+  private static final String[] ADDONS = {"SHOT", "OAT", "SYP", "L"};
+
+  /** The split/stream parsing ProductFactory used before the tokenizer. */
+  static List<String> legacy(String recipe) {
+    String[] parts = Arrays.stream(recipe.split("\\+"))
+        .map(String::trim)
+        .map(String::toUpperCase)
+        .toArray(String[]::new);
+    List<String> out = new ArrayList<>();
+    if (!Arrays.asList(BASES).contains(parts[0])) {
+      throw new IllegalArgumentException("Unknown base: " + parts[0]);
+    }
+    out.add(parts[0]);
+    for (int i = 1; i < parts.length; i++) {
+      if (!Arrays.asList(ADDONS).contains(parts[i])) {
+        throw new IllegalArgumentException("Unknown addon: " + parts[i]);
+      }
+      out.add(parts[i]);
+    }
+    return out;
+  }
+
+  static List<String> tokens(String recipe) {
+    List<String> out = new ArrayList<>();
+    RecipeParser.parse(recipe, new RecipeParser.Handler() {
+      @Override
+      public void base(int baseId) {
+        out.add(BASES[baseId]);
+      }
+
+      @Override
+      public void addOn(int addOnId) {
+        out.add(ADDONS[addOnId]);
+      }
+    });
+    return out;
+  }
+
+  @Test
+  void matches_legacy_split_parser() {
+    String[] recipes = {"ESP", "lat+shot", " Cap + Oat + l ", "LAT+SHOT+SHOT+OAT+SYP+L",
+        "ESP+", "ESP++", "esp\t+\tsyp", "CAP+L+L+L"};
+    for (String r : recipes) {
+      assertEquals(legacy(r), tokens(r), r);
+    }
+  }
+
+  @Test
+  void error_messages_match_legacy() {
+    String[] bad = {"MOCHA", "ESP+FOO", "+ESP", "ESP++SHOT", "ESP+ ", "ESP+ shots ", "es p",
+        "LAT+SHOT+oatt"};
+    for (String r : bad) {
+      var expected = assertThrows(IllegalArgumentException.class, () -> legacy(r));
+      var actual = assertThrows(IllegalArgumentException.class, () -> tokens(r));
+      assertEquals(expected.getMessage(), actual.getMessage(), r);
+    }
+  }
+
+  @Test
+  void all_delimiters_is_unknown_base() {
+    var e = assertThrows(IllegalArgumentException.class, () -> tokens("++"));
+    assertEquals("Unknown base: ", e.getMessage());
+  }
+
+  @Test
+  void parses_any_char_sequence() {
+    assertEquals(List.of("LAT", "OAT"), tokens(new StringBuilder("lat+oat").toString()));
+    List<Integer> ids = new ArrayList<>();
+    RecipeParser.parse(new StringBuilder("cap+syp"), new RecipeParser.Handler() {
+      @Override
+      public void base(int baseId) {
+        ids.add(baseId);
+      }
+
+      @Override
+      public void addOn(int addOnId) {
+        ids.add(addOnId);
+      }
+    });
+    assertEquals(List.of(RecipeParser.BASE_CAP, RecipeParser.ADDON_SYP), ids);
+  }
+}
@@ -0,0 +1,118 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.Order;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentOrderRepositoryTest {
+
+  @Test
+  void saves_and_finds_including_zero_and_negative_ids() {
+    var repo = new ConcurrentOrderRepository(1);
+    for (long id : new long[] {0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 1001L}) {
+      var o = new Order(id);
+      repo.save(o);
+      assertSame(o, repo.findById(id).orElseThrow());
+    }
+    assertTrue(repo.findById(42L).isEmpty());
+    assertEquals(5, repo.size());
+  }
+
+  @Test
+  void save_replaces_existing_order_and_grows() {
+    var repo = new ConcurrentOrderRepository(3);
+    for (long id = 0; id < 10_000; id++) {
+      repo.save(new Order(id));
+    }
+    var replacement = new Order(77L);
+    repo.save(replacement);
+    assertSame(replacement, repo.findById(77L).orElseThrow());
+    assertEquals(10_000, repo.size());
+    for (long id = 0; id < 10_000; id++) {
+      assertEquals(id, repo.findById(id).orElseThrow().id());
+    }
+  }
+
+  @Test
+  void stream_splits_down_to_slot_ranges_and_visits_each_order_once() {
+    var repo = new ConcurrentOrderRepository(2);
+    for (long id = 0; id < 20_000; id++) {
+      repo.save(new Order(id));
+    }
+    var parts = new ArrayList<java.util.Spliterator<Order>>();
+    parts.add(repo.stream().spliterator());
+    for (int round = 0; round < 6; round++) {
+      var next = new ArrayList<java.util.Spliterator<Order>>();
+      for (var s : parts) {
+        var prefix = s.trySplit();
+        if (prefix != null) {
+          next.add(prefix);
+        }
+        next.add(s);
+      }
+      parts = next;
+    }
+    assertTrue(parts.size() > 2, "last segment should split by slots");
+    var seen = new java.util.BitSet();
+    for (var s : parts) {
+      s.forEachRemaining(o -> {
+        assertFalse(seen.get((int) o.id()));
+        seen.set((int) o.id());
+      });
+    }
+    assertEquals(20_000, seen.cardinality());
+    assertEquals(20_000L * 19_999 / 2, repo.stream().parallel().mapToLong(Order::id).sum());
+  }
+
+  @Test
+  void rejects_bad_arguments() {
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrentOrderRepository(0));
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrentOrderRepository().save(null));
+  }
+
+  @Test
+  void concurrent_writers_and_readers_never_lose_orders() throws Exception {
+    var repo = new ConcurrentOrderRepository(4);
+    int writers = 4;
+    int perWriter = 50_000;
+    var written = new AtomicLong[writers];
+    for (int w = 0; w < writers; w++) {
+      written[w] = new AtomicLong(-1);
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(writers * 2);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      final int writer = w;
+      futures.add(pool.submit(() -> {
+        for (int i = 0; i < perWriter; i++) {
+          long id = (long) i * writers + writer;
+          repo.save(new Order(id));
+          written[writer].set(i);
+        }
+      }));
+      futures.add(pool.submit(() -> {
+        var rnd = ThreadLocalRandom.current();
+        while (written[writer].get() < perWriter - 1) {
+          long upTo = written[writer].get();
+          if (upTo < 0) {
+            continue;
+          }
+          long i = rnd.nextLong(upTo + 1);
+          long id = i * writers + writer;
+          var found = repo.findById(id);
+          assertTrue(found.isPresent(), "missing " + id);
+          assertEquals(id, found.get().id());
+        }
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get(60, TimeUnit.SECONDS);
+    }
+    pool.shutdown();
+    assertEquals(writers * perWriter, repo.size());
+  }
+}
@@ -0,0 +1,71 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.HiLoOrderIds;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileIdBlockSourceTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void ids_stay_unique_across_restarts_and_sharing_instances() {
+    Path file = dir.resolve("ids/watermark");
+    Set<Long> seen = new HashSet<>();
+    var first = new HiLoOrderIds(new FileIdBlockSource(file), 10, 1);
+    assertEquals(1001, first.next());
+    seen.add(1001L);
+    var second = new HiLoOrderIds(new FileIdBlockSource(file), 10, 1);
+    for (int i = 0; i < 95; i++) {
+      assertTrue(seen.add(first.next()));
+      assertTrue(seen.add(second.next()));
+    }
+    // a restart skips whatever was left of the old blocks
+    var restarted = new HiLoOrderIds(new FileIdBlockSource(file), 10, 1);
+    long next = restarted.next();
+    assertTrue(seen.stream().allMatch(id -> id < next));
+  }
+
+  @Test
+  void torn_slot_falls_back_to_the_other_one() throws IOException {
+    Path file = dir.resolve("watermark");
+    var source = new FileIdBlockSource(file, 0);
+    assertEquals(1, source.reserve(5));
+    assertEquals(6, source.reserve(5));
+    // the next write goes to slot 0 (watermark 5); tear it as a crash mid-write would
+    try (var ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      ch.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 0);
+    }
+    assertEquals(11, source.reserve(5));
+    assertEquals(16, source.reserve(5));
+  }
+
+  @Test
+  void refuses_a_file_with_both_slots_corrupt() throws IOException {
+    Path file = dir.resolve("watermark");
+    var source = new FileIdBlockSource(file, 0);
+    source.reserve(5);
+    source.reserve(5);
+    try (var ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      ch.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 0);
+      ch.write(ByteBuffer.wrap(new byte[] {4, 5, 6}), 12);
+    }
+    assertThrows(IllegalStateException.class, () -> source.reserve(5));
+  }
+
+  @Test
+  void rejects_bad_arguments() {
+    assertThrows(IllegalArgumentException.class, () -> new FileIdBlockSource(null));
+    assertThrows(IllegalArgumentException.class, () -> new FileIdBlockSource(dir.resolve("x"), -1));
+    assertThrows(IllegalArgumentException.class, () -> new FileIdBlockSource(dir.resolve("x")).reserve(0));
+  }
+}
@@ -0,0 +1,321 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.FlattenedProduct;
+import com.cafepos.decorator.OatMilk;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.factory.ProductFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOrderRepositoryTest {
+
+  @TempDir
+  Path dir;
+
+  private static final LogOptions NO_TIMER = new LogOptions(64L << 20, 1_000, 0);
+
+  private static Order sampleOrder(long id) {
+    var factory = new ProductFactory();
+    var o = new Order(id, 1_700_000_000_000L + id);
+    o.addItem(new LineItem(factory.create("LAT+SHOT+OAT+L"), 2));
+    o.addItem(new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 1));
+    o.addItem(new LineItem(new OatMilk(new SimpleProduct("P-CAP", "Cappuccino", Money.of(3.00))), 3));
+    return o;
+  }
+
+  private static void assertSameOrder(Order expected, Order actual) {
+    assertEquals(expected.id(), actual.id());
+    assertEquals(expected.createdAt(), actual.createdAt());
+    assertEquals(expected.status(), actual.status());
+    assertEquals(expected.items().size(), actual.items().size());
+    for (int i = 0; i < expected.items().size(); i++) {
+      var e = expected.items().get(i);
+      var a = actual.items().get(i);
+      assertEquals(e.product().id(), a.product().id());
+      assertEquals(e.product().name(), a.product().name());
+      assertEquals(e.product().basePrice(), a.product().basePrice());
+      assertEquals(e.quantity(), a.quantity());
+      assertEquals(e.lineTotal(), a.lineTotal());
+    }
+    assertEquals(expected.totalWithTax(10), actual.totalWithTax(10));
+  }
+
+  @Test
+  void orders_survive_restart() {
+    Order o1 = sampleOrder(1001);
+    Order o2 = sampleOrder(1002);
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      repo.save(o1);
+      repo.save(o2);
+      o1.removeLastItem();
+      repo.save(o1);
+    }
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertEquals(2, repo.size());
+      assertSameOrder(o1, repo.findById(1001).orElseThrow());
+      assertSameOrder(o2, repo.findById(1002).orElseThrow());
+      var p = repo.findById(1002).orElseThrow().items().get(0).product();
+      assertEquals(3, ((FlattenedProduct) p).addOns().size());
+      assertTrue(repo.findById(9).isEmpty());
+    }
+  }
+
+  @Test
+  void fsyncs_are_batched_by_record_count() {
+    try (var repo = new FileOrderRepository(dir, new LogOptions(64L << 20, 10, 0))) {
+      for (long id = 0; id < 25; id++) {
+        repo.save(new Order(id));
+      }
+      assertEquals(2, repo.syncCount());
+      repo.flush();
+      assertEquals(3, repo.syncCount());
+      repo.flush();
+      assertEquals(3, repo.syncCount());
+    }
+  }
+
+  @Test
+  void save_all_syncs_once_per_batch_and_survives_restart() {
+    var batch = new java.util.ArrayList<Order>();
+    for (long id = 0; id < 500; id++) {
+      batch.add(sampleOrder(id));
+    }
+    try (var repo = new FileOrderRepository(dir, new LogOptions(64L << 20, 10, 0))) {
+      repo.saveAll(batch);
+      assertEquals(1, repo.syncCount());
+    }
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertEquals(500, repo.size());
+      assertSameOrder(batch.get(123), repo.findById(123).orElseThrow());
+      assertEquals(500, repo.stream().count());
+    }
+  }
+
+  @Test
+  void timer_syncs_pending_records() throws Exception {
+    try (var repo = new FileOrderRepository(dir, new LogOptions(64L << 20, 1_000, 5))) {
+      repo.save(sampleOrder(1));
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (repo.syncCount() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+      assertEquals(1, repo.syncCount());
+    }
+  }
+
+  @Test
+  void segments_roll_and_replay_in_order() throws IOException {
+    var small = new LogOptions(1024, 1_000, 0);
+    try (var repo = new FileOrderRepository(dir, small)) {
+      for (long id = 0; id < 200; id++) {
+        repo.save(sampleOrder(id % 50));
+      }
+    }
+    assertTrue(OrderLog.segmentIndexes(dir).size() > 10);
+    try (var repo = new FileOrderRepository(dir, small)) {
+      assertEquals(50, repo.size());
+      assertSameOrder(sampleOrder(7), repo.findById(7).orElseThrow());
+    }
+  }
+
+  @Test
+  void torn_tail_is_truncated_and_log_stays_appendable() throws IOException {
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      repo.save(sampleOrder(1));
+      repo.save(sampleOrder(2));
+    }
+    Path last = OrderLog.segmentPath(dir, OrderLog.segmentIndexes(dir).get(0));
+    long goodSize = Files.size(last);
+    Files.write(last, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertEquals(2, repo.size());
+      assertEquals(goodSize, Files.size(last));
+      repo.save(sampleOrder(3));
+    }
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertEquals(3, repo.size());
+    }
+  }
+
+  @Test
+  void corrupt_older_segment_fails_fast() throws IOException {
+    var small = new LogOptions(1024, 1_000, 0);
+    try (var repo = new FileOrderRepository(dir, small)) {
+      for (long id = 0; id < 40; id++) {
+        repo.save(sampleOrder(id));
+      }
+    }
+    Path first = OrderLog.segmentPath(dir, OrderLog.segmentIndexes(dir).get(0));
+    byte[] bytes = Files.readAllBytes(first);
+    bytes[bytes.length - 3] ^= 0x5A;
+    Files.write(first, bytes);
+    assertThrows(IllegalStateException.class, () -> new FileOrderRepository(dir, small));
+  }
+
+  @Test
+  void closed_repository_rejects_saves() {
+    var repo = new FileOrderRepository(dir, NO_TIMER);
+    repo.close();
+    repo.close();
+    assertThrows(IllegalStateException.class, () -> repo.save(new Order(1)));
+    assertThrows(IllegalArgumentException.class, () -> new LogOptions(10, 1, 0));
+  }
+
+  @Test
+  void snapshot_compacts_log_and_restart_replays_only_tail() throws IOException {
+    var small = new LogOptions(1024, 1_000, 0);
+    try (var repo = new FileOrderRepository(dir, small)) {
+      for (long id = 0; id < 100; id++) {
+        repo.save(sampleOrder(id % 30));
+      }
+      repo.snapshot();
+      long firstKept = OrderLog.segmentIndexes(dir).get(0);
+      assertTrue(Files.exists(dir.resolve(OrderSnapshot.fileName(firstKept))));
+      assertEquals(1, OrderLog.segmentIndexes(dir).size());
+      Order changed = sampleOrder(5);
+      changed.removeLastItem();
+      repo.save(changed);
+      repo.save(sampleOrder(99));
+    }
+    try (var repo = new FileOrderRepository(dir, small)) {
+      assertEquals(31, repo.size());
+      assertEquals(2, repo.findById(5).orElseThrow().items().size());
+      assertSameOrder(sampleOrder(12), repo.findById(12).orElseThrow());
+      repo.snapshot();
+      repo.snapshot();
+    }
+    try (var files = Files.list(dir)) {
+      assertEquals(1, files.filter(p -> p.getFileName().toString().endsWith(".snap")).count());
+    }
+    try (var repo = new FileOrderRepository(dir, small)) {
+      assertEquals(31, repo.size());
+    }
+  }
+
+  @Test
+  void damaged_snapshot_without_covering_log_fails_loudly() throws IOException {
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      repo.save(sampleOrder(1));
+      repo.snapshot();
+      repo.save(sampleOrder(2));
+    }
+    Path snap;
+    try (var files = Files.list(dir)) {
+      snap = files.filter(p -> p.getFileName().toString().endsWith(".snap")).findFirst().orElseThrow();
+    }
+    byte[] bytes = Files.readAllBytes(snap);
+    bytes[20] ^= 0x01;
+    Files.write(snap, bytes);
+    assertThrows(IllegalStateException.class, () -> new FileOrderRepository(dir, NO_TIMER));
+  }
+
+  @Test
+  void periodic_snapshot_runs_in_background() throws Exception {
+    try (var repo = new FileOrderRepository(dir, new LogOptions(64L << 20, 1_000, 0, 10))) {
+      repo.save(sampleOrder(1));
+      long deadline = System.currentTimeMillis() + 5_000;
+      boolean found = false;
+      while (!found && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+        try (var files = Files.list(dir)) {
+          found = files.anyMatch(p -> p.getFileName().toString().endsWith(".snap"));
+        }
+      }
+      assertTrue(found);
+    }
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertSameOrder(sampleOrder(1), repo.findById(1).orElseThrow());
+    }
+  }
+
+  @Test
+  void resaves_log_only_what_changed() throws IOException {
+    var espresso = new SimpleProduct("P-ESP", "Espresso", Money.of(2.50));
+    var catering = new Order(7, 1_700_000_000_000L);
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      for (int i = 0; i < 500; i++) {
+        catering.addItem(new LineItem(espresso, 1));
+        repo.save(catering);
+      }
+      catering.removeLastItem();
+      repo.save(catering);
+      catering.pay(o -> { });
+      repo.save(catering);
+    }
+    long logBytes = 0;
+    for (long segment : OrderLog.segmentIndexes(dir)) {
+      logBytes += Files.size(OrderLog.segmentPath(dir, segment));
+    }
+    // re-logging the whole order every save would be about 250x the final order
+    assertTrue(logBytes < 3L * OrderCodec.encode(catering).length, "log holds " + logBytes + " bytes");
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertSameOrder(catering, repo.findById(7).orElseThrow());
+    }
+  }
+
+  @Test
+  void changes_after_a_snapshot_replay_onto_it_once() {
+    var o = sampleOrder(1);
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      repo.save(o);
+      o.addItem(new LineItem(new SimpleProduct("P-TEA", "Tea", Money.of(2.00)), 1));
+      repo.save(o);
+      repo.snapshot();
+      o.removeLastItem();
+      o.removeLastItem();
+      repo.save(o);
+      o.markReady();
+      repo.save(o);
+    }
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertSameOrder(o, repo.findById(1).orElseThrow());
+    }
+  }
+
+  @Test
+  void codec_rejects_a_record_cut_before_its_trailing_fields() {
+    byte[] whole = OrderCodec.encode(sampleOrder(1));
+    assertSameOrder(sampleOrder(1), OrderCodec.decode(ByteBuffer.wrap(whole)));
+    var cut = ByteBuffer.wrap(whole, 0, whole.length - Long.BYTES - 1);
+    assertThrows(IllegalStateException.class, () -> OrderCodec.decode(cut));
+  }
+
+  @Test
+  void snapshot_holds_saved_state_not_later_unsaved_changes() {
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      var o = sampleOrder(1);
+      repo.save(o);
+      o.addItem(new LineItem(new SimpleProduct("P-TEA", "Tea", Money.of(2.00)), 1));
+      repo.snapshot();
+    }
+    try (var repo = new FileOrderRepository(dir, NO_TIMER)) {
+      assertSameOrder(sampleOrder(1), repo.findById(1).orElseThrow());
+    }
+  }
+
+  @Test
+  void periodic_snapshot_failures_are_reported() throws Exception {
+    // the first snapshot rolls to segment 2; a directory in the way of its temp file fails it
+    Files.createDirectory(dir.resolve(OrderSnapshot.fileName(2) + ".tmp"));
+    var failures = new LinkedBlockingQueue<RuntimeException>();
+    try (var repo = new FileOrderRepository(dir, new LogOptions(64L << 20, 1_000, 0, 20))) {
+      repo.onError(failures::add);
+      repo.save(sampleOrder(1));
+      var failure = failures.poll(5, TimeUnit.SECONDS);
+      assertNotNull(failure, "snapshot failure was not reported");
+      assertInstanceOf(UncheckedIOException.class, failure);
+    }
+  }
+}
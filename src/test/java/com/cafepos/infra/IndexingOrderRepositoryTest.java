@@ -0,0 +1,110 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.OatMilk;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+import com.cafepos.factory.ProductFactory;
+import com.cafepos.payment.CashPayment;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexingOrderRepositoryTest {
+
+  @TempDir
+  Path dir;
+
+  private static Order order(long id, long createdAt, String recipe) {
+    var o = new Order(id, createdAt);
+    o.addItem(new LineItem(ProductFactory.shared().create(recipe), 1));
+    return o;
+  }
+
+  private static List<Long> ids(List<Order> orders) {
+    return orders.stream().map(Order::id).toList();
+  }
+
+  @Test
+  void queries_by_time_range_status_and_product() {
+    var repo = new IndexingOrderRepository();
+    repo.save(order(3, 300, "LAT+OAT"));
+    repo.save(order(1, 100, "ESP"));
+    repo.save(order(2, 200, "CAP+SHOT+OAT"));
+    var plain = new Order(4, 200);
+    plain.addItem(new LineItem(new OatMilk(new SimpleProduct("P-TEA", "Tea", Money.of(2.00))), 1));
+    repo.save(plain);
+
+    assertEquals(List.of(1L, 2L, 4L, 3L), ids(repo.findCreatedBetween(0, 1_000)));
+    assertEquals(List.of(2L, 4L), ids(repo.findCreatedBetween(200, 300)));
+    assertEquals(List.of(), ids(repo.findCreatedBetween(300, 300)));
+    assertEquals(List.of(2L, 4L, 3L), ids(repo.findByProduct("Oat Milk")));
+    assertEquals(List.of(3L), ids(repo.findByProductCreatedBetween("Oat Milk", 250, 400)));
+    assertEquals(List.of(1L), ids(repo.findByProduct("P-ESP")));
+    assertEquals(List.of(4L), ids(repo.findByProduct("P-TEA")));
+    assertEquals(List.of(), ids(repo.findByProduct("Syrup")));
+    assertEquals(4, repo.findByStatus(OrderStatus.OPEN).size());
+    assertEquals(List.of(), repo.findByStatus(OrderStatus.PAID));
+  }
+
+  @Test
+  void resave_moves_order_between_indexes() {
+    var repo = new IndexingOrderRepository();
+    var o = order(7, 500, "LAT");
+    repo.save(o);
+    o.addItem(new LineItem(ProductFactory.shared().create("ESP+SYP"), 1));
+    o.pay(new CashPayment());
+    repo.save(o);
+
+    assertEquals(List.of(), repo.findByStatus(OrderStatus.OPEN));
+    assertEquals(List.of(7L), ids(repo.findByStatusCreatedBetween(OrderStatus.PAID, 0, 1_000)));
+    assertEquals(List.of(7L), ids(repo.findByProduct("Syrup")));
+    assertEquals(List.of(7L), ids(repo.findCreatedBetween(0, 1_000)));
+    assertEquals(1, repo.size());
+
+    o.markReady();
+    repo.save(o);
+    assertEquals(List.of(), repo.findByStatus(OrderStatus.PAID));
+    assertEquals(List.of(7L), ids(repo.findByStatus(OrderStatus.READY)));
+  }
+
+  @Test
+  void indexes_orders_already_in_the_delegate() {
+    var inner = new ConcurrentOrderRepository();
+    inner.save(order(1, 10, "CAP+L"));
+    inner.save(order(2, 20, "ESP"));
+    var repo = new IndexingOrderRepository(inner);
+    assertEquals(List.of(1L), ids(repo.findByProduct("Large")));
+    assertEquals(List.of(1L, 2L), ids(repo.findByStatus(OrderStatus.OPEN)));
+  }
+
+  @Test
+  void file_repository_keeps_created_at_and_status_across_restart() {
+    var opts = new LogOptions(64L << 20, 1_000, 0);
+    try (var file = new FileOrderRepository(dir, opts)) {
+      var o = order(5, 12_345, "LAT+OAT");
+      o.pay(new CashPayment());
+      file.save(o);
+      file.save(order(6, 12_346, "ESP"));
+    }
+    try (var file = new FileOrderRepository(dir, opts)) {
+      var repo = new IndexingOrderRepository(file);
+      assertEquals(List.of(5L), ids(repo.findByStatus(OrderStatus.PAID)));
+      assertEquals(List.of(5L), ids(repo.findByProductCreatedBetween("Oat Milk", 12_000, 13_000)));
+      assertEquals(List.of(6L), ids(repo.findByStatus(OrderStatus.OPEN)));
+    }
+  }
+
+  @Test
+  void rejects_bad_arguments() {
+    var repo = new IndexingOrderRepository();
+    assertThrows(IllegalArgumentException.class, () -> new IndexingOrderRepository(null));
+    assertThrows(IllegalArgumentException.class, () -> repo.save(null));
+    assertThrows(IllegalArgumentException.class, () -> repo.findByStatus(null));
+    assertThrows(IllegalArgumentException.class, () -> repo.findByProduct(null));
+  }
+}
@@ -0,0 +1,66 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.factory.ProductFactory;
+
+/**
+ * Heap footprint and scan speed of 1M paid orders, as objects versus archived.
+ * Run with {@code java -Xmx3g -cp target/classes:target/test-classes com.cafepos.infra.OrderArchiveBenchmark}.
+ */
+public final class OrderArchiveBenchmark {
+
+  private static final int ORDERS = 1_000_000;
+  private static final String[] RECIPES = {"ESP", "LAT+OAT", "CAP+SHOT+L", "LAT+SYP"};
+
+  private static long sink;
+
+  static Order order(int i) {
+    var o = new Order(i, 1_700_000_000_000L + i);
+    o.addItem(new LineItem(ProductFactory.shared().create(RECIPES[i & 3]), 1 + (i & 1)));
+    o.addItem(new LineItem(ProductFactory.shared().create(RECIPES[(i >>> 2) & 3]), 1));
+    o.pay(order -> { });
+    return o;
+  }
+
+  static long usedHeap() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    Runtime rt = Runtime.getRuntime();
+    return rt.totalMemory() - rt.freeMemory();
+  }
+
+  public static void main(String[] args) throws Exception {
+    long before = usedHeap();
+    var objects = new ConcurrentOrderRepository();
+    for (int i = 0; i < ORDERS; i++) {
+      objects.save(order(i));
+    }
+    long objectHeap = usedHeap() - before;
+
+    var archive = new OrderArchive();
+    for (int i = 0; i < ORDERS; i++) {
+      archive.save(order(i));
+    }
+    long bothHeap = usedHeap() - before;
+    System.out.printf("objects: %5.0f B/order heap%n", objectHeap / (double) ORDERS);
+    System.out.printf("archive: %5.0f B/order heap + %4.0f B/order off-heap (allocated)%n",
+        (bothHeap - objectHeap) / (double) ORDERS, archive.offHeapBytes() / (double) ORDERS);
+
+    for (int round = 0; round < 5; round++) {
+      long t0 = System.nanoTime();
+      long[] a = new long[1];
+      objects.forEach(o -> a[0] += o.subtotal().cents());
+      long t1 = System.nanoTime();
+      long[] b = new long[1];
+      archive.forEach(v -> b[0] += v.subtotalCents());
+      long t2 = System.nanoTime();
+      sink += a[0] + b[0];
+      System.out.printf("subtotal scan: objects %5.1f ms, archive views %5.1f ms (equal: %b)%n",
+          (t1 - t0) / 1e6, (t2 - t1) / 1e6, a[0] == b[0]);
+    }
+    System.out.println("(sink " + sink + ")");
+  }
+}
@@ -0,0 +1,132 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.OatMilk;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+import com.cafepos.factory.ProductFactory;
+import com.cafepos.factory.RecipeCodes;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderArchiveTest {
+
+  private static Order paid(long id, String... recipes) {
+    var o = new Order(id, 9_000 + id);
+    for (int i = 0; i < recipes.length; i++) {
+      o.addItem(new LineItem(ProductFactory.shared().create(recipes[i]), i + 1));
+    }
+    o.pay(order -> { });
+    return o;
+  }
+
+  @Test
+  void views_read_records_without_building_orders() {
+    var archive = new OrderArchive();
+    archive.save(paid(1, "LAT+OAT+SHOT", "ESP"));
+    var v = new OrderArchive.View();
+    assertTrue(archive.find(1, v));
+    assertEquals(1, v.id());
+    assertEquals(9_001, v.createdAt());
+    assertEquals(OrderStatus.PAID, v.status());
+    assertEquals(2, v.lineCount());
+    assertEquals(RecipeCodes.encode("LAT+SHOT+OAT"), v.productCode(0));
+    assertEquals(2, v.quantity(1));
+    assertEquals(Money.of(3.20 + 0.80 + 0.50).cents(), v.unitCents(0));
+    assertEquals(v.lineCents(0) + v.lineCents(1), v.subtotalCents());
+    assertThrows(IndexOutOfBoundsException.class, () -> v.quantity(2));
+    assertFalse(archive.find(2, v));
+  }
+
+  @Test
+  void materialized_orders_match_the_originals() {
+    var archive = new OrderArchive();
+    var original = paid(5, "CAP+L+SYP", "ESP+SHOT+SHOT");
+    original.markDelivered();
+    archive.save(original);
+    var back = archive.findById(5).orElseThrow();
+    assertEquals(original.createdAt(), back.createdAt());
+    assertEquals(OrderStatus.DELIVERED, back.status());
+    assertEquals(original.subtotal(), back.subtotal());
+    assertEquals(original.totalWithTax(10), back.totalWithTax(10));
+    assertEquals("P-CAP", back.items().get(0).product().id());
+  }
+
+  @Test
+  void decorated_products_and_odd_prices_keep_their_cents() {
+    var archive = new OrderArchive();
+    var o = new Order(3, 1);
+    o.addItem(new LineItem(new OatMilk(new SimpleProduct("P-LAT", "Latte", Money.of(3.20))), 1));
+    o.addItem(new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(1.99)), 2));
+    o.pay(order -> { });
+    archive.save(o);
+    assertEquals(o.subtotal(), archive.findById(3).orElseThrow().subtotal());
+  }
+
+  @Test
+  void resave_replaces_and_scans_skip_dead_records() {
+    var archive = new OrderArchive(4096);
+    List<Order> batch = new ArrayList<>();
+    for (long id = 0; id < 1_000; id++) {
+      batch.add(paid(id, "LAT", "ESP+OAT"));
+    }
+    archive.saveAll(batch);
+    var replacement = paid(10, "CAP");
+    replacement.markReady();
+    archive.save(replacement);
+
+    assertEquals(1_000, archive.size());
+    assertTrue(archive.offHeapBytes() > 4096, "records spill into more chunks");
+    assertEquals(OrderStatus.READY, archive.findById(10).orElseThrow().status());
+    long[] seen = new long[2];
+    archive.forEach(v -> {
+      seen[0]++;
+      seen[1] += v.id();
+    });
+    assertEquals(1_000, seen[0]);
+    assertEquals(1_000L * 999 / 2, seen[1]);
+    assertEquals(1_000, archive.stream().parallel().count());
+  }
+
+  @Test
+  void reads_racing_a_resave_of_the_same_order_see_a_whole_record() throws Exception {
+    var archive = new OrderArchive(4096);
+    archive.save(paid(7, "LAT"));
+    var writer = new Thread(() -> {
+      for (int i = 0; i < 20_000; i++) {
+        var o = i % 2 == 0 ? paid(7, "LAT", "ESP") : paid(7, "CAP");
+        if (i % 3 == 0) {
+          o.markReady();
+        }
+        archive.save(o);
+      }
+    });
+    writer.start();
+    int reads = 0;
+    while (writer.isAlive() || reads == 0) {
+      Order o = archive.findById(7).orElseThrow();
+      assertEquals(7, o.id());
+      assertTrue(o.items().size() == 1 || o.items().size() == 2);
+      archive.forEach(v -> assertNotNull(v.status()));
+      reads++;
+    }
+    writer.join();
+    assertEquals(1, archive.size());
+  }
+
+  @Test
+  void rejects_open_orders_and_products_without_recipes() {
+    var archive = new OrderArchive();
+    assertThrows(IllegalArgumentException.class, () -> archive.save(new Order(1)));
+    var tea = new Order(2);
+    tea.addItem(new LineItem(new SimpleProduct("P-TEA", "Tea", Money.of(2.00)), 1));
+    tea.pay(order -> { });
+    assertThrows(IllegalArgumentException.class, () -> archive.save(tea));
+    assertThrows(IllegalArgumentException.class, () -> new OrderArchive(100));
+    assertEquals(0, archive.size());
+  }
+}
@@ -0,0 +1,106 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+import com.cafepos.factory.ProductFactory;
+import com.cafepos.payment.PaymentStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Index queries against a full scan at 1M stored orders spread over 30 days.
+ * Run with {@code java -Xmx3g -cp target/classes:target/test-classes com.cafepos.infra.OrderIndexBenchmark}.
+ */
+public final class OrderIndexBenchmark {
+
+  private static final int ORDERS = 1_000_000;
+  private static final long DAY = 24L * 60 * 60 * 1000;
+  private static final long HOUR = 60L * 60 * 1000;
+  private static final long START = 1_700_000_000_000L;
+  private static final long END = START + 30 * DAY;
+  private static final String[] RECIPES = {"ESP", "LAT", "CAP", "LAT+OAT", "CAP+SHOT", "ESP+SYP", "LAT+OAT+L"};
+
+  private static long sink;
+
+  static Order[] orders() {
+    Order[] orders = new Order[ORDERS];
+    PaymentStrategy pay = order -> { };
+    long x = 0x9E3779B97F4A7C15L;
+    for (int i = 0; i < ORDERS; i++) {
+      x ^= x << 13;
+      x ^= x >>> 7;
+      x ^= x << 17;
+      var o = new Order(i, START + (long) i * (30 * DAY) / ORDERS);
+      o.addItem(new LineItem(ProductFactory.shared().create(RECIPES[(int) ((x >>> 1) % RECIPES.length)]), 1));
+      // Most orders are paid; about 1 in 50 is still open.
+      if ((x & 63) != 0) {
+        o.pay(pay);
+      }
+      orders[i] = o;
+    }
+    return orders;
+  }
+
+  static boolean hasOat(Order o) {
+    for (LineItem li : o.items()) {
+      if (li.product().name().contains("Oat Milk")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static void time(String label, Supplier<List<Order>> query) {
+    int reps = 20;
+    int n = 0;
+    long t0 = System.nanoTime();
+    for (int r = 0; r < reps; r++) {
+      n = query.get().size();
+      sink += n;
+    }
+    long ns = (System.nanoTime() - t0) / reps;
+    System.out.printf("  %-34s %8d hits %10.3f ms%n", label, n, ns / 1e6);
+  }
+
+  static List<Order> scan(ConcurrentOrderRepository repo, Predicate<Order> p) {
+    List<Order> out = new ArrayList<>();
+    repo.forEach(o -> {
+      if (p.test(o)) {
+        out.add(o);
+      }
+    });
+    return out;
+  }
+
+  public static void main(String[] args) {
+    Order[] orders = orders();
+    for (int round = 0; round < 3; round++) {
+      var plain = new ConcurrentOrderRepository();
+      long t0 = System.nanoTime();
+      for (Order o : orders) {
+        plain.save(o);
+      }
+      long t1 = System.nanoTime();
+      var indexed = new IndexingOrderRepository(new ConcurrentOrderRepository());
+      for (Order o : orders) {
+        indexed.save(o);
+      }
+      long t2 = System.nanoTime();
+      System.out.printf("round %d: save plain %.0f ns/op, indexed %.0f ns/op%n", round,
+          (t1 - t0) / (double) ORDERS, (t2 - t1) / (double) ORDERS);
+
+      long from = END - HOUR;
+      time("scan   open orders", () -> scan(plain, o -> o.status() == OrderStatus.OPEN));
+      time("index  open orders", () -> indexed.findByStatus(OrderStatus.OPEN));
+      time("scan   last hour", () -> scan(plain, o -> o.createdAt() >= from && o.createdAt() < END));
+      time("index  last hour", () -> indexed.findCreatedBetween(from, END));
+      time("scan   oat milk in last hour", () -> scan(plain,
+          o -> o.createdAt() >= from && o.createdAt() < END && hasOat(o)));
+      time("index  oat milk in last hour", () -> indexed.findByProductCreatedBetween("Oat Milk", from, END));
+    }
+    System.out.println("(sink " + sink + ")");
+  }
+}
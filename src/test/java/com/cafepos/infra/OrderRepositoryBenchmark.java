@@ -0,0 +1,99 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderRepository;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Rough throughput comparison of repository implementations.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.infra.OrderRepositoryBenchmark}.
+ */
+public final class OrderRepositoryBenchmark {
+
+  private static final int ORDERS = 1 << 20;
+  private static final int LOOKUPS = 8_000_000;
+
+  private static long sink;
+
+  /** The HashMap repository is not thread-safe, so the multi-threaded run wraps it in a lock. */
+  private static final class Locked implements OrderRepository {
+    private final InMemoryOrderRepository inner = new InMemoryOrderRepository();
+
+    @Override
+    public synchronized void save(Order order) {
+      inner.save(order);
+    }
+
+    @Override
+    public synchronized void saveAll(java.util.Collection<Order> orders) {
+      inner.saveAll(orders);
+    }
+
+    @Override
+    public synchronized java.util.Optional<Order> findById(long id) {
+      return inner.findById(id);
+    }
+
+    @Override
+    public java.util.stream.Stream<Order> stream() {
+      return inner.stream();
+    }
+  }
+
+  static void run(String label, Supplier<OrderRepository> factory, int threads) throws Exception {
+    OrderRepository repo = factory.get();
+    Order[] orders = new Order[ORDERS];
+    for (int i = 0; i < ORDERS; i++) {
+      orders[i] = new Order(i);
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    long t0 = System.nanoTime();
+    var saves = new Future<?>[threads];
+    for (int t = 0; t < threads; t++) {
+      final int from = t;
+      saves[t] = pool.submit(() -> {
+        for (int i = from; i < ORDERS; i += threads) {
+          repo.save(orders[i]);
+        }
+      });
+    }
+    for (var f : saves) {
+      f.get();
+    }
+    long t1 = System.nanoTime();
+    var reads = new Future<?>[threads];
+    for (int t = 0; t < threads; t++) {
+      final long seed = t;
+      reads[t] = pool.submit(() -> {
+        long x = seed * 0x9E3779B97F4A7C15L + 1;
+        long local = 0;
+        for (int i = 0; i < LOOKUPS / threads; i++) {
+          x ^= x << 13;
+          x ^= x >>> 7;
+          x ^= x << 17;
+          local += repo.findById(x & (ORDERS - 1)).map(Order::id).orElse(0L);
+        }
+        return local;
+      });
+    }
+    for (var f : reads) {
+      sink += (Long) f.get();
+    }
+    long t2 = System.nanoTime();
+    pool.shutdown();
+    System.out.printf("%-24s threads=%d  save %6.1f Mops/s  find %6.1f Mops/s%n", label, threads,
+        ORDERS * 1e3 / (t1 - t0), LOOKUPS * 1e3 / (t2 - t1));
+  }
+
+  public static void main(String[] args) throws Exception {
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int round = 0; round < 3; round++) {
+      run("HashMap", InMemoryOrderRepository::new, 1);
+      run("ConcurrentOrderRepo", ConcurrentOrderRepository::new, 1);
+      run("HashMap+lock", Locked::new, cores);
+      run("ConcurrentOrderRepo", ConcurrentOrderRepository::new, cores);
+    }
+    System.out.println("(sink " + sink + ")");
+  }
+}
@@ -0,0 +1,87 @@
+package com.cafepos.infra;
+
+import com.cafepos.app.EndOfDayTotals;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderRepository;
+import com.cafepos.factory.ProductFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** saveAll and stream() behave the same on every repository. */
+class OrderRepositoryContractTest {
+
+  @TempDir
+  Path dir;
+
+  private static final Map<String, Function<Path, OrderRepository>> REPOSITORIES = Map.of(
+      "in-memory", d -> new InMemoryOrderRepository(),
+      "concurrent", d -> new ConcurrentOrderRepository(),
+      "file", d -> new FileOrderRepository(d, new LogOptions(64L << 20, 256, 0)),
+      "indexing", d -> new IndexingOrderRepository(),
+      "tiered", d -> new TieredOrderRepository(d, new TierOptions(Long.MAX_VALUE / 2, 100, 0)));
+
+  private static List<Order> orders(int n) {
+    List<Order> out = new ArrayList<>(n);
+    for (long id = 0; id < n; id++) {
+      var o = new Order(id, 1_000 + id);
+      o.addItem(new LineItem(ProductFactory.shared().create(id % 2 == 0 ? "ESP" : "LAT+OAT"), 1));
+      if (id % 3 == 0) {
+        o.pay(order -> { });
+      }
+      out.add(o);
+    }
+    return out;
+  }
+
+  private static void close(OrderRepository repo) throws IOException {
+    if (repo instanceof Closeable c) {
+      c.close();
+    }
+  }
+
+  @Test
+  void save_all_then_stream_sees_every_order_once() throws IOException {
+    List<Order> batch = orders(5_000);
+    for (var e : REPOSITORIES.entrySet()) {
+      var repo = e.getValue().apply(dir.resolve(e.getKey()));
+      try {
+        repo.saveAll(batch);
+        repo.save(batch.get(7));
+        assertEquals(5_000, repo.stream().count(), e.getKey());
+        assertEquals(5_000L * 4_999 / 2, repo.stream().parallel().mapToLong(Order::id).sum(), e.getKey());
+        assertEquals(5_000, repo.stream().parallel().mapToLong(Order::id).distinct().count(), e.getKey());
+        assertEquals(99L, repo.findById(99).orElseThrow().id(), e.getKey());
+        var totals = new EndOfDayTotals();
+        assertEquals(totals.totalWithTax(batch, 10), totals.totalWithTax(repo, 10), e.getKey());
+      } finally {
+        close(repo);
+      }
+    }
+  }
+
+  @Test
+  void save_all_rejects_null_batches_and_elements_before_saving() throws IOException {
+    for (var e : REPOSITORIES.entrySet()) {
+      var repo = e.getValue().apply(dir.resolve(e.getKey()));
+      try {
+        assertThrows(IllegalArgumentException.class, () -> repo.saveAll(null), e.getKey());
+        assertThrows(IllegalArgumentException.class,
+            () -> repo.saveAll(Arrays.asList(new Order(1), null)), e.getKey());
+        assertTrue(repo.findById(1).isEmpty(), e.getKey());
+        assertEquals(0, repo.stream().count(), e.getKey());
+      } finally {
+        close(repo);
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.factory.ProductFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Startup time of {@link FileOrderRepository}: full log replay vs snapshot + tail.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.infra.StartupBenchmark}.
+ */
+public final class StartupBenchmark {
+
+  private static final int ORDERS = 50_000;
+  private static final int SAVES_PER_ORDER = 6;
+
+  public static void main(String[] args) throws IOException {
+    Path dir = Files.createTempDirectory("cafepos-startup");
+    var options = new LogOptions(64L << 20, 4_096, 0);
+    var factory = new ProductFactory();
+    String[] recipes = {"ESP", "LAT+SHOT", "CAP+OAT+L", "LAT+SHOT+SYP"};
+    try (var repo = new FileOrderRepository(dir, options)) {
+      for (int round = 0; round < SAVES_PER_ORDER; round++) {
+        for (long id = 0; id < ORDERS; id++) {
+          Order o = new Order(id);
+          for (int l = 0; l <= round % 4; l++) {
+            o.addItem(new LineItem(factory.create(recipes[(int) ((id + l) % recipes.length)]), 1 + l));
+          }
+          repo.save(o);
+        }
+      }
+    }
+    System.out.printf("log: %d records, %.1f MiB%n", ORDERS * SAVES_PER_ORDER, sizeMiB(dir));
+    for (int i = 0; i < 3; i++) {
+      time("full replay", dir, options);
+    }
+    try (var repo = new FileOrderRepository(dir, options)) {
+      repo.snapshot();
+      for (long id = 0; id < ORDERS / 100; id++) {
+        repo.save(new Order(id));
+      }
+    }
+    System.out.printf("after snapshot: %.1f MiB on disk%n", sizeMiB(dir));
+    for (int i = 0; i < 3; i++) {
+      time("snapshot + tail", dir, options);
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  private static void time(String label, Path dir, LogOptions options) {
+    long t0 = System.nanoTime();
+    try (var repo = new FileOrderRepository(dir, options)) {
+      long t1 = System.nanoTime();
+      System.out.printf("%-16s %7.1f ms (%d orders)%n", label, (t1 - t0) / 1e6, repo.size());
+    }
+  }
+
+  private static double sizeMiB(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.mapToLong(p -> p.toFile().length()).sum() / (1024.0 * 1024.0);
+    }
+  }
+}
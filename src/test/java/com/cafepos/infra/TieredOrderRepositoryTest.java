@@ -0,0 +1,167 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+import com.cafepos.factory.ProductFactory;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredOrderRepositoryTest {
+
+  @TempDir
+  Path dir;
+
+  private final AtomicLong now = new AtomicLong(1_000);
+
+  private TieredOrderRepository repo(long ttl, int maxHotCompleted) {
+    return new TieredOrderRepository(dir, new TierOptions(ttl, maxHotCompleted, 0), now::get);
+  }
+
+  private static Order order(long id, boolean delivered) {
+    var o = new Order(id, 500 + id);
+    o.addItem(new LineItem(ProductFactory.shared().create("LAT+OAT"), 2));
+    o.pay(order -> { });
+    if (delivered) {
+      o.markDelivered();
+    }
+    return o;
+  }
+
+  @Test
+  void completed_orders_are_demoted_after_ttl_and_paged_back_in() {
+    try (var repo = repo(1_000, 100)) {
+      var open = new Order(1, 10);
+      repo.save(open);
+      var done = order(2, true);
+      repo.save(done);
+
+      now.addAndGet(999);
+      assertEquals(0, repo.demoteExpired());
+      now.addAndGet(1);
+      assertEquals(1, repo.demoteExpired());
+      assertEquals(new TieredOrderRepository.Stats(1, 1, repo.stats().coldBytes(), 0, 1, 0, 0), repo.stats());
+      assertSame(open, repo.findById(1).orElseThrow());
+
+      var back = repo.findById(2).orElseThrow();
+      assertNotSame(done, back);
+      assertEquals(OrderStatus.DELIVERED, back.status());
+      assertEquals(done.createdAt(), back.createdAt());
+      assertEquals(done.totalWithTax(10), back.totalWithTax(10));
+      assertSame(back, repo.findById(2).orElseThrow());
+      assertEquals(1, repo.stats().promotions());
+      assertTrue(repo.findById(3).isEmpty());
+    }
+  }
+
+  @Test
+  void open_orders_are_never_demoted() {
+    try (var repo = repo(0, 0)) {
+      repo.save(new Order(1, 10));
+      now.addAndGet(1_000_000);
+      assertEquals(0, repo.demoteExpired());
+      assertEquals(1, repo.stats().hotOrders());
+      assertEquals(0, repo.stats().coldOrders());
+    }
+  }
+
+  @Test
+  void size_limit_demotes_least_recently_used_first() {
+    try (var repo = repo(Long.MAX_VALUE / 2, 8)) {
+      for (long id = 1; id <= 8; id++) {
+        repo.save(order(id, false));
+        now.incrementAndGet();
+      }
+      repo.findById(1);
+      repo.save(order(9, false));
+      var s = repo.stats();
+      assertEquals(7, s.hotOrders());
+      assertEquals(2, s.coldOrders());
+      assertEquals(2, s.demotions());
+      assertEquals(0, s.promotions());
+      repo.findById(1);
+      assertEquals(0, repo.stats().promotions());
+      assertEquals(2, repo.findById(2).orElseThrow().id());
+      assertEquals(3, repo.findById(3).orElseThrow().id());
+      assertEquals(2, repo.stats().promotions());
+      for (long id = 1; id <= 9; id++) {
+        assertEquals(id, repo.findById(id).orElseThrow().id());
+      }
+    }
+  }
+
+  @Test
+  void clean_promoted_orders_are_not_rewritten_but_resaved_ones_are() {
+    try (var repo = repo(0, 100)) {
+      repo.save(order(1, false));
+      repo.save(order(2, false));
+      repo.demoteExpired();
+      long bytes = repo.stats().coldBytes();
+
+      repo.findById(1);
+      repo.demoteExpired();
+      assertEquals(bytes, repo.stats().coldBytes());
+
+      var o = repo.findById(2).orElseThrow();
+      o.markDelivered();
+      repo.save(o);
+      repo.demoteExpired();
+      var s = repo.stats();
+      assertTrue(s.coldBytes() > bytes);
+      assertTrue(s.coldDeadBytes() > 0);
+      assertEquals(2, s.coldOrders());
+      assertEquals(OrderStatus.DELIVERED, repo.findById(2).orElseThrow().status());
+    }
+  }
+
+  @Test
+  void promoted_orders_changed_without_a_save_are_written_back_on_demotion() {
+    try (var repo = repo(0, 100)) {
+      repo.save(order(1, false));
+      repo.demoteExpired();
+      var o = repo.findById(1).orElseThrow();
+      o.addItem(new LineItem(ProductFactory.shared().create("ESP"), 1));
+      o.markDelivered();
+      repo.demoteExpired();
+      var back = repo.findById(1).orElseThrow();
+      assertNotSame(o, back);
+      assertEquals(2, back.items().size());
+      assertEquals(OrderStatus.DELIVERED, back.status());
+    }
+  }
+
+  @Test
+  void failed_periodic_sweeps_are_reported_and_counted() throws InterruptedException {
+    var failures = new LinkedBlockingQueue<RuntimeException>();
+    var options = new TierOptions(1_000, 100, 1, e -> {
+      failures.add(e);
+      throw new IllegalStateException("handler failed too");
+    });
+    LongSupplier failingClock = () -> {
+      throw new IllegalStateException("clock unavailable");
+    };
+    try (var repo = new TieredOrderRepository(dir, options, failingClock)) {
+      var first = failures.poll(5, TimeUnit.SECONDS);
+      assertEquals("clock unavailable", first.getMessage());
+      assertNotNull(failures.poll(5, TimeUnit.SECONDS), "a failing handler must not stop the sweep");
+      assertTrue(repo.stats().sweepFailures() >= 2);
+    }
+  }
+
+  @Test
+  void rejects_bad_arguments() {
+    assertThrows(IllegalArgumentException.class, () -> new TierOptions(-1, 1, 0));
+    assertThrows(IllegalArgumentException.class, () -> new TierOptions(1, -1, 0));
+    assertThrows(IllegalArgumentException.class, () -> new TierOptions(1, 1, 0, null));
+    assertThrows(IllegalArgumentException.class, () -> new TieredOrderRepository(null));
+    try (var repo = repo(1, 1)) {
+      assertThrows(IllegalArgumentException.class, () -> repo.save(null));
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.cafepos.observer;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Time the till thread spends in addItem/pay/markReady when the observers
+ * write each notification to an unbuffered stream (one write syscall per line,
+ * like the console observers): inline delivery against an async channel.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.observer.AsyncObserverBenchmark}.
+ */
+public final class AsyncObserverBenchmark {
+
+  private static final int ORDERS = 20_000;
+  private static final int LINES = 5;
+
+  static void run(ObserverChannel channel, String label) {
+    var line = new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 1);
+    long t0 = System.nanoTime();
+    for (long id = 0; id < ORDERS; id++) {
+      var order = new Order(id, 0);
+      order.attach(channel);
+      for (int i = 0; i < LINES; i++) {
+        order.addItem(line);
+      }
+      order.pay(o -> { });
+      order.markReady();
+    }
+    long till = System.nanoTime() - t0;
+    channel.flush();
+    long total = System.nanoTime() - t0;
+    System.out.printf("%-7s till thread %7.1f ms (%5.2f us/order)   until delivered %7.1f ms%n",
+        label, till / 1e6, till / 1e3 / ORDERS, total / 1e6);
+  }
+
+  public static void main(String[] args) throws IOException {
+    try (var out = new PrintStream(new FileOutputStream("/dev/null"), true)) {
+      OrderObserver console = (o, type) -> out.println("[Till] Order #" + o.id() + ": " + type.label());
+      for (int round = 0; round < 5; round++) {
+        var inline = new ObserverChannel();
+        inline.register(console);
+        run(inline, "inline");
+        try (var async = ObserverChannel.async()) {
+          async.register(console);
+          run(async, "async");
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.cafepos.observer;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingObserverTest {
+
+  private final LineItem espresso = new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 1);
+
+  /** Records "id:type" or "id:type x count". */
+  static final class Recorder implements OrderObserver {
+    final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void updated(Order order, OrderEventType type) {
+      calls.add(order.id() + ":" + type.label());
+    }
+
+    @Override
+    public void updated(Order order, OrderEventType type, int count) {
+      calls.add(order.id() + ":" + type.label() + " x" + count);
+    }
+  }
+
+  @Test
+  void a_burst_becomes_one_call_with_a_count_once_the_window_passes() {
+    var now = new AtomicLong();
+    var target = new Recorder();
+    var coalescer = new CoalescingObserver(target, 50, now::get, false);
+    var order = new Order(1L);
+    order.register(coalescer);
+    for (int i = 0; i < 200; i++) {
+      order.addItem(espresso);
+    }
+    now.set(49);
+    coalescer.flushDue();
+    assertTrue(target.calls.isEmpty());
+    now.set(50);
+    coalescer.flushDue();
+    assertEquals(List.of("1:itemAdded x200"), target.calls);
+    assertEquals(0, coalescer.pendingBursts());
+  }
+
+  @Test
+  void final_events_flush_the_pending_burst_first_and_are_never_held() {
+    var target = new Recorder();
+    var coalescer = new CoalescingObserver(target, 60_000, () -> 0, false);
+    var order = new Order(2L);
+    order.register(coalescer);
+    order.addItem(espresso);
+    order.addItem(espresso);
+    order.addItem(espresso);
+    order.removeLastItem();
+    order.pay(o -> { });
+    order.markReady();
+    assertEquals(List.of("2:itemAdded x3", "2:itemRemoved", "2:paid", "2:ready"), target.calls);
+  }
+
+  @Test
+  void orders_are_coalesced_independently() {
+    var target = new Recorder();
+    var coalescer = new CoalescingObserver(target, 60_000, () -> 0, false);
+    var a = new Order(3L);
+    var b = new Order(4L);
+    a.register(coalescer);
+    b.register(coalescer);
+    a.addItem(espresso);
+    b.addItem(espresso);
+    a.addItem(espresso);
+    b.markReady();
+    assertEquals(List.of("4:itemAdded", "4:ready"), target.calls);
+    coalescer.flush();
+    assertEquals("3:itemAdded x2", target.calls.get(2));
+  }
+
+  @Test
+  void the_timer_releases_bursts_without_further_events() throws Exception {
+    var target = new Recorder();
+    var coalescer = new CoalescingObserver(target, 20);
+    var order = new Order(5L);
+    order.register(coalescer);
+    for (int i = 0; i < 10; i++) {
+      order.addItem(espresso);
+    }
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (target.calls.isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(List.of("5:itemAdded x10"), target.calls);
+  }
+
+  @Test
+  void kitchen_display_prints_one_summary_line_per_burst() {
+    var out = new ByteArrayOutputStream();
+    var original = System.out;
+    System.setOut(new PrintStream(out));
+    try {
+      var coalescer = new CoalescingObserver(new KitchenDisplay(), 60_000, () -> 0, false);
+      var order = new Order(6L);
+      order.register(coalescer);
+      for (int i = 0; i < 200; i++) {
+        order.addItem(espresso);
+      }
+      order.pay(o -> { });
+    } finally {
+      System.setOut(original);
+    }
+    String[] lines = out.toString().trim().split("\\R");
+    assertEquals(2, lines.length);
+    assertEquals("[Kitchen] Order #6: 200 items added", lines[0]);
+    assertTrue(lines[1].contains("Payment received"));
+  }
+
+  @Test
+  void coalescer_takes_the_targets_interests() {
+    var coalescer = new CoalescingObserver(new DeliveryDesk(), 50);
+    assertEquals(new DeliveryDesk().interests(), coalescer.interests());
+    assertThrows(IllegalArgumentException.class, () -> new CoalescingObserver(new DeliveryDesk(), 0));
+  }
+}
@@ -0,0 +1,231 @@
+package com.cafepos.observer;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObserverChannelTest {
+
+  private final LineItem espresso = new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 1);
+
+  @Test
+  void one_channel_serves_many_orders() {
+    List<String> seen = new ArrayList<>();
+    var channel = new ObserverChannel();
+    channel.register((o, type) -> seen.add(o.id() + ":" + type.label()), OrderEventType.READY);
+    var a = new Order(1L);
+    var b = new Order(2L);
+    a.attach(channel);
+    b.attach(channel);
+    a.addItem(espresso);
+    b.markReady();
+    a.markReady();
+    assertEquals(List.of("2:ready", "1:ready"), seen);
+    assertSame(channel, a.channel());
+  }
+
+  @Test
+  void channel_observers_run_before_the_orders_own() {
+    List<String> seen = new ArrayList<>();
+    var channel = new ObserverChannel();
+    channel.register((o, type) -> seen.add("channel"));
+    var order = new Order(3L);
+    order.register((o, type) -> seen.add("order"));
+    order.attach(channel);
+    order.markReady();
+    assertEquals(List.of("channel", "order"), seen);
+
+    seen.clear();
+    order.attach(null);
+    order.markDelivered();
+    assertEquals(List.of("order"), seen);
+  }
+
+  @Test
+  void unregister_on_the_channel_applies_to_every_attached_order_but_order_unregister_does_not() {
+    List<Long> seen = new ArrayList<>();
+    OrderObserver observer = (o, type) -> seen.add(o.id());
+    var channel = new ObserverChannel();
+    channel.register(observer);
+    channel.register(observer);
+    var order = new Order(4L);
+    order.attach(channel);
+    order.unregister(observer);
+    order.markReady();
+    assertEquals(List.of(4L), seen);
+
+    channel.unregister(observer);
+    assertTrue(channel.isEmpty());
+    order.markDelivered();
+    assertEquals(1, seen.size());
+  }
+
+  @Test
+  void registration_is_safe_while_other_threads_notify() throws Exception {
+    var channel = new ObserverChannel();
+    var hits = new java.util.concurrent.atomic.AtomicLong();
+    channel.register((o, type) -> hits.incrementAndGet(), OrderEventType.ITEM_ADDED);
+    Thread till = new Thread(() -> {
+      for (long id = 0; id < 2_000; id++) {
+        var order = new Order(id);
+        order.attach(channel);
+        order.addItem(espresso);
+      }
+    });
+    till.start();
+    for (int i = 0; i < 200; i++) {
+      OrderObserver extra = (o, type) -> { };
+      channel.register(extra);
+      channel.unregister(extra);
+    }
+    till.join();
+    assertEquals(2_000, hits.get());
+  }
+
+  @Test
+  void async_channel_delivers_off_the_till_thread_in_per_order_order() {
+    var threads = java.util.concurrent.ConcurrentHashMap.<String>newKeySet();
+    var perOrder = new java.util.concurrent.ConcurrentHashMap<Long, List<OrderEventType>>();
+    try (var channel = ObserverChannel.async(3)) {
+      channel.register((o, type) -> {
+        threads.add(Thread.currentThread().getName());
+        perOrder.computeIfAbsent(o.id(), k -> new ArrayList<>()).add(type);
+      });
+      for (long id = 0; id < 300; id++) {
+        var order = new Order(id);
+        order.attach(channel);
+        order.addItem(espresso);
+        order.removeLastItem();
+        order.pay(o -> { });
+        order.markReady();
+      }
+      channel.flush();
+      assertFalse(threads.contains(Thread.currentThread().getName()));
+      assertEquals(300, perOrder.size());
+      for (List<OrderEventType> types : perOrder.values()) {
+        assertEquals(List.of(OrderEventType.ITEM_ADDED, OrderEventType.ITEM_REMOVED,
+            OrderEventType.PAID, OrderEventType.READY), types);
+      }
+    }
+  }
+
+  @Test
+  void async_notify_does_not_wait_for_slow_observers() throws Exception {
+    var release = new java.util.concurrent.CountDownLatch(1);
+    var delivered = new java.util.concurrent.atomic.AtomicInteger();
+    try (var channel = ObserverChannel.async()) {
+      channel.register((o, type) -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        delivered.incrementAndGet();
+      });
+      var order = new Order(5L);
+      order.attach(channel);
+      order.addItem(espresso);
+      order.markReady();
+      assertEquals(0, delivered.get());
+      release.countDown();
+      channel.flush();
+      assertEquals(2, delivered.get());
+    }
+  }
+
+  @Test
+  void async_failures_are_reported_and_close_rejects_new_notifications() {
+    List<OrderEventType> failed = java.util.Collections.synchronizedList(new ArrayList<>());
+    var later = new java.util.concurrent.atomic.AtomicInteger();
+    var channel = ObserverChannel.async();
+    channel.onError((type, e) -> failed.add(type));
+    channel.register((o, type) -> {
+      throw new IllegalStateException("console gone");
+    });
+    channel.register((o, type) -> later.incrementAndGet());
+    var order = new Order(6L);
+    order.attach(channel);
+    order.markReady();
+    channel.close();
+    assertEquals(List.of(OrderEventType.READY), failed);
+    assertEquals(1, later.get());
+    assertThrows(IllegalStateException.class, order::markDelivered);
+    channel.flush();
+    assertThrows(IllegalArgumentException.class, () -> ObserverChannel.async(0));
+  }
+
+  @Test
+  void async_channels_and_coalescers_refuse_observers_that_need_the_notifying_thread() {
+    OrderObserver lastLine = new OrderObserver() {
+      @Override
+      public void updated(Order order, OrderEventType type) {
+      }
+
+      @Override
+      public boolean needsNotifyingThread() {
+        return true;
+      }
+    };
+    try (var channel = ObserverChannel.async()) {
+      assertThrows(IllegalArgumentException.class, () -> channel.register(lastLine));
+      assertThrows(IllegalArgumentException.class,
+          () -> channel.register(lastLine, OrderEventType.ITEM_ADDED));
+      assertTrue(channel.isEmpty());
+    }
+    assertThrows(IllegalArgumentException.class, () -> new CoalescingObserver(lastLine, 50));
+    var inline = new ObserverChannel();
+    inline.register(lastLine);
+    assertFalse(inline.isEmpty());
+  }
+
+  @Test
+  void an_observer_error_does_not_kill_the_worker_or_hang_flush() {
+    var delivered = new java.util.concurrent.atomic.AtomicInteger();
+    try (var channel = ObserverChannel.async()) {
+      channel.register((o, type) -> {
+        if (type == OrderEventType.READY) {
+          throw new AssertionError("observer bug");
+        }
+      });
+      channel.register((o, type) -> delivered.incrementAndGet());
+      var order = new Order(7L);
+      order.attach(channel);
+      order.markReady();
+      order.markDelivered();
+      assertTimeoutPreemptively(java.time.Duration.ofSeconds(5), channel::flush);
+      assertEquals(2, delivered.get());
+    }
+  }
+
+  @Test
+  void notifications_racing_close_are_either_delivered_or_rejected() throws Exception {
+    var delivered = new java.util.concurrent.atomic.AtomicInteger();
+    var accepted = new java.util.concurrent.atomic.AtomicInteger();
+    var channel = ObserverChannel.async(2);
+    channel.register((o, type) -> delivered.incrementAndGet());
+    Thread till = new Thread(() -> {
+      var order = new Order(8L);
+      order.attach(channel);
+      try {
+        while (true) {
+          order.markReady();
+          accepted.incrementAndGet();
+        }
+      } catch (IllegalStateException closed) {
+        // the channel closed under us
+      }
+    });
+    till.start();
+    while (accepted.get() < 1_000) {
+      Thread.onSpinWait();
+    }
+    channel.close();
+    till.join();
+    assertEquals(accepted.get(), delivered.get());
+  }
+}
@@ -0,0 +1,78 @@
+package com.cafepos.observer;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import java.util.Set;
+
+/**
+ * Cost of {@code addItem} on big orders with one observer that wants items and
+ * seven that only care about status changes: typed subscriptions against every
+ * observer being called and filtering, as before. The channel run registers the
+ * typed observers once on a shared {@link ObserverChannel} instead of per order.
+ * Run with {@code java -cp target/classes:target/test-classes com.cafepos.observer.ObserverDispatchBenchmark}.
+ */
+public final class ObserverDispatchBenchmark {
+
+  private static final int ORDERS = 20_000;
+  private static final int LINES = 200;
+
+  private static long sink;
+
+  record Interested(Set<OrderEventType> interests, int salt) implements OrderObserver {
+    @Override
+    public void updated(Order order, OrderEventType type) {
+      sink += order.id() ^ salt;
+    }
+  }
+
+  /** Called for everything; drops what it does not want, like the string-filtering observers did. */
+  record Filtering(OrderEventType wanted, int salt) implements OrderObserver {
+    @Override
+    public void updated(Order order, OrderEventType type) {
+      if (type == wanted) {
+        sink += order.id() ^ salt;
+      }
+    }
+  }
+
+  static OrderEventType wanted(int i) {
+    return i == 0 ? OrderEventType.ITEM_ADDED : (i % 2 == 0 ? OrderEventType.PAID : OrderEventType.READY);
+  }
+
+  static long run(boolean typed, ObserverChannel channel) {
+    var line = new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 1);
+    long t0 = System.nanoTime();
+    for (long id = 0; id < ORDERS; id++) {
+      var order = new Order(id, 0);
+      if (channel != null) {
+        order.attach(channel);
+      } else {
+        for (int i = 0; i < 8; i++) {
+          order.register(typed ? new Interested(Set.of(wanted(i)), i) : new Filtering(wanted(i), i));
+        }
+      }
+      for (int i = 0; i < LINES; i++) {
+        order.addItem(line);
+      }
+      order.markReady();
+    }
+    return System.nanoTime() - t0;
+  }
+
+  public static void main(String[] args) {
+    var channel = new ObserverChannel();
+    for (int i = 0; i < 8; i++) {
+      channel.register(new Interested(Set.of(wanted(i)), i));
+    }
+    for (int round = 0; round < 5; round++) {
+      long filtering = run(false, null);
+      long typed = run(true, null);
+      long shared = run(true, channel);
+      System.out.printf("filtering %6.1f ms   typed %6.1f ms   channel %6.1f ms   (%,d addItem calls each)%n",
+          filtering / 1e6, typed / 1e6, shared / 1e6, (long) ORDERS * LINES);
+    }
+    System.out.println(sink == 42 ? "" : "done");
+  }
+}
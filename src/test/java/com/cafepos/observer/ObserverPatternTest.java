@@ -127,4 +127,51 @@ class ObserverPatternTest {
     // Should only receive one notification, not two
     assertEquals(1, output.split("\\[Kitchen\\]").length - 1);
   }
+
+  @Test
+  void dispatch_only_reaches_observers_interested_in_the_event() {
+    var order = new Order(6007L);
+    var calls = new java.util.ArrayList<String>();
+    OrderObserver readyOnly = new OrderObserver() {
+      @Override
+      public void updated(Order o, OrderEventType type) {
+        calls.add("ready-only:" + type.label());
+      }
+
+      @Override
+      public java.util.Set<OrderEventType> interests() {
+        return java.util.Set.of(OrderEventType.READY);
+      }
+    };
+    order.register(readyOnly);
+    order.register((o, type) -> calls.add("paid-only:" + type.label()), OrderEventType.PAID);
+
+    for (int i = 0; i < 10; i++) {
+      order.addItem(new LineItem(new ProductFactory().create("ESP"), 1));
+    }
+    order.removeLastItem();
+    assertTrue(calls.isEmpty());
+
+    order.pay(o -> { });
+    order.markReady();
+    assertEquals(java.util.List.of("paid-only:paid", "ready-only:ready"), calls);
+  }
+
+  @Test
+  void explicit_kinds_extend_a_registration_and_unregister_clears_them_all() {
+    var order = new Order(6008L);
+    var seen = new java.util.ArrayList<OrderEventType>();
+    OrderObserver observer = (o, type) -> seen.add(type);
+    order.register(observer, OrderEventType.READY);
+    order.register(observer, OrderEventType.READY, OrderEventType.DELIVERED);
+    order.markReady();
+    order.markDelivered();
+    assertEquals(java.util.List.of(OrderEventType.READY, OrderEventType.DELIVERED), seen);
+
+    order.unregister(observer);
+    order.markReady();
+    order.markDelivered();
+    assertEquals(2, seen.size());
+    assertThrows(IllegalArgumentException.class, () -> order.register(observer, null));
+  }
 }